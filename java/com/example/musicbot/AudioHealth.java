@@ -0,0 +1,36 @@
+package com.example.musicbot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the 20ms frames handed to Discord, and the frames that weren't ready while a track
+ * was playing. Missing frames mean lavaplayer's playback threads fall behind, usually because
+ * something else (ffmpeg) is using the CPU, and are heard as stutter.
+ */
+public class AudioHealth {
+    private static final AtomicLong framesSent = new AtomicLong();
+    private static final AtomicLong framesMissed = new AtomicLong();
+
+    /**
+     * Called by the send handlers for every frame Discord asked for while a track was playing
+     */
+    static void recordFrame(boolean sent) {
+        (sent ? framesSent : framesMissed).incrementAndGet();
+    }
+
+    public static long getFramesSent() {
+        return framesSent.get();
+    }
+
+    public static long getFramesMissed() {
+        return framesMissed.get();
+    }
+
+    /**
+     * Exposes the frame counters on the metrics endpoint.
+     */
+    public static void registerMetrics() {
+        MetricsServer.register("musicbot_audio_frames_sent_total", framesSent::get);
+        MetricsServer.register("musicbot_audio_frames_missed_total", framesMissed::get);
+    }
+}
@@ -1,37 +1,49 @@
-package com.example.musicbot;
-
-import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
-import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
-import net.dv8tion.jda.api.audio.AudioSendHandler;
-import java.nio.ByteBuffer;
-
-public class AudioPlayerSendHandler implements AudioSendHandler {
-    private final AudioPlayer audioPlayer;
-    private volatile AudioFrame lastFrame;
-
-    public AudioPlayerSendHandler(AudioPlayer audioPlayer) {
-        this.audioPlayer = audioPlayer;
-    }
-
-   @Override
-    public synchronized boolean canProvide() {
-        try {
-            lastFrame = audioPlayer.provide();
-            return lastFrame != null;
-        } catch (Exception e) {
-            // Log the error and potentially reset the player
-            System.err.println("Error providing audio: " + e.getMessage());
-            return false;
-        }
-    }
-
-    @Override
-    public ByteBuffer provide20MsAudio() {
-        return ByteBuffer.wrap(lastFrame.getData());
-    }
-
-    @Override
-    public boolean isOpus() {
-        return true;
-    }
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import net.dv8tion.jda.api.audio.AudioSendHandler;
+import java.nio.ByteBuffer;
+
+public class AudioPlayerSendHandler implements AudioSendHandler {
+    private final AudioPlayer audioPlayer;
+    private volatile AudioFrame lastFrame;
+    // Track that has provided a frame; before its first frame it is still loading, not stalling
+    private AudioTrack sounding;
+
+    public AudioPlayerSendHandler(AudioPlayer audioPlayer) {
+        this.audioPlayer = audioPlayer;
+    }
+
+   @Override
+    public synchronized boolean canProvide() {
+        try {
+            lastFrame = audioPlayer.provide();
+            boolean provided = lastFrame != null;
+            AudioTrack track = audioPlayer.getPlayingTrack();
+            if (provided) {
+                sounding = track;
+                AudioHealth.recordFrame(true);
+            } else if (track != null && track == sounding && !audioPlayer.isPaused()) {
+                // No frame once a track has started playing is a gap the listeners hear
+                AudioHealth.recordFrame(false);
+            }
+            return provided;
+        } catch (Exception e) {
+            // Log the error and potentially reset the player
+            System.err.println("Error providing audio: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public ByteBuffer provide20MsAudio() {
+        return ByteBuffer.wrap(lastFrame.getData());
+    }
+
+    @Override
+    public boolean isOpus() {
+        return true;
+    }
 }
\ No newline at end of file
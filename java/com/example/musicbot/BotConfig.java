@@ -1,466 +1,883 @@
-package com.example.musicbot;
-
-import java.io.*;
-import java.util.List;
-import java.util.Properties;
-import java.util.Scanner;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-
-public class BotConfig {
-    private final Properties properties = new Properties();
-    private final File configFile = new File("config.txt");
-    private boolean configInitialized = false;
-
-    // Logging levels
-    public static final String LOG_LEVEL_CLEAN = "clean";     // Only important messages
-    public static final String LOG_LEVEL_INFO = "info";       // General information
-    public static final String LOG_LEVEL_DEBUG = "debug";     // Detailed debugging info
-    public static final String LOG_LEVEL_TRACE = "trace";     // Everything, including lavaplayer internals
-
-    public BotConfig() {
-        load();
-    }
-
-    
-
-    private void load() {
-        if (configFile.exists() && configFile.length() < 10_000_000) { // Max 10MB to prevent corrupt files
-            try (FileInputStream fis = new FileInputStream(configFile)) {
-                properties.load(fis);
-                configInitialized = true;
-                System.out.println("Config loaded successfully.");
-            } catch (IOException e) {
-                System.err.println("Error loading config: " + e.getMessage());
-                createDefaultConfig();
-            }
-        } else {
-            if (configFile.exists() && configFile.length() >= 10_000_000) {
-                // File exists but is too large - likely corrupted
-                System.err.println("Config file is too large (" + (configFile.length() / 1024 / 1024) + "MB). Creating backup and new config.");
-                try {
-                    File backupFile = new File("config_backup_" + System.currentTimeMillis() + ".txt");
-                    Files.copy(configFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    configFile.delete();
-                } catch (IOException e) {
-                    System.err.println("Error creating backup: " + e.getMessage());
-                }
-            }
-            createDefaultConfig();
-        }
-        
-        // Set defaults for properties that don't exist
-        if (properties.getProperty("prefix") == null)
-            properties.setProperty("prefix", "!");
-        if (properties.getProperty("bot_status") == null)
-            properties.setProperty("bot_status", "Music Bot");
-        if (properties.getProperty("now_playing_format") == null)
-            properties.setProperty("now_playing_format", "Now Playing: %s");
-        if (properties.getProperty("log_level") == null)
-            properties.setProperty("log_level", LOG_LEVEL_CLEAN);
-        if (properties.getProperty("cache_dir") == null)
-            properties.setProperty("cache_dir", "cache");
-        if (properties.getProperty("embed_color") == null)
-            properties.setProperty("embed_color", "#1DB954");
-        if (properties.getProperty("max_volume") == null)
-            properties.setProperty("max_volume", "150");
-        if (properties.getProperty("default_volume") == null)
-            properties.setProperty("default_volume", "100");
-        if (properties.getProperty("max_queue_display") == null)
-            properties.setProperty("max_queue_display", "10");
-        if (properties.getProperty("reaction_timeout") == null)
-            properties.setProperty("reaction_timeout", "15");
-        if (properties.getProperty("log_to_file") == null)
-            properties.setProperty("log_to_file", "false");
-        if (properties.getProperty("log_file") == null)
-            properties.setProperty("log_file", "logs/musicbot.log");
-        if (properties.getProperty("spotify_enabled") == null)
-            properties.setProperty("spotify_enabled", "false");
-        if (properties.getProperty("spotify_client_id") == null)
-            properties.setProperty("spotify_client_id", "");
-        if (properties.getProperty("spotify_client_secret") == null)
-            properties.setProperty("spotify_client_secret", "");
-        if (properties.getProperty("last_spotify_url") == null)
-            properties.setProperty("last_spotify_url", "");
-        
-        // Interactive console for required values
-        Scanner scanner = new Scanner(System.in);
-        boolean tokenUpdated = false;
-        
-        if (properties.getProperty("token") == null || properties.getProperty("token").isEmpty() ||
-            properties.getProperty("token").equals("BOT_TOKEN_HERE")) {
-            System.out.print("Please enter your Discord bot token: ");
-            String token = scanner.nextLine().trim();
-            if (!token.isEmpty()) {
-                properties.setProperty("token", token);
-                tokenUpdated = true;
-            }
-        }
-        
-        if (properties.getProperty("owner") == null || properties.getProperty("owner").isEmpty()) {
-            System.out.print("Please enter your Discord owner ID: ");
-            String owner = scanner.nextLine().trim();
-            if (!owner.isEmpty()) {
-                properties.setProperty("owner", owner);
-                tokenUpdated = true;
-            }
-        }
-        
-        // Only save if we've updated critical values or the config was just created
-        if (tokenUpdated || !configInitialized) {
-            saveConfig();
-        }
-    }
-
-    private void createDefaultConfig() {
-        System.out.println("Creating default configuration file...");
-        
-        StringBuilder sb = new StringBuilder();
-        
-        // ASCII Art Header
-        sb.append("╭━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━╮\n");
-        sb.append("│                                                  │\n");
-        sb.append("│   ███╗   ███╗██╗   ██╗███████╗██╗ ██████╗       │\n");
-        sb.append("│   ████╗ ████║██║   ██║██╔════╝██║██╔════╝       │\n");
-        sb.append("│   ██╔████╔██║██║   ██║███████╗██║██║            │\n");
-        sb.append("│   ██║╚██╔╝██║██║   ██║╚════██║██║██║            │\n");
-        sb.append("│   ██║ ╚═╝ ██║╚██████╔╝███████║██║╚██████╗       │\n");
-        sb.append("│   ╚═╝     ╚═╝ ╚═════╝ ╚══════╝╚═╝ ╚═════╝       │\n");
-        sb.append("│                                                  │\n");
-        sb.append("│   ██████╗  ██████╗ ████████╗                    │\n");
-        sb.append("│   ██╔══██╗██╔═══██╗╚══██╔══╝                    │\n");
-        sb.append("│   ██████╔╝██║   ██║   ██║                       │\n");
-        sb.append("│   ██╔══██╗██║   ██║   ██║                       │\n");
-        sb.append("│   ██████╔╝╚██████╔╝   ██║                       │\n");
-        sb.append("│   ╚═════╝  ╚═════╝    ╚═╝                       │\n");
-        sb.append("│                                                  │\n");
-        sb.append("╰━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━╯\n\n");
-        
-        // Config file header
-        sb.append("# ═══════════════════════════════════════════════════\n");
-        sb.append("# Discord Music Bot Configuration File\n");
-        sb.append("# ═══════════════════════════════════════════════════\n\n");
-    
-        // Required settings
-        sb.append("# ┌─────────────────────────────────────────────────┐\n");
-        sb.append("# │               REQUIRED SETTINGS                 │\n");
-        sb.append("# └─────────────────────────────────────────────────┘\n\n");
-        
-        sb.append("# Discord Bot Token (Get from https://discord.com/developers/applications)\n");
-        sb.append("# REQUIRED: Your bot won't work without this!\n");
-        sb.append("token = BOT_TOKEN_HERE\n\n");
-        
-        sb.append("# Discord Owner ID (Your user ID, right-click your name and Copy ID)\n");
-        sb.append("# REQUIRED: Used for admin commands and startup notification\n");
-        sb.append("owner = \n\n");
-    
-        // General settings
-        sb.append("# ┌─────────────────────────────────────────────────┐\n");
-        sb.append("# │               GENERAL SETTINGS                  │\n");
-        sb.append("# └─────────────────────────────────────────────────┘\n\n");
-        
-        sb.append("# Command prefix for text commands (e.g., !play, !skip)\n");
-        sb.append("# Possible values: Any character or string (!, ?, ., -, $, etc.)\n");
-        sb.append("prefix = !\n\n");
-        
-        sb.append("# Bot status message (shown in Discord member list)\n");
-        sb.append("# Possible values: Any text (e.g., \"Playing music\", \"Type !help\")\n");
-        sb.append("bot_status = 🎵 Music Bot | !help\n\n");
-        
-        sb.append("# Now playing format (use %s to insert the track title)\n");
-        sb.append("# Possible values: Any text with %s as placeholder for the song title\n");
-        sb.append("now_playing_format = Now Playing: %s\n\n");
-        
-        sb.append("# Embed color for messages (Hex color code)\n");
-        sb.append("# Possible values: Any hex color code (#RRGGBB format)\n");
-        sb.append("embed_color = #1DB954\n\n");
-    
-        // Audio settings
-        sb.append("# ┌─────────────────────────────────────────────────┐\n");
-        sb.append("# │               AUDIO SETTINGS                    │\n");
-        sb.append("# └─────────────────────────────────────────────────┘\n\n");
-        
-        sb.append("# Maximum volume level\n");
-        sb.append("# Possible values: 1-1000 (recommended: 100-200)\n");
-        sb.append("max_volume = 150\n\n");
-        
-        sb.append("# Default volume level when bot joins\n");
-        sb.append("# Possible values: 1-max_volume\n");
-        sb.append("default_volume = 100\n\n");
-        
-        sb.append("# Maximum number of tracks to display in queue command\n");
-        sb.append("# Possible values: Any positive number\n");
-        sb.append("max_queue_display = 10\n\n");
-        
-        sb.append("# Timeout for reaction-based choices (in seconds)\n");
-        sb.append("# Possible values: Any positive number\n");
-        sb.append("reaction_timeout = 15\n\n");
-    
-        // Spotify integration
-        sb.append("# ┌─────────────────────────────────────────────────┐\n");
-        sb.append("# │               SPOTIFY INTEGRATION               │\n");
-        sb.append("# └─────────────────────────────────────────────────┘\n\n");
-        
-        sb.append("# Enable Spotify integration\n");
-        sb.append("# Possible values: true, false\n");
-        sb.append("spotify_enabled = false\n\n");
-        
-        sb.append("# Spotify API Client ID (Get from https://developer.spotify.com/dashboard/)\n");
-        sb.append("# Required if spotify_enabled is true\n");
-        sb.append("spotify_client_id = \n\n");
-        
-        sb.append("# Spotify API Client Secret\n");
-        sb.append("# Required if spotify_enabled is true\n");
-        sb.append("spotify_client_secret = \n\n");
-    
-        // Logging settings
-        sb.append("# ┌─────────────────────────────────────────────────┐\n");
-        sb.append("# │               LOGGING SETTINGS                  │\n");
-        sb.append("# └─────────────────────────────────────────────────┘\n\n");
-        
-        sb.append("# Logging level\n");
-        sb.append("# Possible values:\n");
-        sb.append("#   clean - Only important messages (connect/disconnect, errors)\n");
-        sb.append("#   info  - General information (track loading, queue management)\n");
-        sb.append("#   debug - Detailed debugging information (API calls, data processing)\n");
-        sb.append("#   trace - Everything, including all internal library events\n");
-        sb.append("log_level = clean\n\n");
-        
-        sb.append("# Log to file\n");
-        sb.append("# Possible values: true, false\n");
-        sb.append("log_to_file = false\n\n");
-        
-        sb.append("# Log file path (relative or absolute)\n");
-        sb.append("# Only used if log_to_file is true\n");
-        sb.append("log_file = logs/musicbot.log\n\n");
-    
-        // Technical settings
-        sb.append("# ┌─────────────────────────────────────────────────┐\n");
-        sb.append("# │               TECHNICAL SETTINGS                │\n");
-        sb.append("# └─────────────────────────────────────────────────┘\n\n");
-        
-        sb.append("# Directory for caching downloaded media (relative or absolute path)\n");
-        sb.append("# Possible values: Any valid directory path\n");
-        sb.append("cache_dir = cache\n\n");
-        
-        sb.append("# Internal data storage (DO NOT EDIT MANUALLY)\n");
-        sb.append("last_spotify_url = \n\n");
-        
-        sb.append("# ═══════════════════════════════════════════════════\n");
-        sb.append("# End of Configuration\n");
-        sb.append("# ═══════════════════════════════════════════════════\n");
-        
-        try (FileWriter writer = new FileWriter(configFile)) {
-            writer.write(sb.toString());
-            writer.flush();
-            configInitialized = true;
-            
-            // Load the properties from the newly created file
-            try (FileInputStream fis = new FileInputStream(configFile)) {
-                properties.load(fis);
-            }
-            
-            System.out.println("Default configuration created successfully.");
-        } catch (IOException e) {
-            System.err.println("Error creating default config: " + e.getMessage());
-        }
-    }
-
-    // Safely save the config file
-    private void saveConfig() {
-    try {
-        // If this is from a newly created default config, just update properties
-        // without overwriting the nice formatting
-        if (configInitialized) {
-            // Write to a temporary file first
-            File tempFile = new File("config.tmp");
-            try (FileWriter writer = new FileWriter(tempFile)) {
-                // Read the original file to preserve formatting
-                List<String> lines = Files.readAllLines(configFile.toPath());
-                boolean modified = false;
-                
-                for (String line : lines) {
-                    // Check if line has a property
-                    int equalPos = line.indexOf('=');
-                    if (equalPos > 0 && !line.trim().startsWith("#")) {
-                        String key = line.substring(0, equalPos).trim();
-                        // Replace with new value if it exists
-                        if (properties.containsKey(key)) {
-                            String value = properties.getProperty(key);
-                            line = key + " = " + value;
-                            modified = true;
-                        }
-                    }
-                    writer.write(line + "\n");
-                }
-                
-                // If no modifications were made (maybe property not found), 
-                // add missing properties at the end
-                if (!modified) {
-                    writer.write("\n# Additional properties\n");
-                    for (String key : properties.stringPropertyNames()) {
-                        writer.write(key + " = " + properties.getProperty(key) + "\n");
-                    }
-                }
-            }
-            
-            // If successful, replace the main config file
-            Files.move(tempFile.toPath(), configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        } else {
-            // For a completely new config, we want to use the createDefaultConfig method
-            // which has all the nice formatting
-            createDefaultConfig();
-        }
-        System.out.println("Configuration saved successfully.");
-    } catch (IOException e) {
-        System.err.println("Error saving config: " + e.getMessage());
-    }
-}
-
-
-    // Public method to update a single property
-    public void setProperty(String key, String value) {
-        if (value != null) {
-            properties.setProperty(key, value);
-            saveConfig();
-        }
-    }
-
-    public void setLastUserQuery(String query) {
-        if (query != null) {
-            properties.setProperty("last_user_query", query);
-            saveConfig();
-        }
-    }
-    
-    /**
-     * Gets the last user query
-     */
-    public String getLastUserQuery() {
-        return properties.getProperty("last_user_query", "");
-    }
-
-    // Standard getters
-    public String getToken() {
-        return properties.getProperty("token");
-    }
-
-    public String getOwner() {
-        return properties.getProperty("owner");
-    }
-
-    public String getPrefix() {
-        return properties.getProperty("prefix");
-    }
-
-    public String getBotStatus() {
-        return properties.getProperty("bot_status");
-    }
-
-    public String getNowPlayingFormat() {
-        return properties.getProperty("now_playing_format");
-    }
-    
-    public String getLogLevel() {
-        return properties.getProperty("log_level", LOG_LEVEL_CLEAN);
-    }
-    
-    public boolean isDebugLogging() {
-        String level = getLogLevel();
-        return level.equalsIgnoreCase(LOG_LEVEL_DEBUG) || level.equalsIgnoreCase(LOG_LEVEL_TRACE);
-    }
-    
-    public boolean isTraceLogging() {
-        return getLogLevel().equalsIgnoreCase(LOG_LEVEL_TRACE);
-    }
-    
-    public boolean isCleanLogging() {
-        return getLogLevel().equalsIgnoreCase(LOG_LEVEL_CLEAN);
-    }
-    
-    public boolean logToFile() {
-        return Boolean.parseBoolean(properties.getProperty("log_to_file", "false"));
-    }
-    
-    public String getLogFile() {
-        return properties.getProperty("log_file", "logs/musicbot.log");
-    }
-    
-    public String getCacheDir() {
-        return properties.getProperty("cache_dir", "cache");
-    }
-    
-    public String getEmbedColor() {
-        return properties.getProperty("embed_color", "#1DB954");
-    }
-    
-    public int getMaxVolume() {
-        try {
-            return Integer.parseInt(properties.getProperty("max_volume", "150"));
-        } catch (NumberFormatException e) {
-            return 150; // Default if parsing fails
-        }
-    }
-    
-    public int getDefaultVolume() {
-        try {
-            return Integer.parseInt(properties.getProperty("default_volume", "100"));
-        } catch (NumberFormatException e) {
-            return 100; // Default if parsing fails
-        }
-    }
-    
-    public int getMaxQueueDisplay() {
-        try {
-            return Integer.parseInt(properties.getProperty("max_queue_display", "10"));
-        } catch (NumberFormatException e) {
-            return 10; // Default if parsing fails
-        }
-    }
-    
-    public int getReactionTimeout() {
-        try {
-            return Integer.parseInt(properties.getProperty("reaction_timeout", "15"));
-        } catch (NumberFormatException e) {
-            return 15; // Default if parsing fails
-        }
-    }
-    
-    // Spotify-related methods
-    public boolean isSpotifyEnabled() {
-        return Boolean.parseBoolean(properties.getProperty("spotify_enabled", "false"));
-    }
-    
-    public String getSpotifyClientId() {
-        return properties.getProperty("spotify_client_id", "");
-    }
-    
-    public String getSpotifyClientSecret() {
-        return properties.getProperty("spotify_client_secret", "");
-    }
-    
-    public String getLastSpotifyUrl() {
-        return properties.getProperty("last_spotify_url", "");
-    }
-    
-    public void setLastSpotifyUrl(String url) {
-        if (url != null) {
-            properties.setProperty("last_spotify_url", url);
-            saveConfig();
-        }
-    }
-    
-    public void setSpotifyEnabled(boolean enabled) {
-        properties.setProperty("spotify_enabled", String.valueOf(enabled));
-        saveConfig();
-    }
-    
-    public void setSpotifyCredentials(String clientId, String clientSecret) {
-        if (clientId != null && clientSecret != null) {
-            properties.setProperty("spotify_client_id", clientId);
-            properties.setProperty("spotify_client_secret", clientSecret);
-            saveConfig();
-        }
-    }
+package com.example.musicbot;
+
+import java.io.*;
+import java.util.List;
+import java.util.Properties;
+import java.util.Scanner;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+public class BotConfig {
+    private final Properties properties = new Properties();
+    private final File configFile = new File("config.txt");
+    private boolean configInitialized = false;
+
+    // Logging levels
+    public static final String LOG_LEVEL_CLEAN = "clean";     // Only important messages
+    public static final String LOG_LEVEL_INFO = "info";       // General information
+    public static final String LOG_LEVEL_DEBUG = "debug";     // Detailed debugging info
+    public static final String LOG_LEVEL_TRACE = "trace";     // Everything, including lavaplayer internals
+
+    public BotConfig() {
+        load();
+    }
+
+    
+
+    private void load() {
+        if (configFile.exists() && configFile.length() < 10_000_000) { // Max 10MB to prevent corrupt files
+            try (FileInputStream fis = new FileInputStream(configFile)) {
+                properties.load(fis);
+                configInitialized = true;
+                System.out.println("Config loaded successfully.");
+            } catch (IOException e) {
+                System.err.println("Error loading config: " + e.getMessage());
+                createDefaultConfig();
+            }
+        } else {
+            if (configFile.exists() && configFile.length() >= 10_000_000) {
+                // File exists but is too large - likely corrupted
+                System.err.println("Config file is too large (" + (configFile.length() / 1024 / 1024) + "MB). Creating backup and new config.");
+                try {
+                    File backupFile = new File("config_backup_" + System.currentTimeMillis() + ".txt");
+                    Files.copy(configFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    configFile.delete();
+                } catch (IOException e) {
+                    System.err.println("Error creating backup: " + e.getMessage());
+                }
+            }
+            createDefaultConfig();
+        }
+        
+        // Set defaults for properties that don't exist
+        if (properties.getProperty("prefix") == null)
+            properties.setProperty("prefix", "!");
+        if (properties.getProperty("bot_status") == null)
+            properties.setProperty("bot_status", "Music Bot");
+        if (properties.getProperty("now_playing_format") == null)
+            properties.setProperty("now_playing_format", "Now Playing: %s");
+        if (properties.getProperty("log_level") == null)
+            properties.setProperty("log_level", LOG_LEVEL_CLEAN);
+        if (properties.getProperty("cache_dir") == null)
+            properties.setProperty("cache_dir", "cache");
+        if (properties.getProperty("embed_color") == null)
+            properties.setProperty("embed_color", "#1DB954");
+        if (properties.getProperty("max_volume") == null)
+            properties.setProperty("max_volume", "150");
+        if (properties.getProperty("default_volume") == null)
+            properties.setProperty("default_volume", "100");
+        if (properties.getProperty("max_queue_display") == null)
+            properties.setProperty("max_queue_display", "10");
+        if (properties.getProperty("reaction_timeout") == null)
+            properties.setProperty("reaction_timeout", "15");
+        if (properties.getProperty("log_to_file") == null)
+            properties.setProperty("log_to_file", "false");
+        if (properties.getProperty("log_file") == null)
+            properties.setProperty("log_file", "logs/musicbot.log");
+        if (properties.getProperty("spotify_enabled") == null)
+            properties.setProperty("spotify_enabled", "false");
+        if (properties.getProperty("spotify_client_id") == null)
+            properties.setProperty("spotify_client_id", "");
+        if (properties.getProperty("spotify_client_secret") == null)
+            properties.setProperty("spotify_client_secret", "");
+        if (properties.getProperty("spotify_max_tracks") == null)
+            properties.setProperty("spotify_max_tracks", "500");
+        if (properties.getProperty("spotify_search_concurrency") == null)
+            properties.setProperty("spotify_search_concurrency", "4");
+        if (properties.getProperty("spotify_search_interval_ms") == null)
+            properties.setProperty("spotify_search_interval_ms", "100");
+        if (properties.getProperty("spotify_lazy_resolve") == null)
+            properties.setProperty("spotify_lazy_resolve", "true");
+        if (properties.getProperty("spotify_resolve_ahead") == null)
+            properties.setProperty("spotify_resolve_ahead", "3");
+        if (properties.getProperty("spotify_match_ttl_days") == null)
+            properties.setProperty("spotify_match_ttl_days", "30");
+        if (properties.getProperty("last_spotify_url") == null)
+            properties.setProperty("last_spotify_url", "");
+        if (properties.getProperty("cache_max_size_mb") == null)
+            properties.setProperty("cache_max_size_mb", "1000");
+        if (properties.getProperty("cache_max_entry_mb") == null)
+            properties.setProperty("cache_max_entry_mb", "100");
+        if (properties.getProperty("temp_ttl_minutes") == null)
+            properties.setProperty("temp_ttl_minutes", "30");
+        if (properties.getProperty("search_cache_ttl_minutes") == null)
+            properties.setProperty("search_cache_ttl_minutes", "720");
+        if (properties.getProperty("search_cache_max_entries") == null)
+            properties.setProperty("search_cache_max_entries", "5000");
+        if (properties.getProperty("stream_start_kb") == null)
+            properties.setProperty("stream_start_kb", "256");
+        if (properties.getProperty("pipe_temp_plays") == null)
+            properties.setProperty("pipe_temp_plays", "true");
+        if (properties.getProperty("pipe_buffer_kb") == null)
+            properties.setProperty("pipe_buffer_kb", "1024");
+        if (properties.getProperty("speculative_downloads") == null)
+            properties.setProperty("speculative_downloads", "true");
+        if (properties.getProperty("download_concurrency") == null)
+            properties.setProperty("download_concurrency", "2");
+        if (properties.getProperty("ytdlp_workers") == null)
+            properties.setProperty("ytdlp_workers", "2");
+        if (properties.getProperty("ytdlp_worker_max_jobs") == null)
+            properties.setProperty("ytdlp_worker_max_jobs", "50");
+        if (properties.getProperty("ytdlp_python") == null)
+            properties.setProperty("ytdlp_python", "python3");
+        if (properties.getProperty("prefetch_depth") == null)
+            properties.setProperty("prefetch_depth", "2");
+        if (properties.getProperty("cache_format") == null)
+            properties.setProperty("cache_format", "original");
+        if (properties.getProperty("cache_bitrate_kbps") == null)
+            properties.setProperty("cache_bitrate_kbps", "128");
+        if (properties.getProperty("transcode_threads") == null)
+            properties.setProperty("transcode_threads", "0");
+        if (properties.getProperty("transcode_nice") == null)
+            properties.setProperty("transcode_nice", "10");
+        if (properties.getProperty("loudness_normalization") == null)
+            properties.setProperty("loudness_normalization", "true");
+        if (properties.getProperty("loudness_target_lufs") == null)
+            properties.setProperty("loudness_target_lufs", "-14");
+        if (properties.getProperty("progress_update_interval_ms") == null)
+            properties.setProperty("progress_update_interval_ms", "2000");
+        if (properties.getProperty("negative_cache_ttl_seconds") == null)
+            properties.setProperty("negative_cache_ttl_seconds", "120");
+        if (properties.getProperty("circuit_breaker_threshold_percent") == null)
+            properties.setProperty("circuit_breaker_threshold_percent", "50");
+        if (properties.getProperty("circuit_breaker_cooldown_seconds") == null)
+            properties.setProperty("circuit_breaker_cooldown_seconds", "60");
+        if (properties.getProperty("metrics_port") == null)
+            properties.setProperty("metrics_port", "0");
+        
+        // Interactive console for required values
+        Scanner scanner = new Scanner(System.in);
+        boolean tokenUpdated = false;
+        
+        if (properties.getProperty("token") == null || properties.getProperty("token").isEmpty() ||
+            properties.getProperty("token").equals("BOT_TOKEN_HERE")) {
+            System.out.print("Please enter your Discord bot token: ");
+            String token = scanner.nextLine().trim();
+            if (!token.isEmpty()) {
+                properties.setProperty("token", token);
+                tokenUpdated = true;
+            }
+        }
+        
+        if (properties.getProperty("owner") == null || properties.getProperty("owner").isEmpty()) {
+            System.out.print("Please enter your Discord owner ID: ");
+            String owner = scanner.nextLine().trim();
+            if (!owner.isEmpty()) {
+                properties.setProperty("owner", owner);
+                tokenUpdated = true;
+            }
+        }
+        
+        // Only save if we've updated critical values or the config was just created
+        if (tokenUpdated || !configInitialized) {
+            saveConfig();
+        }
+    }
+
+    private void createDefaultConfig() {
+        System.out.println("Creating default configuration file...");
+        
+        StringBuilder sb = new StringBuilder();
+        
+        // ASCII Art Header
+        sb.append("╭━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━╮\n");
+        sb.append("│                                                  │\n");
+        sb.append("│   ███╗   ███╗██╗   ██╗███████╗██╗ ██████╗       │\n");
+        sb.append("│   ████╗ ████║██║   ██║██╔════╝██║██╔════╝       │\n");
+        sb.append("│   ██╔████╔██║██║   ██║███████╗██║██║            │\n");
+        sb.append("│   ██║╚██╔╝██║██║   ██║╚════██║██║██║            │\n");
+        sb.append("│   ██║ ╚═╝ ██║╚██████╔╝███████║██║╚██████╗       │\n");
+        sb.append("│   ╚═╝     ╚═╝ ╚═════╝ ╚══════╝╚═╝ ╚═════╝       │\n");
+        sb.append("│                                                  │\n");
+        sb.append("│   ██████╗  ██████╗ ████████╗                    │\n");
+        sb.append("│   ██╔══██╗██╔═══██╗╚══██╔══╝                    │\n");
+        sb.append("│   ██████╔╝██║   ██║   ██║                       │\n");
+        sb.append("│   ██╔══██╗██║   ██║   ██║                       │\n");
+        sb.append("│   ██████╔╝╚██████╔╝   ██║                       │\n");
+        sb.append("│   ╚═════╝  ╚═════╝    ╚═╝                       │\n");
+        sb.append("│                                                  │\n");
+        sb.append("╰━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━╯\n\n");
+        
+        // Config file header
+        sb.append("# ═══════════════════════════════════════════════════\n");
+        sb.append("# Discord Music Bot Configuration File\n");
+        sb.append("# ═══════════════════════════════════════════════════\n\n");
+    
+        // Required settings
+        sb.append("# ┌─────────────────────────────────────────────────┐\n");
+        sb.append("# │               REQUIRED SETTINGS                 │\n");
+        sb.append("# └─────────────────────────────────────────────────┘\n\n");
+        
+        sb.append("# Discord Bot Token (Get from https://discord.com/developers/applications)\n");
+        sb.append("# REQUIRED: Your bot won't work without this!\n");
+        sb.append("token = BOT_TOKEN_HERE\n\n");
+        
+        sb.append("# Discord Owner ID (Your user ID, right-click your name and Copy ID)\n");
+        sb.append("# REQUIRED: Used for admin commands and startup notification\n");
+        sb.append("owner = \n\n");
+    
+        // General settings
+        sb.append("# ┌─────────────────────────────────────────────────┐\n");
+        sb.append("# │               GENERAL SETTINGS                  │\n");
+        sb.append("# └─────────────────────────────────────────────────┘\n\n");
+        
+        sb.append("# Command prefix for text commands (e.g., !play, !skip)\n");
+        sb.append("# Possible values: Any character or string (!, ?, ., -, $, etc.)\n");
+        sb.append("prefix = !\n\n");
+        
+        sb.append("# Bot status message (shown in Discord member list)\n");
+        sb.append("# Possible values: Any text (e.g., \"Playing music\", \"Type !help\")\n");
+        sb.append("bot_status = 🎵 Music Bot | !help\n\n");
+        
+        sb.append("# Now playing format (use %s to insert the track title)\n");
+        sb.append("# Possible values: Any text with %s as placeholder for the song title\n");
+        sb.append("now_playing_format = Now Playing: %s\n\n");
+        
+        sb.append("# Embed color for messages (Hex color code)\n");
+        sb.append("# Possible values: Any hex color code (#RRGGBB format)\n");
+        sb.append("embed_color = #1DB954\n\n");
+    
+        // Audio settings
+        sb.append("# ┌─────────────────────────────────────────────────┐\n");
+        sb.append("# │               AUDIO SETTINGS                    │\n");
+        sb.append("# └─────────────────────────────────────────────────┘\n\n");
+        
+        sb.append("# Maximum volume level\n");
+        sb.append("# Possible values: 1-1000 (recommended: 100-200)\n");
+        sb.append("max_volume = 150\n\n");
+        
+        sb.append("# Default volume level when bot joins\n");
+        sb.append("# Possible values: 1-max_volume\n");
+        sb.append("default_volume = 100\n\n");
+        
+        sb.append("# Maximum number of tracks to display in queue command\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("max_queue_display = 10\n\n");
+        
+        sb.append("# Timeout for reaction-based choices (in seconds)\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("reaction_timeout = 15\n\n");
+    
+        // Spotify integration
+        sb.append("# ┌─────────────────────────────────────────────────┐\n");
+        sb.append("# │               SPOTIFY INTEGRATION               │\n");
+        sb.append("# └─────────────────────────────────────────────────┘\n\n");
+        
+        sb.append("# Enable Spotify integration\n");
+        sb.append("# Possible values: true, false\n");
+        sb.append("spotify_enabled = false\n\n");
+        
+        sb.append("# Spotify API Client ID (Get from https://developer.spotify.com/dashboard/)\n");
+        sb.append("# Required for albums and playlists; without it tracks are looked up from their web page\n");
+        sb.append("spotify_client_id = \n\n");
+        
+        sb.append("# Spotify API Client Secret\n");
+        sb.append("# Required if spotify_enabled is true\n");
+        sb.append("spotify_client_secret = \n\n");
+        
+        sb.append("# Most tracks queued from one Spotify album or playlist\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("spotify_max_tracks = 500\n\n");
+        
+        sb.append("# YouTube searches for Spotify tracks running at once, over all imports\n");
+        sb.append("# Possible values: Any positive number, e.g. 2-8\n");
+        sb.append("spotify_search_concurrency = 4\n\n");
+        
+        sb.append("# Minimum time between the starts of two YouTube searches for Spotify tracks, in milliseconds\n");
+        sb.append("# Grows on its own when YouTube rate limits the searches\n");
+        sb.append("# Possible values: 0 or any positive number\n");
+        sb.append("spotify_search_interval_ms = 100\n\n");
+        
+        sb.append("# Queue Spotify albums and playlists right away and search each track shortly before it plays\n");
+        sb.append("# Possible values: true, false (search every track while importing)\n");
+        sb.append("spotify_lazy_resolve = true\n\n");
+        
+        sb.append("# How many queue positions ahead Spotify tracks are searched when spotify_lazy_resolve is on\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("spotify_resolve_ahead = 3\n\n");
+        
+        sb.append("# How long the YouTube video found for a Spotify track is remembered, in days\n");
+        sb.append("# Uncertain matches are searched again after a quarter of this\n");
+        sb.append("# Possible values: 0 to disable, or any positive number\n");
+        sb.append("spotify_match_ttl_days = 30\n\n");
+    
+        // Logging settings
+        sb.append("# ┌─────────────────────────────────────────────────┐\n");
+        sb.append("# │               LOGGING SETTINGS                  │\n");
+        sb.append("# └─────────────────────────────────────────────────┘\n\n");
+        
+        sb.append("# Logging level\n");
+        sb.append("# Possible values:\n");
+        sb.append("#   clean - Only important messages (connect/disconnect, errors)\n");
+        sb.append("#   info  - General information (track loading, queue management)\n");
+        sb.append("#   debug - Detailed debugging information (API calls, data processing)\n");
+        sb.append("#   trace - Everything, including all internal library events\n");
+        sb.append("log_level = clean\n\n");
+        
+        sb.append("# Log to file\n");
+        sb.append("# Possible values: true, false\n");
+        sb.append("log_to_file = false\n\n");
+        
+        sb.append("# Log file path (relative or absolute)\n");
+        sb.append("# Only used if log_to_file is true\n");
+        sb.append("log_file = logs/musicbot.log\n\n");
+    
+        // Technical settings
+        sb.append("# ┌─────────────────────────────────────────────────┐\n");
+        sb.append("# │               TECHNICAL SETTINGS                │\n");
+        sb.append("# └─────────────────────────────────────────────────┘\n\n");
+        
+        sb.append("# Directory for caching downloaded media (relative or absolute path)\n");
+        sb.append("# Possible values: Any valid directory path\n");
+        sb.append("cache_dir = cache\n\n");
+        
+        sb.append("# Maximum total size of the cache in megabytes (least recently played tracks are evicted)\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("cache_max_size_mb = 1000\n\n");
+        
+        sb.append("# Largest single track that will be kept in the cache, in megabytes\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("cache_max_entry_mb = 100\n\n");
+        
+        sb.append("# How long \"Just this time\" downloads are kept for reuse after they were last played, in minutes\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("temp_ttl_minutes = 30\n\n");
+        
+        sb.append("# How long YouTube/SoundCloud search results are remembered, in minutes\n");
+        sb.append("# Possible values: 0 to disable, or any positive number\n");
+        sb.append("search_cache_ttl_minutes = 720\n\n");
+        
+        sb.append("# Maximum number of remembered searches (least recently used are dropped first)\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("search_cache_max_entries = 5000\n\n");
+        
+        sb.append("# Start playing a YouTube download once this much of it has arrived, in KB\n");
+        sb.append("# Possible values: 0 to wait for the whole download, or any positive number\n");
+        sb.append("stream_start_kb = 256\n\n");
+        
+        sb.append("# Play \"Just this time\" YouTube tracks straight from yt-dlp without writing them to disk\n");
+        sb.append("# (not when a speculative download was started, that download is played instead)\n");
+        sb.append("# Possible values: true, false\n");
+        sb.append("pipe_temp_plays = true\n\n");
+        
+        sb.append("# Audio read ahead from yt-dlp and kept in memory for those plays, in KB\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("pipe_buffer_kb = 1024\n\n");
+        
+        sb.append("# Start downloading a YouTube link while the \"Save for later\" question is still open\n");
+        sb.append("# Possible values: true, false\n");
+        sb.append("speculative_downloads = true\n\n");
+        
+        sb.append("# Number of YouTube downloads that run at the same time, across all servers\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("download_concurrency = 2\n\n");
+        
+        sb.append("# Number of yt-dlp processes kept running between downloads, saving the startup time of each download\n");
+        sb.append("# Possible values: 0 to start yt-dlp for every download, or any positive number\n");
+        sb.append("ytdlp_workers = 2\n\n");
+        
+        sb.append("# Downloads after which a yt-dlp process is replaced by a fresh one\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("ytdlp_worker_max_jobs = 50\n\n");
+        
+        sb.append("# Python used to run the yt-dlp processes, needs the yt_dlp module (pip install yt-dlp)\n");
+        sb.append("# Possible values: python3, or the full path to a Python executable\n");
+        sb.append("ytdlp_python = python3\n\n");
+        
+        sb.append("# Number of queued YouTube tracks downloaded in the background before they come up\n");
+        sb.append("# Possible values: 0 to disable, or any positive number\n");
+        sb.append("prefetch_depth = 2\n\n");
+        
+        sb.append("# Format cached tracks are converted to in the background while the bot is idle\n");
+        sb.append("# Possible values: original (keep downloads as they are), opus, mp3\n");
+        sb.append("cache_format = original\n\n");
+        
+        sb.append("# Bitrate of converted cache files in kbit/s, changing it converts the cache again\n");
+        sb.append("# Possible values: Any positive number, e.g. 96, 128, 192\n");
+        sb.append("cache_bitrate_kbps = 128\n\n");
+        
+        sb.append("# CPU threads all ffmpeg runs (re-encoding, loudness analysis) may use together\n");
+        sb.append("# Possible values: 0 for half the CPU cores, or any positive number\n");
+        sb.append("transcode_threads = 0\n\n");
+        
+        sb.append("# How much lower ffmpeg's CPU priority is than the bot's, so playback never stutters\n");
+        sb.append("# Possible values: 0 to run at normal priority, up to 19 (ignored on Windows)\n");
+        sb.append("transcode_nice = 10\n\n");
+        
+        sb.append("# Level cached tracks to the same loudness, measured once when they are downloaded\n");
+        sb.append("# Possible values: true, false\n");
+        sb.append("loudness_normalization = true\n\n");
+        
+        sb.append("# Loudness tracks are leveled to, in LUFS (EBU R128)\n");
+        sb.append("# Possible values: Any negative number, e.g. -14 (streaming services) or -23 (broadcast)\n");
+        sb.append("loudness_target_lufs = -14\n\n");
+        
+        sb.append("# Minimum time between two edits of a progress message (downloads, Spotify imports), in milliseconds\n");
+        sb.append("# Possible values: Any positive number, Discord rate limits edits below about 1000\n");
+        sb.append("progress_update_interval_ms = 2000\n\n");
+        
+        sb.append("# How long searches and links that found nothing or failed are remembered, in seconds\n");
+        sb.append("# Possible values: 0 to disable, or any positive number\n");
+        sb.append("negative_cache_ttl_seconds = 120\n\n");
+        
+        sb.append("# Error rate of recent requests at which a source (YouTube, SoundCloud, yt-dlp) is skipped\n");
+        sb.append("# Possible values: 1-100\n");
+        sb.append("circuit_breaker_threshold_percent = 50\n\n");
+        
+        sb.append("# How long a failing source is skipped before it is tried again, in seconds\n");
+        sb.append("# Possible values: Any positive number\n");
+        sb.append("circuit_breaker_cooldown_seconds = 60\n\n");
+        
+        sb.append("# Port for the plain-text metrics endpoint (http://host:port/metrics)\n");
+        sb.append("# Possible values: 0 to disable, or any free port\n");
+        sb.append("metrics_port = 0\n\n");
+        
+        sb.append("# Internal data storage (DO NOT EDIT MANUALLY)\n");
+        sb.append("last_spotify_url = \n\n");
+        
+        sb.append("# ═══════════════════════════════════════════════════\n");
+        sb.append("# End of Configuration\n");
+        sb.append("# ═══════════════════════════════════════════════════\n");
+        
+        try (FileWriter writer = new FileWriter(configFile)) {
+            writer.write(sb.toString());
+            writer.flush();
+            configInitialized = true;
+            
+            // Load the properties from the newly created file
+            try (FileInputStream fis = new FileInputStream(configFile)) {
+                properties.load(fis);
+            }
+            
+            System.out.println("Default configuration created successfully.");
+        } catch (IOException e) {
+            System.err.println("Error creating default config: " + e.getMessage());
+        }
+    }
+
+    // Safely save the config file
+    private void saveConfig() {
+    try {
+        // If this is from a newly created default config, just update properties
+        // without overwriting the nice formatting
+        if (configInitialized) {
+            // Write to a temporary file first
+            File tempFile = new File("config.tmp");
+            try (FileWriter writer = new FileWriter(tempFile)) {
+                // Read the original file to preserve formatting
+                List<String> lines = Files.readAllLines(configFile.toPath());
+                boolean modified = false;
+                
+                for (String line : lines) {
+                    // Check if line has a property
+                    int equalPos = line.indexOf('=');
+                    if (equalPos > 0 && !line.trim().startsWith("#")) {
+                        String key = line.substring(0, equalPos).trim();
+                        // Replace with new value if it exists
+                        if (properties.containsKey(key)) {
+                            String value = properties.getProperty(key);
+                            line = key + " = " + value;
+                            modified = true;
+                        }
+                    }
+                    writer.write(line + "\n");
+                }
+                
+                // If no modifications were made (maybe property not found), 
+                // add missing properties at the end
+                if (!modified) {
+                    writer.write("\n# Additional properties\n");
+                    for (String key : properties.stringPropertyNames()) {
+                        writer.write(key + " = " + properties.getProperty(key) + "\n");
+                    }
+                }
+            }
+            
+            // If successful, replace the main config file
+            Files.move(tempFile.toPath(), configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            // For a completely new config, we want to use the createDefaultConfig method
+            // which has all the nice formatting
+            createDefaultConfig();
+        }
+        System.out.println("Configuration saved successfully.");
+    } catch (IOException e) {
+        System.err.println("Error saving config: " + e.getMessage());
+    }
+}
+
+
+    // Public method to update a single property
+    public void setProperty(String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+            saveConfig();
+        }
+    }
+
+    public void setLastUserQuery(String query) {
+        if (query != null) {
+            properties.setProperty("last_user_query", query);
+            saveConfig();
+        }
+    }
+    
+    /**
+     * Gets the last user query
+     */
+    public String getLastUserQuery() {
+        return properties.getProperty("last_user_query", "");
+    }
+
+    // Standard getters
+    public String getToken() {
+        return properties.getProperty("token");
+    }
+
+    public String getOwner() {
+        return properties.getProperty("owner");
+    }
+
+    public String getPrefix() {
+        return properties.getProperty("prefix");
+    }
+
+    public String getBotStatus() {
+        return properties.getProperty("bot_status");
+    }
+
+    public String getNowPlayingFormat() {
+        return properties.getProperty("now_playing_format");
+    }
+    
+    public String getLogLevel() {
+        return properties.getProperty("log_level", LOG_LEVEL_CLEAN);
+    }
+    
+    public boolean isDebugLogging() {
+        String level = getLogLevel();
+        return level.equalsIgnoreCase(LOG_LEVEL_DEBUG) || level.equalsIgnoreCase(LOG_LEVEL_TRACE);
+    }
+    
+    public boolean isTraceLogging() {
+        return getLogLevel().equalsIgnoreCase(LOG_LEVEL_TRACE);
+    }
+    
+    public boolean isCleanLogging() {
+        return getLogLevel().equalsIgnoreCase(LOG_LEVEL_CLEAN);
+    }
+    
+    public boolean logToFile() {
+        return Boolean.parseBoolean(properties.getProperty("log_to_file", "false"));
+    }
+    
+    public String getLogFile() {
+        return properties.getProperty("log_file", "logs/musicbot.log");
+    }
+    
+    public String getCacheDir() {
+        return properties.getProperty("cache_dir", "cache");
+    }
+    
+    public long getCacheMaxSizeBytes() {
+        try {
+            return Long.parseLong(properties.getProperty("cache_max_size_mb", "1000")) * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            return 1000L * 1024 * 1024; // Default if parsing fails
+        }
+    }
+    
+    public long getCacheMaxEntryBytes() {
+        try {
+            return Long.parseLong(properties.getProperty("cache_max_entry_mb", "100")) * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            return 100L * 1024 * 1024; // Default if parsing fails
+        }
+    }
+    
+    public long getTempTtlMillis() {
+        try {
+            return Long.parseLong(properties.getProperty("temp_ttl_minutes", "30")) * 60 * 1000;
+        } catch (NumberFormatException e) {
+            return 30L * 60 * 1000; // Default if parsing fails
+        }
+    }
+    
+    public long getSearchCacheTtlMillis() {
+        try {
+            return Long.parseLong(properties.getProperty("search_cache_ttl_minutes", "720")) * 60 * 1000;
+        } catch (NumberFormatException e) {
+            return 720L * 60 * 1000; // Default if parsing fails
+        }
+    }
+    
+    public int getSearchCacheMaxEntries() {
+        try {
+            return Integer.parseInt(properties.getProperty("search_cache_max_entries", "5000"));
+        } catch (NumberFormatException e) {
+            return 5000; // Default if parsing fails
+        }
+    }
+    
+    public long getStreamStartBytes() {
+        try {
+            return Long.parseLong(properties.getProperty("stream_start_kb", "256")) * 1024;
+        } catch (NumberFormatException e) {
+            return 256L * 1024; // Default if parsing fails
+        }
+    }
+    
+    public boolean isPipeTempPlays() {
+        return Boolean.parseBoolean(properties.getProperty("pipe_temp_plays", "true"));
+    }
+    
+    public int getPipeBufferBytes() {
+        try {
+            return Math.max(64, Integer.parseInt(properties.getProperty("pipe_buffer_kb", "1024"))) * 1024;
+        } catch (NumberFormatException e) {
+            return 1024 * 1024; // Default if parsing fails
+        }
+    }
+    
+    public boolean isSpeculativeDownloads() {
+        return Boolean.parseBoolean(properties.getProperty("speculative_downloads", "true"));
+    }
+    
+    public int getDownloadConcurrency() {
+        try {
+            return Math.max(1, Integer.parseInt(properties.getProperty("download_concurrency", "2")));
+        } catch (NumberFormatException e) {
+            return 2; // Default if parsing fails
+        }
+    }
+    
+    public int getYtDlpWorkers() {
+        try {
+            return Math.max(0, Integer.parseInt(properties.getProperty("ytdlp_workers", "2")));
+        } catch (NumberFormatException e) {
+            return 2; // Default if parsing fails
+        }
+    }
+    
+    public int getYtDlpWorkerMaxJobs() {
+        try {
+            return Math.max(1, Integer.parseInt(properties.getProperty("ytdlp_worker_max_jobs", "50")));
+        } catch (NumberFormatException e) {
+            return 50; // Default if parsing fails
+        }
+    }
+    
+    public String getYtDlpPython() {
+        return properties.getProperty("ytdlp_python", "python3");
+    }
+    
+    public int getPrefetchDepth() {
+        try {
+            return Math.max(0, Integer.parseInt(properties.getProperty("prefetch_depth", "2")));
+        } catch (NumberFormatException e) {
+            return 2; // Default if parsing fails
+        }
+    }
+    
+    public String getCacheFormat() {
+        String format = properties.getProperty("cache_format", "original").trim().toLowerCase();
+        return format.equals("opus") || format.equals("mp3") ? format : "original";
+    }
+    
+    public int getCacheBitrateKbps() {
+        try {
+            return Math.max(8, Integer.parseInt(properties.getProperty("cache_bitrate_kbps", "128")));
+        } catch (NumberFormatException e) {
+            return 128; // Default if parsing fails
+        }
+    }
+    
+    public int getTranscodeThreads() {
+        int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        try {
+            int threads = Integer.parseInt(properties.getProperty("transcode_threads", "0"));
+            return threads > 0 ? threads : defaultThreads;
+        } catch (NumberFormatException e) {
+            return defaultThreads; // Default if parsing fails
+        }
+    }
+    
+    public int getTranscodeNice() {
+        try {
+            return Math.max(0, Math.min(19, Integer.parseInt(properties.getProperty("transcode_nice", "10"))));
+        } catch (NumberFormatException e) {
+            return 10; // Default if parsing fails
+        }
+    }
+    
+    public boolean isLoudnessNormalization() {
+        return Boolean.parseBoolean(properties.getProperty("loudness_normalization", "true"));
+    }
+    
+    public double getLoudnessTargetLufs() {
+        try {
+            return Math.min(0, Double.parseDouble(properties.getProperty("loudness_target_lufs", "-14")));
+        } catch (NumberFormatException e) {
+            return -14; // Default if parsing fails
+        }
+    }
+    
+    public long getProgressUpdateIntervalMillis() {
+        try {
+            return Math.max(0, Long.parseLong(properties.getProperty("progress_update_interval_ms", "2000")));
+        } catch (NumberFormatException e) {
+            return 2000; // Default if parsing fails
+        }
+    }
+    
+    public long getNegativeCacheTtlMillis() {
+        try {
+            return Long.parseLong(properties.getProperty("negative_cache_ttl_seconds", "120")) * 1000;
+        } catch (NumberFormatException e) {
+            return 120L * 1000; // Default if parsing fails
+        }
+    }
+    
+    public double getCircuitBreakerThreshold() {
+        try {
+            int percent = Integer.parseInt(properties.getProperty("circuit_breaker_threshold_percent", "50"));
+            return Math.max(1, Math.min(100, percent)) / 100.0;
+        } catch (NumberFormatException e) {
+            return 0.5; // Default if parsing fails
+        }
+    }
+    
+    public long getCircuitBreakerCooldownMillis() {
+        try {
+            return Long.parseLong(properties.getProperty("circuit_breaker_cooldown_seconds", "60")) * 1000;
+        } catch (NumberFormatException e) {
+            return 60L * 1000; // Default if parsing fails
+        }
+    }
+    
+    public int getMetricsPort() {
+        try {
+            return Integer.parseInt(properties.getProperty("metrics_port", "0"));
+        } catch (NumberFormatException e) {
+            return 0; // Default if parsing fails
+        }
+    }
+    
+    public String getEmbedColor() {
+        return properties.getProperty("embed_color", "#1DB954");
+    }
+    
+    public int getMaxVolume() {
+        try {
+            return Integer.parseInt(properties.getProperty("max_volume", "150"));
+        } catch (NumberFormatException e) {
+            return 150; // Default if parsing fails
+        }
+    }
+    
+    public int getDefaultVolume() {
+        try {
+            return Integer.parseInt(properties.getProperty("default_volume", "100"));
+        } catch (NumberFormatException e) {
+            return 100; // Default if parsing fails
+        }
+    }
+    
+    public int getMaxQueueDisplay() {
+        try {
+            return Integer.parseInt(properties.getProperty("max_queue_display", "10"));
+        } catch (NumberFormatException e) {
+            return 10; // Default if parsing fails
+        }
+    }
+    
+    public int getReactionTimeout() {
+        try {
+            return Integer.parseInt(properties.getProperty("reaction_timeout", "15"));
+        } catch (NumberFormatException e) {
+            return 15; // Default if parsing fails
+        }
+    }
+    
+    // Spotify-related methods
+    public boolean isSpotifyEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("spotify_enabled", "false"));
+    }
+    
+    public String getSpotifyClientId() {
+        return properties.getProperty("spotify_client_id", "");
+    }
+    
+    public String getSpotifyClientSecret() {
+        return properties.getProperty("spotify_client_secret", "");
+    }
+    
+    public int getSpotifyMaxTracks() {
+        try {
+            return Math.max(1, Integer.parseInt(properties.getProperty("spotify_max_tracks", "500")));
+        } catch (NumberFormatException e) {
+            return 500; // Default if parsing fails
+        }
+    }
+    
+    public int getSpotifySearchConcurrency() {
+        try {
+            return Math.max(1, Integer.parseInt(properties.getProperty("spotify_search_concurrency", "4")));
+        } catch (NumberFormatException e) {
+            return 4; // Default if parsing fails
+        }
+    }
+    
+    public long getSpotifySearchIntervalMillis() {
+        try {
+            return Math.max(0, Long.parseLong(properties.getProperty("spotify_search_interval_ms", "100")));
+        } catch (NumberFormatException e) {
+            return 100; // Default if parsing fails
+        }
+    }
+    
+    public boolean isSpotifyLazyResolve() {
+        return Boolean.parseBoolean(properties.getProperty("spotify_lazy_resolve", "true"));
+    }
+    
+    public int getSpotifyResolveAhead() {
+        try {
+            return Math.max(1, Integer.parseInt(properties.getProperty("spotify_resolve_ahead", "3")));
+        } catch (NumberFormatException e) {
+            return 3; // Default if parsing fails
+        }
+    }
+    
+    public long getSpotifyMatchTtlMillis() {
+        try {
+            return Long.parseLong(properties.getProperty("spotify_match_ttl_days", "30")) * 24 * 60 * 60 * 1000;
+        } catch (NumberFormatException e) {
+            return 30L * 24 * 60 * 60 * 1000; // Default if parsing fails
+        }
+    }
+    
+    public String getLastSpotifyUrl() {
+        return properties.getProperty("last_spotify_url", "");
+    }
+    
+    public void setLastSpotifyUrl(String url) {
+        if (url != null) {
+            properties.setProperty("last_spotify_url", url);
+            saveConfig();
+        }
+    }
+    
+    public void setSpotifyEnabled(boolean enabled) {
+        properties.setProperty("spotify_enabled", String.valueOf(enabled));
+        saveConfig();
+    }
+    
+    public void setSpotifyCredentials(String clientId, String clientSecret) {
+        if (clientId != null && clientSecret != null) {
+            properties.setProperty("spotify_client_id", clientId);
+            properties.setProperty("spotify_client_secret", clientSecret);
+            saveConfig();
+        }
+    }
 }
\ No newline at end of file
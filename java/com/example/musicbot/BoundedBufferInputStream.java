@@ -0,0 +1,120 @@
+package com.example.musicbot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Reads ahead from a source stream (a process pipe) on its own thread into a fixed-size
+ * in-memory ring buffer. Short network stalls of the writer are absorbed by the buffer,
+ * and once it is full the reader thread stops, which in turn blocks the writer.
+ */
+public class BoundedBufferInputStream extends InputStream {
+    private final InputStream source;
+    private final byte[] buffer;
+    private final Thread filler;
+
+    // Guarded by this
+    private int readPosition;
+    private int count;
+    private boolean sourceEnded;
+    private IOException sourceError;
+    private boolean closed;
+
+    public BoundedBufferInputStream(InputStream source, int capacity, String threadName) {
+        this.source = source;
+        this.buffer = new byte[capacity];
+        this.filler = new Thread(this::fill, threadName);
+        filler.setDaemon(true);
+        filler.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] target, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+
+        try {
+            while (count == 0) {
+                if (closed) throw new IOException("Stream closed");
+                if (sourceError != null) throw sourceError;
+                if (sourceEnded) return -1;
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+
+        // Copy up to the end of the ring, the next call picks up the wrapped part
+        int chunk = Math.min(length, Math.min(count, buffer.length - readPosition));
+        System.arraycopy(buffer, readPosition, target, offset, chunk);
+        readPosition = (readPosition + chunk) % buffer.length;
+        count -= chunk;
+        notifyAll();
+        return chunk;
+    }
+
+    @Override
+    public synchronized int available() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        filler.interrupt();
+        source.close();
+    }
+
+    private void fill() {
+        byte[] chunk = new byte[Math.min(buffer.length, 64 * 1024)];
+
+        try {
+            while (true) {
+                int read = source.read(chunk);
+                if (read < 0) break;
+
+                int written = 0;
+                while (written < read) {
+                    synchronized (this) {
+                        // Backpressure: wait for the reader to make room
+                        while (count == buffer.length && !closed) {
+                            wait();
+                        }
+                        if (closed) return;
+
+                        int writePosition = (readPosition + count) % buffer.length;
+                        int space = Math.min(buffer.length - count, buffer.length - writePosition);
+                        int part = Math.min(space, read - written);
+                        System.arraycopy(chunk, written, buffer, writePosition, part);
+                        count += part;
+                        written += part;
+                        notifyAll();
+                    }
+                }
+            }
+
+            synchronized (this) {
+                sourceEnded = true;
+                notifyAll();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                sourceError = e;
+                notifyAll();
+            }
+        } catch (InterruptedException e) {
+            // Closed by the reader
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.musicbot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Converts the cache to the configured format (cache_format, cache_bitrate_kbps) in the
+ * background, so changing the format doesn't mean wiping the cache. Entries are converted a
+ * few at a time on the transcode service, only while the bot is idle, and each converted file
+ * replaces the original atomically in the index. Every entry records its format, so after a
+ * restart the migration simply continues with the entries that aren't converted yet.
+ */
+public class CacheMigrator {
+    private static final long CHECK_SECONDS = 30;
+    private static final long REPORT_MILLIS = 10 * 60 * 1000;
+
+    private final TrackCache trackCache;
+    private final ReEncoder reEncoder;
+    private final ReEncoder.Format target;
+    private final BooleanSupplier idle;
+    private final int parallelism;
+
+    // Entries being converted, and entries that failed to convert this run
+    private final Set<String> converting = ConcurrentHashMap.newKeySet();
+    private final Set<String> failedIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong converted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private volatile int remaining;
+    private volatile long lastReport;
+    private volatile boolean completeLogged;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Cache-Migrator");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param target format to convert the cache to, null to leave files as downloaded
+     * @param idle whether the bot has nothing better to do (nothing playing or downloading)
+     * @param parallelism conversions queued at once
+     */
+    public CacheMigrator(TrackCache trackCache, ReEncoder reEncoder, ReEncoder.Format target, BooleanSupplier idle,
+                         int parallelism) {
+        this.trackCache = trackCache;
+        this.reEncoder = reEncoder;
+        this.target = target;
+        this.idle = idle;
+        this.parallelism = Math.max(1, parallelism);
+
+        if (target != null) {
+            scheduler.scheduleWithFixedDelay(this::convertNext, CHECK_SECONDS, CHECK_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return target != null;
+    }
+
+    public String getTargetFormat() {
+        return target == null ? "" : target.getId();
+    }
+
+    public long getConverted() {
+        return converted.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Entries still in another format, as of the last check
+     */
+    public int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Bytes the conversions saved so far this run, negative if the files grew
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Exposes migration progress on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_cache_migration_remaining", this::getRemaining);
+        MetricsServer.register("musicbot_cache_migration_converted_total", converted::get);
+        MetricsServer.register("musicbot_cache_migration_failed_total", failed::get);
+        MetricsServer.register("musicbot_cache_migration_bytes_saved_total", bytesSaved::get);
+    }
+
+    private void convertNext() {
+        List<TrackCache.CacheEntry> pending = trackCache.entriesNotInFormat(target.getId());
+        pending.removeIf(entry -> failedIds.contains(entry.getVideoId()));
+        remaining = pending.size();
+
+        if (pending.isEmpty()) {
+            if (!completeLogged && converted.get() > 0) {
+                completeLogged = true;
+                BotLogger.info("Cache migration to " + target + " complete: " + converted.get() + " files converted, "
+                        + (bytesSaved.get() / (1024 * 1024)) + " MB saved, " + failed.get() + " failed");
+            }
+            return;
+        }
+        completeLogged = false;
+
+        // Conversions already queued finish, new ones wait until the bot is idle again
+        if (!idle.getAsBoolean()) return;
+
+        long now = System.currentTimeMillis();
+        if (now - lastReport >= REPORT_MILLIS) {
+            lastReport = now;
+            BotLogger.info("Cache migration to " + target + ": " + remaining + " files left, " + converted.get()
+                    + " converted, " + (bytesSaved.get() / (1024 * 1024)) + " MB saved");
+        }
+
+        for (TrackCache.CacheEntry entry : pending) {
+            if (converting.size() >= parallelism) break;
+            // Files that are playing are converted later
+            if (entry.isInUse() || !converting.add(entry.getVideoId())) continue;
+            convert(entry);
+        }
+    }
+
+    private void convert(TrackCache.CacheEntry entry) {
+        String videoId = entry.getVideoId();
+        File original = entry.getFile();
+        File output = trackCache.conversionFileFor(videoId);
+        long originalSize = entry.getSizeBytes();
+
+        // The check is a job of its own, so no transcode slot is held while it waits for one
+        CompletableFuture<Boolean> checked = reEncoder.reencode(original, output, target,
+                TranscodeService.Priority.BACKGROUND)
+                .thenCompose(result -> result.isSuccess()
+                        ? reEncoder.probe(output, TranscodeService.Priority.BACKGROUND)
+                        : CompletableFuture.completedFuture(false));
+        checked.whenComplete((valid, error) -> {
+            try {
+                if (error != null || !valid) {
+                    failed.incrementAndGet();
+                    failedIds.add(videoId);
+                    BotLogger.warn("Could not convert cached " + videoId + " to " + target
+                            + (error != null ? ": " + error.getMessage() : ""));
+                    return;
+                }
+
+                long convertedSize = output.length();
+                if (trackCache.replaceFile(videoId, original, output, target.getId(), target.getExtension())) {
+                    converted.incrementAndGet();
+                    bytesSaved.addAndGet(originalSize - convertedSize);
+                }
+            } catch (IOException e) {
+                failed.incrementAndGet();
+                failedIds.add(videoId);
+                BotLogger.warn("Could not replace cached " + videoId + " with its converted copy: " + e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(output.toPath());
+                } catch (IOException e) {
+                    BotLogger.debug("Could not delete " + output + ": " + e.getMessage());
+                }
+                converting.remove(videoId);
+            }
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.musicbot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cancellation signal for the work started by one request (a download and what plays it).
+ * Whoever does the work registers what to undo, stop and skip cancel the token.
+ */
+public class CancellationToken {
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private boolean cancelled;
+    private volatile String trackIdentifier;
+
+    /**
+     * Cancels the request and runs the registered callbacks, once.
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+
+        for (Runnable callback : toRun) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                BotLogger.error("Cancellation callback failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs the callback when the token is cancelled, right away if it already is
+     */
+    public void onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    /**
+     * Identifier of the track the request is playing, set once playback started from the download
+     */
+    public String getTrackIdentifier() {
+        return trackIdentifier;
+    }
+
+    public void setTrackIdentifier(String trackIdentifier) {
+        this.trackIdentifier = trackIdentifier;
+    }
+}
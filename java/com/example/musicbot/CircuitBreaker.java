@@ -0,0 +1,159 @@
+package com.example.musicbot;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Per-source circuit breaker. Tracks the outcome of the last requests to a source and,
+ * when too many of them failed, rejects requests for a cooldown period so callers can
+ * fail fast or switch to another source. After the cooldown a single trial request is let
+ * through; its outcome decides whether the breaker closes again. A trial that never reports
+ * an outcome is given up after a while, so it can't keep the breaker half-open forever.
+ */
+public class CircuitBreaker {
+    // Outcomes considered when computing the error rate
+    private static final int WINDOW_SIZE = 20;
+    // Don't judge a source on just a couple of requests
+    private static final int MIN_REQUESTS = 5;
+    // A trial without an outcome after this long is considered lost
+    private static final long TRIAL_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureThreshold;
+    private final long cooldownMillis;
+
+    // true = failure
+    private final Deque<Boolean> outcomes = new ArrayDeque<>();
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long trialStartedAt;
+    private long rejected;
+
+    public CircuitBreaker(String name, double failureThreshold, long cooldownMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * Whether a request to this source should be attempted right now
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= cooldownMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            BotLogger.info("Circuit breaker for " + name + " is half-open, trying one request");
+        }
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (!isTrialRunning()) {
+                    trialInFlight = true;
+                    trialStartedAt = System.currentTimeMillis();
+                    return true;
+                }
+                rejected++;
+                return false;
+            default:
+                rejected++;
+                return false;
+        }
+    }
+
+    /**
+     * Whether allowRequest() would let a request through, without using up the half-open trial.
+     * For callers that don't report an outcome themselves.
+     */
+    public synchronized boolean isAvailable() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return !isTrialRunning();
+            default:
+                return System.currentTimeMillis() - openedAt >= cooldownMillis;
+        }
+    }
+
+    /**
+     * Reports that an allowed request ended without telling anything about the source, e.g. it
+     * was cancelled. Frees the half-open trial for the next request.
+     */
+    public synchronized void recordCancelled() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            outcomes.clear();
+            BotLogger.info("Circuit breaker for " + name + " closed, source recovered");
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+
+        if (state == State.CLOSED && outcomes.size() >= MIN_REQUESTS && getErrorRate() >= failureThreshold) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getErrorRate() {
+        if (outcomes.isEmpty()) return 0.0;
+
+        int failures = 0;
+        for (boolean failed : outcomes) {
+            if (failed) failures++;
+        }
+        return (double) failures / outcomes.size();
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private boolean isTrialRunning() {
+        return trialInFlight && System.currentTimeMillis() - trialStartedAt < TRIAL_TIMEOUT_MILLIS;
+    }
+
+    private void record(boolean failed) {
+        outcomes.addLast(failed);
+        while (outcomes.size() > WINDOW_SIZE) {
+            outcomes.removeFirst();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        outcomes.clear();
+        BotLogger.warn("Circuit breaker for " + name + " opened, failing fast for "
+                + (cooldownMillis / 1000) + " seconds");
+    }
+}
@@ -1,7 +1,7 @@
-package com.example.musicbot;
-
-import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-
-public interface Command {
-    void execute(MessageReceivedEvent event, String args);
-}
+package com.example.musicbot;
+
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+
+public interface Command {
+    void execute(MessageReceivedEvent event, String args);
+}
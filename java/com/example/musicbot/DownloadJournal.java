@@ -0,0 +1,279 @@
+package com.example.musicbot;
+
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Record of the downloads in flight, kept in downloads.json in the cache directory. A job is
+ * written when its download starts and removed once the file is in the cache, so whatever is
+ * left after a restart (or after yt-dlp was killed) can be continued from its partial file
+ * instead of starting over. Jobs remember who asked for them, so the track can still be
+ * played in that guild once the resumed download finished.
+ */
+public class DownloadJournal {
+    private static final String JOURNAL_FILE = "downloads.json";
+
+    private final File journalFile;
+    // videoId -> job
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong resumedBytes = new AtomicLong();
+
+    public DownloadJournal(File cacheDir) {
+        this.journalFile = new File(cacheDir, JOURNAL_FILE);
+        load();
+    }
+
+    /**
+     * Records a download that is starting. A job that was already recorded (being resumed)
+     * keeps its requester and failure count.
+     */
+    public void start(String videoId, String url, File partialFile) {
+        Job previous = jobs.get(videoId);
+        Job job = new Job(videoId, url, partialFile.getAbsolutePath(), System.currentTimeMillis());
+        if (previous != null) {
+            job.tier = previous.tier;
+            job.guildId = previous.guildId;
+            job.textChannelId = previous.textChannelId;
+            job.voiceChannelId = previous.voiceChannelId;
+            job.failures = previous.failures;
+        }
+        jobs.put(videoId, job);
+        save();
+    }
+
+    /**
+     * Records the tier the download goes to, once it has been decided
+     */
+    public void setTier(String videoId, TrackCache.Tier tier) {
+        Job job = jobs.get(videoId);
+        if (job == null) return;
+        job.tier = tier;
+        save();
+    }
+
+    /**
+     * Records where the track should be played if the download has to be resumed after a restart
+     */
+    public void setRequester(String videoId, long guildId, long textChannelId, long voiceChannelId) {
+        Job job = jobs.get(videoId);
+        if (job == null) return;
+        job.guildId = guildId;
+        job.textChannelId = textChannelId;
+        job.voiceChannelId = voiceChannelId;
+        save();
+    }
+
+    /**
+     * Forgets the requester, e.g. when the request was stopped but the download continues for someone else
+     */
+    public void clearRequester(String videoId, long guildId) {
+        Job job = jobs.get(videoId);
+        if (job == null || job.guildId != guildId) return;
+        job.guildId = 0;
+        job.textChannelId = 0;
+        job.voiceChannelId = 0;
+        save();
+    }
+
+    /**
+     * Counts a failed attempt at the download, whose partial file is kept for the next one.
+     * @return the number of failed attempts so far
+     */
+    public int recordFailure(String videoId) {
+        Job job = jobs.get(videoId);
+        if (job == null) return Integer.MAX_VALUE;
+        job.failures++;
+        save();
+        return job.failures;
+    }
+
+    /**
+     * Counts a download that continued from a partial file instead of starting over
+     */
+    public void recordResume(long bytes) {
+        resumed.incrementAndGet();
+        resumedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Removes a job whose download finished, or was given up
+     */
+    public void remove(String videoId) {
+        if (jobs.remove(videoId) != null) {
+            save();
+        }
+    }
+
+    public Job get(String videoId) {
+        return jobs.get(videoId);
+    }
+
+    public List<Job> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Partial files of the recorded jobs, which the startup sweep must leave alone. Includes
+     * the ".part" name yt-dlp writes to while it continues a partial file.
+     */
+    public Set<File> getPartialFiles() {
+        return jobs.values().stream()
+                .flatMap(job -> Stream.of(job.getPartialFile(), new File(job.partialPath + ".part")))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Exposes resume counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_download_journal_jobs", jobs::size);
+        MetricsServer.register("musicbot_download_resumed_total", resumed::get);
+        MetricsServer.register("musicbot_download_resumed_bytes_total", resumedBytes::get);
+    }
+
+    private synchronized void save() {
+        DataArray array = DataArray.empty();
+        for (Job job : jobs.values()) {
+            array.add(job.toData());
+        }
+
+        // Write to a temporary file first so a crash never leaves a truncated journal
+        File tempFile = new File(journalFile.getPath() + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), array.toJson());
+            Files.move(tempFile.toPath(), journalFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            BotLogger.error("Could not save download journal: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!journalFile.exists()) return;
+
+        try (InputStream in = new FileInputStream(journalFile)) {
+            DataArray array = DataArray.fromJson(in);
+            for (int i = 0; i < array.length(); i++) {
+                Job job = Job.fromData(array.getObject(i));
+                jobs.put(job.videoId, job);
+            }
+            if (!jobs.isEmpty()) {
+                BotLogger.info("Found " + jobs.size() + " interrupted downloads to resume");
+            }
+        } catch (Exception e) {
+            BotLogger.error("Could not read download journal, interrupted downloads start over: " + e.getMessage());
+            jobs.clear();
+        }
+    }
+
+    /**
+     * A download in flight
+     */
+    public static class Job {
+        private final String videoId;
+        private final String url;
+        private final String partialPath;
+        private final long startedAt;
+
+        // Set as the request goes on
+        private volatile TrackCache.Tier tier;
+        private volatile long guildId;
+        private volatile long textChannelId;
+        private volatile long voiceChannelId;
+        private volatile int failures;
+
+        Job(String videoId, String url, String partialPath, long startedAt) {
+            this.videoId = videoId;
+            this.url = url;
+            this.partialPath = partialPath;
+            this.startedAt = startedAt;
+        }
+
+        public String getVideoId() {
+            return videoId;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public File getPartialFile() {
+            return new File(partialPath);
+        }
+
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        /**
+         * The tier the download goes to, null if it wasn't decided yet
+         */
+        public TrackCache.Tier getTier() {
+            return tier;
+        }
+
+        /**
+         * Guild that is waiting for the track, 0 for background downloads (prefetch, warmup)
+         */
+        public long getGuildId() {
+            return guildId;
+        }
+
+        public long getTextChannelId() {
+            return textChannelId;
+        }
+
+        public long getVoiceChannelId() {
+            return voiceChannelId;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        DataObject toData() {
+            DataObject data = DataObject.empty()
+                    .put("videoId", videoId)
+                    .put("url", url)
+                    .put("partialPath", partialPath)
+                    .put("startedAt", startedAt)
+                    .put("guildId", guildId)
+                    .put("textChannelId", textChannelId)
+                    .put("voiceChannelId", voiceChannelId)
+                    .put("failures", failures);
+            if (tier != null) {
+                data.put("tier", tier.name());
+            }
+            return data;
+        }
+
+        static Job fromData(DataObject data) {
+            Job job = new Job(data.getString("videoId"), data.getString("url"), data.getString("partialPath"),
+                    data.getLong("startedAt", 0));
+            String tier = data.getString("tier", null);
+            job.tier = tier == null ? null : TrackCache.Tier.valueOf(tier);
+            job.guildId = data.getLong("guildId", 0);
+            job.textChannelId = data.getLong("textChannelId", 0);
+            job.voiceChannelId = data.getLong("voiceChannelId", 0);
+            job.failures = data.getInt("failures", 0);
+            return job;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.example.musicbot;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The one place downloads run. Jobs are queued by priority class and executed by a fixed
+ * number of worker threads. Requests for a video that is already queued or downloading join
+ * the existing download instead of starting another one (and raise its priority if needed).
+ * A download is cancelled, and its yt-dlp process killed, once every request waiting for it
+ * has been cancelled. A cancelled download stays registered until its worker is done with it,
+ * so a new request for the same video waits for it instead of writing to the same staging file.
+ *
+ * A task frees its worker once it returns; the job stays registered until the future it returned
+ * completes, e.g. a finished download waiting to be told whether to keep it.
+ */
+public class DownloadScheduler {
+    /**
+     * Priority classes, most urgent first
+     */
+    public enum Priority {
+        NOW_PLAYING,
+        NEXT_IN_QUEUE,
+        PREFETCH,
+        WARMUP
+    }
+
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    // videoId -> job that is queued or running
+    private final Map<String, Job> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong running = new AtomicLong();
+    private final Map<Priority, LatencyStats> waitTimes = new EnumMap<>(Priority.class);
+
+    public DownloadScheduler(int concurrency) {
+        for (Priority priority : Priority.values()) {
+            waitTimes.put(priority, new LatencyStats());
+        }
+
+        for (int i = 0; i < Math.max(1, concurrency); i++) {
+            Thread worker = new Thread(this::work, "Download-Worker-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Schedules a download of a video, or joins the download already queued or running for it.
+     * When joining, the given task is not used, so neither is its listener or tier: a joiner
+     * that needs the file kept promotes it once the download is done (see TrackCache.promote).
+     * @param token cancels this request's interest in the download, null if it should always finish
+     * @param task runs the download on a worker, returns a future that completes with the file
+     */
+    public Ticket submit(String videoId, Priority priority, CancellationToken token,
+                         Callable<CompletableFuture<java.io.File>> task) {
+        while (true) {
+            Job existing = inFlight.get(videoId);
+            if (existing != null && existing.addInterest(token)) {
+                coalesced.incrementAndGet();
+                raisePriority(existing, priority);
+                watch(existing, token);
+                return new Ticket(existing.result, true);
+            }
+
+            Job job = new Job(videoId, priority, sequence.incrementAndGet(), task);
+            job.addInterest(token);
+            if (existing != null) {
+                // Being cancelled: start once the old download has let go of the staging file
+                if (inFlight.replace(videoId, existing, job)) {
+                    existing.finished.thenRun(() -> queue.add(job));
+                    watch(job, token);
+                    return new Ticket(job.result, false);
+                }
+            } else if (inFlight.putIfAbsent(videoId, job) == null) {
+                queue.add(job);
+                watch(job, token);
+                return new Ticket(job.result, false);
+            }
+        }
+    }
+
+    /**
+     * Whether a download for the video is queued or running
+     */
+    public boolean isInFlight(String videoId) {
+        return inFlight.containsKey(videoId);
+    }
+
+    /**
+     * Removes a background download from the queue if it hasn't started yet. Running downloads
+     * and downloads someone is waiting to play keep going.
+     * @return true if the download was cancelled
+     */
+    public boolean cancelQueued(String videoId) {
+        Job job = inFlight.get(videoId);
+        if (job != null && job.priority != Priority.NOW_PLAYING && queue.remove(job)) {
+            inFlight.remove(videoId, job);
+            job.result.cancel(false);
+            job.finished.complete(null);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Number of downloads waiting per priority class
+     */
+    public Map<String, Number> getQueueDepth() {
+        Map<String, Number> depth = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            depth.put(priority.name().toLowerCase(), 0);
+        }
+        for (Job job : queue) {
+            String key = job.priority.name().toLowerCase();
+            depth.put(key, depth.get(key).intValue() + 1);
+        }
+        return depth;
+    }
+
+    /**
+     * Exposes queue depth, wait times and throughput on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.registerLabeled("musicbot_download_queue_depth", "priority", this::getQueueDepth);
+        MetricsServer.registerLabeled("musicbot_download_wait_ms_avg", "priority", () -> {
+            Map<String, Number> values = new LinkedHashMap<>();
+            waitTimes.forEach((priority, stats) -> values.put(priority.name().toLowerCase(), stats.getAverage()));
+            return values;
+        });
+        MetricsServer.registerLabeled("musicbot_download_wait_ms_max", "priority", () -> {
+            Map<String, Number> values = new LinkedHashMap<>();
+            waitTimes.forEach((priority, stats) -> values.put(priority.name().toLowerCase(), stats.getMax()));
+            return values;
+        });
+        MetricsServer.register("musicbot_downloads_running", running::get);
+        MetricsServer.register("musicbot_downloads_completed_total", completed::get);
+        MetricsServer.register("musicbot_downloads_failed_total", failed::get);
+        MetricsServer.register("musicbot_downloads_coalesced_total", coalesced::get);
+        MetricsServer.register("musicbot_downloads_cancelled_total", cancelled::get);
+    }
+
+    private void watch(Job job, CancellationToken token) {
+        if (token == null) return;
+
+        token.onCancel(() -> {
+            if (job.removeInterest()) {
+                cancel(job);
+            }
+        });
+    }
+
+    /**
+     * Nobody wants the download anymore: take it out of the queue, or stop it if it's running
+     */
+    private void cancel(Job job) {
+        if (queue.remove(job)) {
+            inFlight.remove(job.videoId, job);
+            job.result.cancel(false);
+            job.finished.complete(null);
+        } else {
+            // Deregistered by its worker once it stopped, or skipped if it didn't start yet
+            job.interruptRunner();
+        }
+        cancelled.incrementAndGet();
+        BotLogger.debug("Download of " + job.videoId + " cancelled");
+    }
+
+    private void raisePriority(Job job, Priority priority) {
+        if (priority.ordinal() >= job.priority.ordinal()) return;
+
+        // Re-queue with the higher priority, unless a worker picked it up in the meantime
+        if (queue.remove(job)) {
+            job.priority = priority;
+            queue.add(job);
+            BotLogger.debug("Download of " + job.videoId + " raised to " + priority);
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            // Cancelled while waiting for an earlier download of the same video to stop
+            if (job.isAbandoned()) {
+                inFlight.remove(job.videoId, job);
+                job.result.cancel(false);
+                job.finished.complete(null);
+                continue;
+            }
+
+            long waited = System.currentTimeMillis() - job.queuedAt;
+            waitTimes.get(job.priority).record(waited);
+            running.incrementAndGet();
+            BotLogger.debug("Downloading " + job.videoId + " (" + job.priority + ", waited " + waited + "ms)");
+
+            CompletableFuture<java.io.File> pending = null;
+            try {
+                job.setRunner(Thread.currentThread());
+                pending = job.task.call();
+            } catch (InterruptedException e) {
+                job.result.cancel(false);
+            } catch (Throwable e) {
+                failed.incrementAndGet();
+                job.result.completeExceptionally(e);
+            } finally {
+                job.setRunner(null);
+                // A cancellation that raced with the end of the job must not hit the next one
+                Thread.interrupted();
+                running.decrementAndGet();
+            }
+
+            if (pending == null) {
+                deregister(job);
+                continue;
+            }
+            // Usually already done; if not, the rest of the job doesn't need this worker
+            pending.whenComplete((file, error) -> {
+                if (error == null) {
+                    completed.incrementAndGet();
+                    job.result.complete(file);
+                } else {
+                    failed.incrementAndGet();
+                    job.result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                }
+                deregister(job);
+            });
+        }
+    }
+
+    private void deregister(Job job) {
+        inFlight.remove(job.videoId, job);
+        job.finished.complete(null);
+    }
+
+    /**
+     * What a caller gets back from submit
+     */
+    public static class Ticket {
+        private final CompletableFuture<java.io.File> result;
+        private final boolean joined;
+
+        Ticket(CompletableFuture<java.io.File> result, boolean joined) {
+            this.result = result;
+            this.joined = joined;
+        }
+
+        /**
+         * Completes with the downloaded file, or exceptionally if the download failed or was cancelled
+         */
+        public CompletableFuture<java.io.File> getResult() {
+            return result;
+        }
+
+        /**
+         * True if this request joined a download someone else started
+         */
+        public boolean isJoined() {
+            return joined;
+        }
+    }
+
+    private static class Job implements Comparable<Job> {
+        private final String videoId;
+        private volatile Priority priority;
+        private final long sequence;
+        private final long queuedAt = System.currentTimeMillis();
+        private final Callable<CompletableFuture<java.io.File>> task;
+        private final CompletableFuture<java.io.File> result = new CompletableFuture<>();
+        // Completes once no worker will touch the job's files any more
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+        // Guarded by this
+        private int interest;
+        private boolean permanent;
+        private boolean abandoned;
+        private Thread runner;
+
+        Job(String videoId, Priority priority, long sequence, Callable<CompletableFuture<java.io.File>> task) {
+            this.videoId = videoId;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        /**
+         * Registers one more request waiting for this job.
+         * @return false if the job is already being cancelled
+         */
+        synchronized boolean addInterest(CancellationToken token) {
+            if (abandoned) return false;
+            if (token == null) {
+                permanent = true;
+            } else {
+                interest++;
+            }
+            return true;
+        }
+
+        /**
+         * @return true if that was the last request waiting and the job should be cancelled
+         */
+        synchronized boolean removeInterest() {
+            interest--;
+            if (interest <= 0 && !permanent && !abandoned) {
+                abandoned = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isAbandoned() {
+            return abandoned;
+        }
+
+        synchronized void setRunner(Thread thread) {
+            this.runner = thread;
+            if (thread != null && abandoned) {
+                thread.interrupt();
+            }
+        }
+
+        synchronized void interruptRunner() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            // Higher priority first, then first come first served
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
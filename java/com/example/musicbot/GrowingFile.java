@@ -0,0 +1,92 @@
+package com.example.musicbot;
+
+import java.io.File;
+
+/**
+ * A file that is still being written by a download. Readers block on it until more data
+ * arrives, the writer reports when the download completed (and where the file ended up)
+ * or failed.
+ */
+public class GrowingFile {
+    private volatile File file;
+    private final String container;
+    private final long expectedLength;
+
+    private volatile boolean complete;
+    private volatile String failure;
+
+    /**
+     * @param file where the download is being written
+     * @param container file extension of the media container (webm, m4a), used as a detection hint
+     * @param expectedLength size reported by yt-dlp, 0 if unknown
+     */
+    public GrowingFile(File file, String container, long expectedLength) {
+        this.file = file;
+        this.container = container;
+        this.expectedLength = expectedLength;
+    }
+
+    /**
+     * Called by the writer whenever more data was written.
+     */
+    public synchronized void onProgress() {
+        notifyAll();
+    }
+
+    /**
+     * Called by the writer once the download is complete and moved to its final location.
+     */
+    public synchronized void complete(File finalFile) {
+        this.file = finalFile;
+        this.complete = true;
+        notifyAll();
+    }
+
+    /**
+     * Called by the writer when the download failed, readers get an IOException.
+     */
+    public synchronized void fail(String reason) {
+        this.failure = reason == null ? "Download failed" : reason;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the writer reports progress, completion or failure, or the timeout passes.
+     */
+    public synchronized void awaitUpdate(long timeoutMillis) throws InterruptedException {
+        if (!complete && failure == null) {
+            wait(timeoutMillis);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getContainer() {
+        return container;
+    }
+
+    /**
+     * Total size of the file: the real size once complete, otherwise the size reported
+     * by yt-dlp, or Long.MAX_VALUE if that is unknown.
+     */
+    public long getLength() {
+        if (complete) {
+            return file.length();
+        }
+        return expectedLength > 0 ? expectedLength : Long.MAX_VALUE;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerDescriptor;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.DelegatedAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+
+/**
+ * Track playing from a download that may still be in progress.
+ */
+public class GrowingFileAudioTrack extends DelegatedAudioTrack {
+    private final MediaContainerDescriptor containerTrackFactory;
+    private final GrowingFile growingFile;
+    private final GrowingFileSourceManager sourceManager;
+
+    public GrowingFileAudioTrack(AudioTrackInfo trackInfo, MediaContainerDescriptor containerTrackFactory,
+                                 GrowingFile growingFile, GrowingFileSourceManager sourceManager) {
+        super(trackInfo);
+        this.containerTrackFactory = containerTrackFactory;
+        this.growingFile = growingFile;
+        this.sourceManager = sourceManager;
+    }
+
+    @Override
+    public void process(LocalAudioTrackExecutor executor) throws Exception {
+        try (GrowingFileInputStream inputStream = new GrowingFileInputStream(growingFile)) {
+            processDelegate((InternalAudioTrack) containerTrackFactory.createTrack(trackInfo, inputStream), executor);
+        }
+    }
+
+    @Override
+    protected AudioTrack makeShallowClone() {
+        // Clones (e.g. when played from the queue) share the download, which may have completed by then
+        return new GrowingFileAudioTrack(trackInfo, containerTrackFactory, growingFile, sourceManager);
+    }
+
+    @Override
+    public AudioSourceManager getSourceManager() {
+        return sourceManager;
+    }
+}
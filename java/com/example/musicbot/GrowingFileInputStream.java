@@ -0,0 +1,123 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.tools.io.SeekableInputStream;
+import com.sedmelluq.discord.lavaplayer.track.info.AudioTrackInfoProvider;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Seekable stream over a file that is still being downloaded. Reads past the data written
+ * so far block until the writer catches up, end of stream is only reported once the
+ * download completed, and a failed download surfaces as an IOException.
+ */
+public class GrowingFileInputStream extends SeekableInputStream {
+    // Fallback in case a progress notification is missed
+    private static final long POLL_MILLIS = 100;
+
+    private final GrowingFile growingFile;
+    // Keeps reading the same file even when the download is renamed into the cache on completion
+    private final RandomAccessFile file;
+    private long position;
+
+    public GrowingFileInputStream(GrowingFile growingFile) throws IOException {
+        super(growingFile.getLength(), 0);
+        this.growingFile = growingFile;
+        this.file = new RandomAccessFile(growingFile.getFile(), "r");
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buffer = new byte[1];
+        int read = read(buffer, 0, 1);
+        return read < 0 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+
+        long available = awaitData();
+        if (available <= position) {
+            return -1;
+        }
+
+        int read = file.read(buffer, offset, (int) Math.min(length, available - position));
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        seekHard(position + count);
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, file.length() - position));
+    }
+
+    @Override
+    public long getContentLength() {
+        return growingFile.getLength();
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    protected void seekHard(long position) throws IOException {
+        // Positions beyond what has been written are fine, the next read waits for them
+        file.seek(position);
+        this.position = position;
+    }
+
+    @Override
+    public boolean canSeekHard() {
+        return true;
+    }
+
+    @Override
+    public List<AudioTrackInfoProvider> getTrackInfoProviders() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Blocks until there is data at the current position or the download has ended.
+     * @return the number of bytes currently in the file
+     */
+    private long awaitData() throws IOException {
+        while (true) {
+            // Check completion before the length, so no data written before completion is missed
+            boolean complete = growingFile.isComplete();
+            long length = file.length();
+
+            if (length > position || complete) {
+                return length;
+            }
+            if (growingFile.isFailed()) {
+                throw new IOException(growingFile.getFailure());
+            }
+
+            try {
+                growingFile.awaitUpdate(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the download");
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerDescriptor;
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerDetection;
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerHints;
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerRegistry;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.ProbingAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lavaplayer source for downloads that are still in progress. A download registers the
+ * path it will end up at, loading that path then plays from the growing file instead of
+ * waiting for the download to finish. Paths that aren't registered are left to the local source.
+ */
+public class GrowingFileSourceManager extends ProbingAudioSourceManager {
+    private final Map<String, GrowingFile> downloads = new ConcurrentHashMap<>();
+
+    public GrowingFileSourceManager() {
+        super(MediaContainerRegistry.DEFAULT_REGISTRY);
+    }
+
+    /**
+     * Makes a download in progress playable under the given identifier (its final path)
+     */
+    public void register(String identifier, GrowingFile growingFile) {
+        downloads.put(identifier, growingFile);
+    }
+
+    /**
+     * Called when the download ended; tracks already created keep playing from their file.
+     */
+    public void unregister(GrowingFile growingFile) {
+        downloads.values().remove(growingFile);
+    }
+
+    @Override
+    public String getSourceName() {
+        return "growing-file";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
+        GrowingFile growingFile = downloads.get(reference.identifier);
+        if (growingFile == null) {
+            return null;
+        }
+
+        // Detection reads the container header, which blocks until that part has been downloaded
+        try (GrowingFileInputStream inputStream = new GrowingFileInputStream(growingFile)) {
+            return handleLoadResult(new MediaContainerDetection(containerRegistry, reference, inputStream,
+                    MediaContainerHints.from(null, growingFile.getContainer())).detectContainer());
+        } catch (IOException e) {
+            throw new FriendlyException("Failed to read the download.", FriendlyException.Severity.SUSPICIOUS, e);
+        }
+    }
+
+    @Override
+    protected AudioTrack createTrack(AudioTrackInfo trackInfo, MediaContainerDescriptor containerTrackFactory) {
+        return new GrowingFileAudioTrack(trackInfo, containerTrackFactory, downloads.get(trackInfo.identifier), this);
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track) {
+        // Only exists while the download runs
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException {
+        // Not encodable
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
+        return null;
+    }
+
+    @Override
+    public void shutdown() {
+        // Nothing to shut down
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.musicbot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running count, sum, maximum and last value of a latency in milliseconds,
+ * exported on the metrics endpoint as name_count, name_sum, name_max and name_last.
+ */
+public class LatencyStats {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong last = new AtomicLong();
+
+    public void record(long millis) {
+        count.incrementAndGet();
+        sum.addAndGet(millis);
+        max.accumulateAndGet(millis, Math::max);
+        last.set(millis);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getAverage() {
+        long samples = count.get();
+        return samples == 0 ? 0 : sum.get() / samples;
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getLast() {
+        return last.get();
+    }
+
+    /**
+     * Exposes this latency on the metrics endpoint under the given base name.
+     */
+    public void register(String name) {
+        MetricsServer.register(name + "_count", count::get);
+        MetricsServer.register(name + "_sum", sum::get);
+        MetricsServer.register(name + "_max", max::get);
+        MetricsServer.register(name + "_last", last::get);
+    }
+}
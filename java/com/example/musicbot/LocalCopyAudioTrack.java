@@ -0,0 +1,38 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.DelegatedAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+
+/**
+ * A queued remote track that plays from a local copy in the cache instead. Keeps the title,
+ * author and link of the original track, the identifier is the local path so the cache
+ * reference is released when the track ends.
+ */
+public class LocalCopyAudioTrack extends DelegatedAudioTrack {
+    private final AudioTrack localTrack;
+
+    public LocalCopyAudioTrack(AudioTrackInfo originalInfo, AudioTrack localTrack) {
+        super(new AudioTrackInfo(originalInfo.title, originalInfo.author, localTrack.getDuration(),
+                localTrack.getIdentifier(), false, originalInfo.uri));
+        this.localTrack = localTrack;
+    }
+
+    @Override
+    public void process(LocalAudioTrackExecutor executor) throws Exception {
+        processDelegate((InternalAudioTrack) localTrack.makeClone(), executor);
+    }
+
+    @Override
+    protected AudioTrack makeShallowClone() {
+        return new LocalCopyAudioTrack(trackInfo, localTrack);
+    }
+
+    @Override
+    public AudioSourceManager getSourceManager() {
+        return localTrack.getSourceManager();
+    }
+}
@@ -1,8 +1,8 @@
-package com.example.musicbot;
-
-public class Main {
-    public static void main(String[] args) throws Exception {
-        Bot bot = new Bot();
-        bot.start();
-    }
-}
+package com.example.musicbot;
+
+public class Main {
+    public static void main(String[] args) throws Exception {
+        Bot bot = new Bot();
+        bot.start();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.musicbot;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Plain-text metrics endpoint in the Prometheus exposition format.
+ * Components register gauges here, the HTTP server only starts when metrics_port is set.
+ */
+public class MetricsServer {
+    // Sorted so the output is stable between scrapes
+    private static final Map<String, Supplier<Number>> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, LabeledGauge> labeledGauges = new ConcurrentSkipListMap<>();
+
+    private static HttpServer server;
+
+    /**
+     * Register a single-value metric
+     */
+    public static void register(String name, Supplier<Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Register a metric with one value per label (e.g. per track or per source)
+     */
+    public static void registerLabeled(String name, String label, Supplier<Map<String, Number>> supplier) {
+        labeledGauges.put(name, new LabeledGauge(label, supplier));
+    }
+
+    /**
+     * Start serving /metrics on the given port
+     */
+    public static synchronized void start(int port) {
+        if (server != null) return;
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            BotLogger.info("Metrics endpoint listening on port " + port);
+        } catch (IOException e) {
+            BotLogger.error("Could not start metrics endpoint: " + e.getMessage());
+            server = null;
+        }
+    }
+
+    /**
+     * Render all registered metrics
+     */
+    public static String render() {
+        StringBuilder sb = new StringBuilder();
+
+        for (Map.Entry<String, Supplier<Number>> gauge : gauges.entrySet()) {
+            try {
+                sb.append(gauge.getKey()).append(' ').append(gauge.getValue().get()).append('\n');
+            } catch (Exception e) {
+                BotLogger.debug("Metric " + gauge.getKey() + " failed: " + e.getMessage());
+            }
+        }
+
+        for (Map.Entry<String, LabeledGauge> gauge : labeledGauges.entrySet()) {
+            try {
+                for (Map.Entry<String, Number> value : gauge.getValue().supplier.get().entrySet()) {
+                    sb.append(gauge.getKey())
+                      .append('{').append(gauge.getValue().label).append("=\"")
+                      .append(value.getKey().replace("\\", "\\\\").replace("\"", "\\\""))
+                      .append("\"} ").append(value.getValue()).append('\n');
+                }
+            } catch (Exception e) {
+                BotLogger.debug("Metric " + gauge.getKey() + " failed: " + e.getMessage());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private static class LabeledGauge {
+        private final String label;
+        private final Supplier<Map<String, Number>> supplier;
+
+        LabeledGauge(String label, Supplier<Map<String, Number>> supplier) {
+            this.label = label;
+            this.supplier = supplier;
+        }
+    }
+}
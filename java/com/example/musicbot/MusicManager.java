@@ -1,284 +1,1032 @@
-package com.example.musicbot;
-
-import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
-import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
-import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
-import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
-import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
-import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
-import net.dv8tion.jda.api.entities.Guild;
-import net.dv8tion.jda.api.managers.AudioManager; // Add this import
-import com.example.musicbot.BotLogger;
-
-import java.io.File;
-import java.util.*;
-import java.util.concurrent.*;
-
-public class MusicManager {
-    private final AudioPlayerManager playerManager;
-    private final Map<Long, AudioPlayer> players;
-    private final Map<Long, Queue<AudioTrack>> queues;
-    private final Map<Long, ScheduledFuture<?>> disconnectTasks; // For auto-disconnect
-    private final ScheduledExecutorService scheduler; // Scheduler for tasks
-    private final long AUTO_DISCONNECT_DELAY = 30; // Auto-disconnect delay in seconds
-    private final long MAX_CACHE_SIZE = 1_000_000_000; // 1GB cache limit
-    private final File cacheDir;
-    private final boolean useYouTube = false; // Set to true if playing directly from YouTube
-
-    public MusicManager() {
-        // Get cache directory from config
-        BotConfig config = new BotConfig();
-        String cacheDirPath = config.getCacheDir();
-        this.cacheDir = new File(cacheDirPath);
-        if (!cacheDir.exists()) {
-            cacheDir.mkdirs();
-        }
-    
-        // Initialize fields that were missing initialization
-        this.disconnectTasks = new ConcurrentHashMap<>();
-        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "Music-Task-Scheduler");
-            t.setDaemon(true); // Allow JVM to exit if only daemon threads remain
-            return t;
-        });
-        
-        // Schedule regular cache cleanup
-        scheduler.scheduleAtFixedRate(this::cleanupCache, 1, 12, TimeUnit.HOURS);
-
-        // Initialize the audio player manager with optimized settings
-        playerManager = new DefaultAudioPlayerManager();
-        
-        // Optimize player settings if available in this version
-        try {
-            playerManager.getConfiguration().setResamplingQuality(
-                    com.sedmelluq.discord.lavaplayer.player.AudioConfiguration.ResamplingQuality.MEDIUM);
-        } catch (Exception e) {
-            System.err.println("Could not set resampling quality: " + e.getMessage());
-        }
-        
-        // Register audio sources
-        AudioSourceManagers.registerRemoteSources(playerManager);
-        AudioSourceManagers.registerLocalSource(playerManager);
-        
-        players = new ConcurrentHashMap<>();
-        queues = new ConcurrentHashMap<>();
-    }
-
-    private void cleanupCache() {
-        try {
-            // Skip if cache directory doesn't exist
-            if (!cacheDir.exists()) return;
-            
-            // Get all files in cache
-            File[] files = cacheDir.listFiles();
-            if (files == null || files.length == 0) return;
-            
-            // Sort by last modified (oldest first)
-            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
-            
-            // Calculate total size
-            long totalSize = 0;
-            for (File file : files) {
-                totalSize += file.length();
-            }
-            
-            // Delete oldest files if over limit
-            int i = 0;
-            while (totalSize > MAX_CACHE_SIZE && i < files.length) {
-                long fileSize = files[i].length();
-                if (files[i].delete()) {
-                    totalSize -= fileSize;
-                    System.out.println("Cache cleanup: Deleted " + files[i].getName());
-                }
-                i++;
-            }
-        } catch (Exception e) {
-            System.err.println("Error during cache cleanup: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Retrieves or creates an AudioPlayer for the given guild and attaches an event listener.
-     */
-   public AudioPlayer getPlayer(Guild guild) {
-    long guildId = guild.getIdLong();
-    // Create a new player if one does not exist.
-    if (!players.containsKey(guildId)) {
-        AudioPlayer player = playerManager.createPlayer();
-        queues.put(guildId, new ConcurrentLinkedQueue<>());
-        // Add an event listener to play the next track when the current one finishes.
-        player.addListener(new AudioEventAdapter() {
-            @Override
-            public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) {
-                if (endReason.mayStartNext) {
-                    // Use a thread-safe method to play the next track
-                    synchronized (this) {
-                        playNext(guildId, player);
-                    }
-                }
-            }
-        });
-        players.put(guildId, player);
-    }
-    return players.get(guildId);
-}
-
-    /**
-     * Schedule a task to disconnect from the voice channel after specified delay
-     */
-    private void scheduleDisconnect(Guild guild, long guildId) {
-        cancelDisconnectTask(guildId); // Cancel any existing task first
-        
-        ScheduledFuture<?> task = scheduler.schedule(() -> {
-            try {
-                // Check again if something is playing (could have changed while waiting)
-                AudioPlayer player = players.get(guildId);
-                if (player != null && player.getPlayingTrack() == null) {
-                    // Nothing is playing, so disconnect
-                    AudioManager audioManager = guild.getAudioManager();
-                    if (audioManager.isConnected()) {
-                        System.out.println("Auto-disconnecting from voice channel in guild: " + guild.getName());
-                        audioManager.closeAudioConnection();
-                    }
-                }
-            } catch (Exception e) {
-                System.err.println("Error in auto-disconnect task: " + e.getMessage());
-            }
-        }, AUTO_DISCONNECT_DELAY, TimeUnit.SECONDS);
-        
-        disconnectTasks.put(guildId, task);
-        System.out.println("Scheduled auto-disconnect for guild: " + guild.getName() + 
-                           " in " + AUTO_DISCONNECT_DELAY + " seconds");
-    }
-
-    /**
-     * Cancel any scheduled disconnect task
-     */
-    private void cancelDisconnectTask(long guildId) {
-        ScheduledFuture<?> task = disconnectTasks.remove(guildId);
-        if (task != null && !task.isDone()) {
-            task.cancel(false);
-            System.out.println("Cancelled auto-disconnect for guild ID: " + guildId);
-        }
-    }
-
-    /**
-     * Adds a track to the queue for the given guild.
-     */
-    public void queueTrack(Guild guild, AudioTrack track) {
-        long guildId = guild.getIdLong();
-        Queue<AudioTrack> queue = queues.computeIfAbsent(guildId, k -> new ConcurrentLinkedQueue<>());
-        queue.offer(track);
-        
-        BotLogger.audio("Track queued in guild " + guild.getName() + ": " + track.getInfo().title);
-        
-        // Cancel any scheduled disconnect when a track is queued
-        cancelDisconnectTask(guildId);
-    }
-
-    /**
-     * Clears the queue for the given guild.
-     */
-    public void clearQueue(Guild guild) {
-        long guildId = guild.getIdLong();
-        Queue<AudioTrack> queue = queues.get(guildId);
-        if (queue != null) {
-            queue.clear();
-        }
-    }
-
-    /**
-     * Plays the next track in the queue, if available.
-     */
-    public synchronized void playNext(long guildId, AudioPlayer player) {
-        Queue<AudioTrack> queue = queues.get(guildId);
-        if (queue != null && !queue.isEmpty()) {
-            AudioTrack nextTrack = queue.poll();
-            if (nextTrack != null) {
-                // Create a copy of the track to avoid concurrent modification
-                AudioTrack trackToPlay = nextTrack.makeClone();
-                player.playTrack(trackToPlay);
-            }
-        } else {
-            // If queue is empty, schedule auto-disconnect
-            Guild guild = Bot.getJDAInstance().getGuildById(guildId);
-            if (guild != null) {
-                scheduleDisconnect(guild, guildId);
-            }
-        }
-    }
-
-    /**
-     * Plays the next track in the queue for the specified guild.
-     */
-    public void playNext(Guild guild) {
-        long guildId = guild.getIdLong();
-        AudioPlayer player = players.get(guildId);
-        if (player != null) {
-            playNext(guildId, player);
-        }
-    }
-
-    /**
-     * Gets the queue for the specified guild.
-     */
-    public Queue<AudioTrack> getQueue(Guild guild) {
-        return queues.get(guild.getIdLong());
-    }
-
-    /**
-     * Shuffles the queue for the specified guild.
-     */
-    public void shuffle(Guild guild) {
-        long guildId = guild.getIdLong();
-        Queue<AudioTrack> queue = queues.get(guildId);
-        if (queue != null) {
-            List<AudioTrack> tracks = new ArrayList<>(queue);
-            Collections.shuffle(tracks);
-            queue.clear();
-            queue.addAll(tracks);
-        }
-    }
-
-    /**
-     * Removes a track from the queue at the specified index.
-     */
-    public boolean remove(Guild guild, int index) {
-        long guildId = guild.getIdLong();
-        Queue<AudioTrack> queue = queues.get(guildId);
-        if (queue != null && !queue.isEmpty()) {
-            List<AudioTrack> tracks = new ArrayList<>(queue);
-            if (index >= 0 && index < tracks.size()) {
-                tracks.remove(index);
-                queue.clear();
-                queue.addAll(tracks);
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Moves a track from one position to another in the queue.
-     */
-    public boolean move(Guild guild, int fromIndex, int toIndex) {
-        long guildId = guild.getIdLong();
-        Queue<AudioTrack> queue = queues.get(guildId);
-        if (queue != null && !queue.isEmpty()) {
-            List<AudioTrack> tracks = new ArrayList<>(queue);
-            if (fromIndex >= 0 && fromIndex < tracks.size() && toIndex >= 0 && toIndex < tracks.size()) {
-                AudioTrack track = tracks.remove(fromIndex);
-                tracks.add(toIndex, track);
-                queue.clear();
-                queue.addAll(tracks);
-                return true;
-            }
-        }
-        return false;
-    }
-
-    public AudioPlayerManager getPlayerManager() {
-        return playerManager;
-    }
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
+import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.TrackMarker;
+import com.sedmelluq.discord.lavaplayer.track.TrackMarkerHandler;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.managers.AudioManager; // Add this import
+import com.example.musicbot.BotLogger;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+public class MusicManager {
+    private final AudioPlayerManager playerManager;
+    private final Map<Long, AudioPlayer> players;
+    private final Map<Long, Queue<AudioTrack>> queues;
+    private final Map<Long, ScheduledFuture<?>> disconnectTasks; // For auto-disconnect
+    private final ScheduledExecutorService scheduler; // Scheduler for tasks
+    private final long AUTO_DISCONNECT_DELAY = 30; // Auto-disconnect delay in seconds
+    private final File cacheDir;
+    private final TrackCache trackCache;
+    private final SearchCache searchCache;
+    private final NegativeCache negativeCache;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final double circuitBreakerThreshold;
+    private final long circuitBreakerCooldownMillis;
+    private final LatencyStats timeToFirstAudio = new LatencyStats();
+    private final GrowingFileSourceManager growingFileSource = new GrowingFileSourceManager();
+    private final DownloadScheduler downloadScheduler;
+    private final TrackDownloader trackDownloader;
+    private final QueuePrefetcher prefetcher;
+    private final ProgressReporter progressReporter;
+    private final DownloadJournal downloadJournal;
+    private final TranscodeService transcodeService;
+    private final ReEncoder reEncoder;
+    private final CacheMigrator cacheMigrator;
+    private final SpotifyManager spotifyManager;
+    private final SpotifyResolver spotifyResolver;
+    private final SpotifyMatchCache spotifyMatchCache;
+    private final boolean spotifyLazyResolve;
+    private final int spotifyResolveAhead;
+    private final AtomicBoolean downloadsResumed = new AtomicBoolean(false);
+    // guildId -> volume the users set, the player's volume also carries the track's loudness gain
+    private final Map<Long, Integer> volumes = new ConcurrentHashMap<>();
+    private final int defaultVolume;
+    private final boolean loudnessNormalization;
+    private final double loudnessTargetLufs;
+    private final AtomicLong tracksLeveled = new AtomicLong();
+    private final AtomicLong tracksUnleveled = new AtomicLong();
+    private final AtomicLong silenceSkippedMillis = new AtomicLong();
+    // guildId -> requests still downloading, cancelled by stop, skip and auto-disconnect
+    private final Map<Long, Set<CancellationToken>> pendingRequests = new ConcurrentHashMap<>();
+    
+    // Sources guarded by a circuit breaker
+    public static final String SOURCE_YOUTUBE = "youtube";
+    public static final String SOURCE_SOUNDCLOUD = "soundcloud";
+    public static final String SOURCE_HTTP = "http";
+    public static final String SOURCE_YTDLP = "yt-dlp";
+    private final boolean useYouTube = false; // Set to true if playing directly from YouTube
+    
+    // Loudness leveling: lavaplayer's volume curve (tangent up to 150, linear above), headroom kept
+    // below full scale, the largest boost applied and the difference that isn't worth decoding for
+    private static final double VOLUME_SCALE = 0.0079;
+    private static final int VOLUME_CURVE_END = 150;
+    private static final double MAX_PEAK_DBFS = -1.0;
+    private static final double MAX_GAIN_DB = 12.0;
+    private static final double GAIN_TOLERANCE_DB = 1.0;
+
+    private static final long INDEX_FLUSH_SECONDS = 10;
+
+    public MusicManager() {
+        // Get cache directory from config
+        BotConfig config = new BotConfig();
+        String cacheDirPath = config.getCacheDir();
+        this.cacheDir = new File(cacheDirPath);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        
+        // Load the cache index and publish its counters
+        this.trackCache = new TrackCache(cacheDir, config.getCacheMaxSizeBytes(),
+                config.getCacheMaxEntryBytes(), config.getTempTtlMillis());
+        trackCache.registerMetrics();
+        
+        // Remove temp files left behind by a crash or expired while we were offline,
+        // except partial downloads that are resumed once we're connected
+        this.downloadJournal = new DownloadJournal(cacheDir);
+        downloadJournal.registerMetrics();
+        trackCache.sweepOnStartup(downloadJournal.getPartialFiles());
+    
+        // Initialize fields that were missing initialization
+        this.disconnectTasks = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Music-Task-Scheduler");
+            t.setDaemon(true); // Allow JVM to exit if only daemon threads remain
+            return t;
+        });
+        
+        // Schedule regular cache cleanup
+        scheduler.scheduleAtFixedRate(this::cleanupCache, 1, 12, TimeUnit.HOURS);
+        
+        // Persist the cache index a few seconds after it changed, and on shutdown. Kept short, as a
+        // file admitted but not yet written to the index is left unindexed by a crash
+        scheduler.scheduleAtFixedRate(trackCache::flush, INDEX_FLUSH_SECONDS, INDEX_FLUSH_SECONDS, TimeUnit.SECONDS);
+        
+        // Expire temp files once their TTL has passed and nothing is playing them
+        scheduler.scheduleAtFixedRate(trackCache::sweepTemp, 1, 1, TimeUnit.MINUTES);
+        Runtime.getRuntime().addShutdownHook(new Thread(trackCache::flush, "Cache-Index-Flush"));
+
+        // Initialize the audio player manager with optimized settings
+        playerManager = new DefaultAudioPlayerManager();
+        
+        // Optimize player settings if available in this version
+        try {
+            playerManager.getConfiguration().setResamplingQuality(
+                    com.sedmelluq.discord.lavaplayer.player.AudioConfiguration.ResamplingQuality.MEDIUM);
+        } catch (Exception e) {
+            System.err.println("Could not set resampling quality: " + e.getMessage());
+        }
+        
+        // Register audio sources; downloads in progress are claimed before the local source sees their path
+        playerManager.registerSourceManager(growingFileSource);
+        playerManager.registerSourceManager(new YtDlpPipeSourceManager(config.getPipeBufferBytes()));
+        AudioSourceManagers.registerRemoteSources(playerManager);
+        AudioSourceManagers.registerLocalSource(playerManager);
+        
+        // Search results are shared between guilds and kept across restarts
+        this.searchCache = new SearchCache(playerManager, new File(cacheDir, "search_cache.json"),
+                config.getSearchCacheTtlMillis(), config.getSearchCacheMaxEntries());
+        searchCache.registerMetrics();
+        scheduler.scheduleAtFixedRate(searchCache::flush, 1, 1, TimeUnit.MINUTES);
+        Runtime.getRuntime().addShutdownHook(new Thread(searchCache::flush, "Search-Cache-Flush"));
+        
+        // Failed lookups are remembered briefly, failing sources are skipped for a while
+        this.negativeCache = new NegativeCache(config.getNegativeCacheTtlMillis());
+        negativeCache.registerMetrics();
+        scheduler.scheduleAtFixedRate(negativeCache::sweep, 1, 1, TimeUnit.MINUTES);
+        this.circuitBreakerThreshold = config.getCircuitBreakerThreshold();
+        this.circuitBreakerCooldownMillis = config.getCircuitBreakerCooldownMillis();
+        registerCircuitBreakerMetrics();
+        timeToFirstAudio.register("musicbot_time_to_first_audio_ms");
+        
+        // Wall and CPU time of yt-dlp, ffmpeg and ffprobe runs
+        ProcessRunner.registerMetrics();
+        
+        // ffmpeg runs share one CPU budget and back off when playback misses frames
+        AudioHealth.registerMetrics();
+        this.transcodeService = new TranscodeService(config.getTranscodeThreads(), config.getTranscodeNice());
+        transcodeService.registerMetrics();
+        this.reEncoder = new ReEncoder(transcodeService);
+        
+        // All downloads go through one prioritized pool shared by every guild
+        this.downloadScheduler = new DownloadScheduler(config.getDownloadConcurrency());
+        downloadScheduler.registerMetrics();
+        YtDlpWorkerPool ytDlpWorkers = new YtDlpWorkerPool(config.getYtDlpPython(), config.getYtDlpWorkers(),
+                config.getYtDlpWorkerMaxJobs(), cacheDir);
+        ytDlpWorkers.registerMetrics();
+        this.trackDownloader = new TrackDownloader(trackCache, growingFileSource, getCircuitBreaker(SOURCE_YTDLP),
+                ytDlpWorkers, downloadJournal, reEncoder);
+        
+        // Upcoming YouTube tracks are downloaded in the background so they play from the cache
+        this.prefetcher = new QueuePrefetcher(playerManager, trackCache, downloadScheduler, trackDownloader,
+                config.getPrefetchDepth());
+        prefetcher.registerMetrics();
+        
+        // Convert the cache to the configured format whenever nothing is playing
+        ReEncoder.Format cacheFormat = config.getCacheFormat().equals("original") ? null
+                : new ReEncoder.Format(ReEncoder.Codec.valueOf(config.getCacheFormat().toUpperCase()),
+                        config.getCacheBitrateKbps());
+        this.cacheMigrator = new CacheMigrator(trackCache, reEncoder, cacheFormat, this::isIdle,
+                transcodeService.getLimit());
+        cacheMigrator.registerMetrics();
+        
+        // Tracks are leveled with the player volume, using the loudness measured at download
+        this.defaultVolume = config.getDefaultVolume();
+        this.loudnessNormalization = config.isLoudnessNormalization();
+        this.loudnessTargetLufs = config.getLoudnessTargetLufs();
+        MetricsServer.register("musicbot_loudness_leveled_tracks_total", tracksLeveled::get);
+        MetricsServer.register("musicbot_loudness_unleveled_tracks_total", tracksUnleveled::get);
+        MetricsServer.register("musicbot_silence_skipped_ms_total", silenceSkippedMillis::get);
+        
+        // One Spotify client for all commands, so its access token is shared
+        this.spotifyManager = new SpotifyManager(config);
+        spotifyManager.registerMetrics();
+        SpotifyURLDecoder.registerMetrics();
+        this.spotifyMatchCache = new SpotifyMatchCache(playerManager, new File(cacheDir, "spotify_matches.json"),
+                config.getSpotifyMatchTtlMillis());
+        spotifyMatchCache.registerMetrics();
+        scheduler.scheduleAtFixedRate(spotifyMatchCache::flush, 1, 1, TimeUnit.MINUTES);
+        Runtime.getRuntime().addShutdownHook(new Thread(spotifyMatchCache::flush, "Spotify-Match-Flush"));
+        this.spotifyResolver = new SpotifyResolver(this::loadItem, spotifyMatchCache,
+                config.getSpotifySearchConcurrency(), config.getSpotifySearchIntervalMillis());
+        spotifyResolver.registerMetrics();
+        this.spotifyLazyResolve = config.isSpotifyLazyResolve();
+        this.spotifyResolveAhead = config.getSpotifyResolveAhead();
+        
+        // Progress messages of all guilds are edited through one throttled reporter
+        this.progressReporter = new ProgressReporter(config.getProgressUpdateIntervalMillis());
+        progressReporter.registerMetrics();
+        
+        players = new ConcurrentHashMap<>();
+        queues = new ConcurrentHashMap<>();
+    }
+
+    private void cleanupCache() {
+        try {
+            // Eviction works off the index, no directory scan needed
+            trackCache.evictToLimit();
+        } catch (Exception e) {
+            System.err.println("Error during cache cleanup: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves or creates an AudioPlayer for the given guild and attaches an event listener.
+     */
+   public AudioPlayer getPlayer(Guild guild) {
+    long guildId = guild.getIdLong();
+    // Create a new player if one does not exist.
+    if (!players.containsKey(guildId)) {
+        AudioPlayer player = playerManager.createPlayer();
+        queues.put(guildId, new ConcurrentLinkedQueue<>());
+        // Add an event listener to play the next track when the current one finishes.
+        player.addListener(new AudioEventAdapter() {
+            @Override
+            public void onTrackStart(AudioPlayer player, AudioTrack track) {
+                double gain = applyVolume(guildId, player, track);
+                (gain == 1.0 ? tracksUnleveled : tracksLeveled).incrementAndGet();
+                skipSilence(guildId, player, track);
+            }
+
+            @Override
+            public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) {
+                // The player no longer needs the file, temp files may expire again
+                trackCache.release(track.getIdentifier());
+                
+                if (endReason.mayStartNext) {
+                    // Use a thread-safe method to play the next track
+                    synchronized (this) {
+                        playNext(guildId, player);
+                    }
+                }
+            }
+        });
+        players.put(guildId, player);
+    }
+    return players.get(guildId);
+}
+
+    /**
+     * Schedule a task to disconnect from the voice channel after specified delay
+     */
+    private void scheduleDisconnect(Guild guild, long guildId) {
+        cancelDisconnectTask(guildId); // Cancel any existing task first
+        
+        ScheduledFuture<?> task = scheduler.schedule(() -> {
+            try {
+                // Check again if something is playing (could have changed while waiting)
+                AudioPlayer player = players.get(guildId);
+                if (hasPendingRequests(guild)) {
+                    // A download is about to start playing, check again later
+                    scheduleDisconnect(guild, guildId);
+                } else if (player != null && player.getPlayingTrack() == null) {
+                    // Nothing is playing, so disconnect
+                    AudioManager audioManager = guild.getAudioManager();
+                    if (audioManager.isConnected()) {
+                        System.out.println("Auto-disconnecting from voice channel in guild: " + guild.getName());
+                        cancelRequests(guild);
+                        audioManager.closeAudioConnection();
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Error in auto-disconnect task: " + e.getMessage());
+            }
+        }, AUTO_DISCONNECT_DELAY, TimeUnit.SECONDS);
+        
+        disconnectTasks.put(guildId, task);
+        System.out.println("Scheduled auto-disconnect for guild: " + guild.getName() + 
+                           " in " + AUTO_DISCONNECT_DELAY + " seconds");
+    }
+
+    /**
+     * Cancel any scheduled disconnect task
+     */
+    private void cancelDisconnectTask(long guildId) {
+        ScheduledFuture<?> task = disconnectTasks.remove(guildId);
+        if (task != null && !task.isDone()) {
+            task.cancel(false);
+            System.out.println("Cancelled auto-disconnect for guild ID: " + guildId);
+        }
+    }
+
+    /**
+     * Adds a track to the queue for the given guild.
+     */
+    public void queueTrack(Guild guild, AudioTrack track) {
+        long guildId = guild.getIdLong();
+        Queue<AudioTrack> queue = queues.computeIfAbsent(guildId, k -> new ConcurrentLinkedQueue<>());
+        queue.offer(track);
+        refreshUpcoming(guildId, queue);
+        
+        BotLogger.audio("Track queued in guild " + guild.getName() + ": " + track.getInfo().title);
+        
+        // Cancel any scheduled disconnect when a track is queued
+        cancelDisconnectTask(guildId);
+    }
+
+    /**
+     * Queues the tracks of a Spotify album or playlist as they are found on YouTube. The first
+     * one found plays right away if nothing is playing, the others follow in playlist order.
+     * The import counts as a pending request, so stop cancels it.
+     * With spotify_lazy_resolve the tracks are queued right away as placeholders instead, and
+     * searched just before they play.
+     * @param onProgress called after every track with the tracks done so far and how many were queued
+     * @param onComplete called once with the tracks queued and the tracks that weren't found
+     */
+    public void importSpotifyTracks(Guild guild, List<SpotifyManager.TrackInfo> tracks,
+                                    BiConsumer<Integer, Integer> onProgress, BiConsumer<Integer, Integer> onComplete) {
+        AudioPlayer player = getPlayer(guild);
+        if (spotifyLazyResolve) {
+            queueSpotifyPlaceholders(guild, player, tracks);
+            onComplete.accept(tracks.size(), 0);
+            return;
+        }
+
+        CancellationToken token = startRequest(guild);
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger queued = new AtomicInteger();
+
+        spotifyResolver.resolve(tracks, token, new SpotifyResolver.Listener() {
+            @Override
+            public void onResolved(int index, SpotifyManager.TrackInfo info, AudioTrack track) {
+                Queue<AudioTrack> queue = queues.get(guild.getIdLong());
+                if (player.getPlayingTrack() == null && (queue == null || queue.isEmpty())) {
+                    cancelDisconnectTask(guild.getIdLong());
+                    player.playTrack(track);
+                } else {
+                    queueTrack(guild, track);
+                }
+                onProgress.accept(done.incrementAndGet(), queued.incrementAndGet());
+            }
+
+            @Override
+            public void onFailed(int index, SpotifyManager.TrackInfo info) {
+                BotLogger.debug("No YouTube match for Spotify track " + info);
+                onProgress.accept(done.incrementAndGet(), queued.get());
+            }
+
+            @Override
+            public void onComplete(int resolved, int failed) {
+                finishRequest(guild, token);
+                onComplete.accept(resolved, failed);
+            }
+        });
+    }
+
+    /**
+     * Queues the tracks of a Spotify import without searching them: each one is searched on
+     * YouTube shortly before it plays, so entries that are skipped or removed never cost a search.
+     */
+    private void queueSpotifyPlaceholders(Guild guild, AudioPlayer player, List<SpotifyManager.TrackInfo> tracks) {
+        List<AudioTrack> placeholders = new ArrayList<>(tracks.size());
+        for (SpotifyManager.TrackInfo info : tracks) {
+            placeholders.add(new SpotifyPlaceholderTrack(info, spotifyResolver));
+        }
+        if (placeholders.isEmpty()) return;
+
+        Queue<AudioTrack> queue = queues.get(guild.getIdLong());
+        if (player.getPlayingTrack() == null && (queue == null || queue.isEmpty())) {
+            // Searched right away, it plays as soon as it's found
+            SpotifyPlaceholderTrack first = (SpotifyPlaceholderTrack) placeholders.remove(0);
+            first.resolve();
+            cancelDisconnectTask(guild.getIdLong());
+            player.playTrack(first);
+        }
+        if (!placeholders.isEmpty()) {
+            queueTracks(guild, placeholders);
+        }
+    }
+
+    /**
+     * Adds several tracks to the end of a guild's queue at once.
+     */
+    public void queueTracks(Guild guild, List<AudioTrack> tracks) {
+        long guildId = guild.getIdLong();
+        Queue<AudioTrack> queue = queues.computeIfAbsent(guildId, k -> new ConcurrentLinkedQueue<>());
+        queue.addAll(tracks);
+        refreshUpcoming(guildId, queue);
+        
+        BotLogger.audio(tracks.size() + " tracks queued in guild " + guild.getName());
+        cancelDisconnectTask(guildId);
+    }
+
+    /**
+     * Called whenever a guild's queue changed: downloads the YouTube tracks at its front, and
+     * searches the Spotify placeholders that come up within the next few positions. A
+     * placeholder that was found is prefetched like any other YouTube track.
+     */
+    private void refreshUpcoming(long guildId, Queue<AudioTrack> queue) {
+        int position = 0;
+        for (AudioTrack track : queue) {
+            if (position++ >= spotifyResolveAhead) break;
+            if (track instanceof SpotifyPlaceholderTrack && !((SpotifyPlaceholderTrack) track).isResolutionStarted()) {
+                ((SpotifyPlaceholderTrack) track).resolve().thenRun(() -> prefetcher.refresh(guildId, queue));
+            }
+        }
+        prefetcher.refresh(guildId, queue);
+    }
+
+    /**
+     * Registers a request that downloads before it plays, so stop and skip can cancel it.
+     * Call finishRequest once it played or failed.
+     */
+    public CancellationToken startRequest(Guild guild) {
+        CancellationToken token = new CancellationToken();
+        pendingRequests.computeIfAbsent(guild.getIdLong(), k -> ConcurrentHashMap.newKeySet()).add(token);
+        return token;
+    }
+
+    public void finishRequest(Guild guild, CancellationToken token) {
+        Set<CancellationToken> tokens = pendingRequests.get(guild.getIdLong());
+        if (tokens != null) {
+            tokens.remove(token);
+        }
+    }
+
+    public boolean hasPendingRequests(Guild guild) {
+        Set<CancellationToken> tokens = pendingRequests.get(guild.getIdLong());
+        return tokens != null && !tokens.isEmpty();
+    }
+
+    /**
+     * Cancels every pending request of a guild: their downloads are stopped and their
+     * partial files deleted, unless another guild is waiting for the same download.
+     * @return the number of requests cancelled
+     */
+    public int cancelRequests(Guild guild) {
+        Set<CancellationToken> tokens = pendingRequests.remove(guild.getIdLong());
+        if (tokens == null) return 0;
+
+        tokens.forEach(CancellationToken::cancel);
+        if (!tokens.isEmpty()) {
+            BotLogger.info("Cancelled " + tokens.size() + " pending request(s) in guild " + guild.getName());
+        }
+        return tokens.size();
+    }
+
+    /**
+     * Cancels the download a track is playing from, when the track is skipped before the download finished
+     */
+    public void cancelRequestPlaying(Guild guild, AudioTrack track) {
+        Set<CancellationToken> tokens = pendingRequests.get(guild.getIdLong());
+        if (tokens == null || track == null) return;
+
+        for (CancellationToken token : tokens) {
+            if (track.getIdentifier().equals(token.getTrackIdentifier())) {
+                tokens.remove(token);
+                token.cancel();
+            }
+        }
+    }
+
+    /**
+     * Sets the volume users hear in a guild, 0-150. The playing track keeps its loudness adjustment.
+     */
+    public void setVolume(Guild guild, int volume) {
+        volumes.put(guild.getIdLong(), volume);
+        AudioPlayer player = getPlayer(guild);
+        applyVolume(guild.getIdLong(), player, player.getPlayingTrack());
+    }
+
+    public int getVolume(Guild guild) {
+        return volumes.getOrDefault(guild.getIdLong(), defaultVolume);
+    }
+
+    /**
+     * Sets the player volume to the guild's volume combined with the gain that brings the track
+     * to the loudness target. Tracks that are close enough to the target (and tracks that weren't
+     * measured) get no gain, so at volume 100 lavaplayer passes their Opus frames through
+     * without decoding them.
+     * @return the gain applied to the track
+     */
+    private double applyVolume(long guildId, AudioPlayer player, AudioTrack track) {
+        int volume = volumes.getOrDefault(guildId, defaultVolume);
+        double gain = track != null ? loudnessGain(track) : 1.0;
+        if (gain == 1.0) {
+            player.setVolume(volume);
+            return gain;
+        }
+        double multiplier = volumeToMultiplier(volume) * gain;
+        player.setVolume((int) Math.max(0, Math.min(1000, Math.round(multiplierToVolume(multiplier)))));
+        return gain;
+    }
+
+    // lavaplayer scales samples by tan(volume * VOLUME_SCALE) up to 150 and linearly from there on
+    private static double volumeToMultiplier(double volume) {
+        if (volume <= VOLUME_CURVE_END) {
+            return Math.tan(volume * VOLUME_SCALE);
+        }
+        return Math.tan(VOLUME_CURVE_END * VOLUME_SCALE) * volume / VOLUME_CURVE_END;
+    }
+
+    private static double multiplierToVolume(double multiplier) {
+        double curveEnd = Math.tan(VOLUME_CURVE_END * VOLUME_SCALE);
+        if (multiplier <= curveEnd) {
+            return Math.atan(multiplier) / VOLUME_SCALE;
+        }
+        return multiplier / curveEnd * VOLUME_CURVE_END;
+    }
+
+    /**
+     * Linear gain for a track, 1.0 when it should play as it is
+     */
+    private double loudnessGain(AudioTrack track) {
+        if (!loudnessNormalization) return 1.0;
+
+        TrackCache.CacheEntry entry = trackCache.entryForPath(track.getIdentifier());
+        if (entry == null || !entry.hasLoudness() || Double.isInfinite(entry.getLoudnessLufs())) {
+            return 1.0;
+        }
+
+        double gainDb = loudnessTargetLufs - entry.getLoudnessLufs();
+        // Never push the peak into clipping, and don't blow up quiet intros and silence
+        if (!Double.isNaN(entry.getPeakDbfs())) {
+            gainDb = Math.min(gainDb, MAX_PEAK_DBFS - entry.getPeakDbfs());
+        }
+        gainDb = Math.min(gainDb, MAX_GAIN_DB);
+
+        if (Math.abs(gainDb) < GAIN_TOLERANCE_DB) {
+            return 1.0;
+        }
+        return Math.pow(10, gainDb / 20);
+    }
+
+    /**
+     * Plays a cached track without the silence measured at its start and end: it's started past
+     * the leading silence and ended when the trailing silence begins. Both are seeks in the file,
+     * the audio itself isn't touched.
+     */
+    private void skipSilence(long guildId, AudioPlayer player, AudioTrack track) {
+        TrackCache.CacheEntry entry = trackCache.entryForPath(track.getIdentifier());
+        if (entry == null || !track.isSeekable()) return;
+
+        long start = entry.getStartMillis();
+        if (start > 0 && track.getPosition() < start) {
+            silenceSkippedMillis.addAndGet(start - track.getPosition());
+            track.setPosition(start);
+        }
+
+        long end = entry.getEndMillis();
+        if (end > start && end < track.getDuration()) {
+            track.setMarker(new TrackMarker(end, state -> {
+                // Seeking past the marker means someone wants to hear the rest
+                if (state != TrackMarkerHandler.MarkerState.REACHED && state != TrackMarkerHandler.MarkerState.LATE) {
+                    return;
+                }
+                // Not on the playback thread that reached the marker
+                scheduler.execute(() -> {
+                    if (player.getPlayingTrack() != track) return;
+                    silenceSkippedMillis.addAndGet(Math.max(0, track.getDuration() - end));
+                    player.stopTrack();
+                    playNext(guildId, player);
+                });
+            }));
+        }
+    }
+
+    /**
+     * True when no guild is playing and no download is waiting, background work may use the CPU then
+     */
+    public boolean isIdle() {
+        return players.values().stream().allMatch(player -> player.getPlayingTrack() == null)
+                && pendingRequests.values().stream().allMatch(Set::isEmpty)
+                && downloadScheduler.getQueueDepth().values().stream().allMatch(depth -> depth.longValue() == 0);
+    }
+
+    /**
+     * Continues the downloads a restart interrupted, once the bot is connected. A track someone
+     * was waiting for is played (or queued) in their guild when its download is done, the
+     * others just end up in the cache.
+     */
+    public void resumeDownloads(JDA jda) {
+        // Only the jobs left by the previous run
+        if (!downloadsResumed.compareAndSet(false, true)) return;
+
+        for (DownloadJournal.Job job : downloadJournal.getJobs()) {
+            String videoId = job.getVideoId();
+            // Nobody decided whether to keep it before the restart
+            TrackCache.Tier tier = job.getTier() != null ? job.getTier() : TrackCache.Tier.TEMP;
+            Guild guild = job.getGuildId() != 0 ? jda.getGuildById(job.getGuildId()) : null;
+
+            if (guild == null) {
+                downloadScheduler.submit(videoId, DownloadScheduler.Priority.PREFETCH, null,
+                        () -> trackDownloader.download(job.getUrl(), videoId, tier, 0, new TrackDownloader.Listener() {}));
+                continue;
+            }
+
+            // Stop in that guild cancels the resumed download like any other request
+            CancellationToken token = startRequest(guild);
+            DownloadScheduler.Ticket ticket = downloadScheduler.submit(videoId, DownloadScheduler.Priority.NEXT_IN_QUEUE,
+                    token, () -> trackDownloader.download(job.getUrl(), videoId, tier, 0, new TrackDownloader.Listener() {}));
+            ticket.getResult().whenComplete((file, failure) -> {
+                finishRequest(guild, token);
+                if (failure == null && !token.isCancelled()) {
+                    playResumed(guild, job, file);
+                } else if (failure != null) {
+                    BotLogger.warn("Resumed download of " + videoId + " failed: " + failure.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Plays a track whose download was resumed after a restart in the guild that asked for it,
+     * if someone is still listening there
+     */
+    private void playResumed(Guild guild, DownloadJournal.Job job, File file) {
+        AudioManager audioManager = guild.getAudioManager();
+        AudioChannel voiceChannel = guild.getChannelById(AudioChannel.class, job.getVoiceChannelId());
+        boolean listening = voiceChannel != null
+                && voiceChannel.getMembers().stream().anyMatch(member -> !member.getUser().isBot());
+        if (!audioManager.isConnected() && !listening) {
+            BotLogger.info("Resumed download of " + job.getVideoId() + " finished, nobody is listening in " + guild.getName());
+            return;
+        }
+
+        String path = file.getAbsolutePath();
+        loadItem(path, new AudioLoadResultHandler() {
+            @Override
+            public void trackLoaded(AudioTrack track) {
+                AudioPlayer player = getPlayer(guild);
+                if (!audioManager.isConnected()) {
+                    audioManager.openAudioConnection(voiceChannel);
+                }
+                if (audioManager.getSendingHandler() == null) {
+                    audioManager.setSendingHandler(new AudioPlayerSendHandler(player));
+                }
+
+                // Hold the file until the track ends or leaves the queue
+                trackCache.acquire(path);
+                boolean queued = player.getPlayingTrack() != null;
+                if (queued) {
+                    queueTrack(guild, track);
+                } else {
+                    player.playTrack(track);
+                }
+
+                TrackCache.CacheEntry entry = trackCache.peek(job.getVideoId());
+                String title = entry != null ? entry.getTitle() : track.getInfo().title;
+                GuildMessageChannel textChannel = guild.getChannelById(GuildMessageChannel.class, job.getTextChannelId());
+                if (textChannel != null) {
+                    textChannel.sendMessage((queued ? "🎵 Queued `" : "🎵 Now playing `") + title
+                            + "`, its download was resumed after a restart.").queue(null, error -> {});
+                }
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist) {
+                if (!playlist.getTracks().isEmpty()) {
+                    trackLoaded(playlist.getTracks().get(0));
+                }
+            }
+
+            @Override
+            public void noMatches() {
+                BotLogger.warn("Could not play resumed download " + path);
+            }
+
+            @Override
+            public void loadFailed(FriendlyException exception) {
+                BotLogger.warn("Could not play resumed download " + path + ": " + exception.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Clears the queue for the given guild.
+     */
+    public void clearQueue(Guild guild) {
+        long guildId = guild.getIdLong();
+        Queue<AudioTrack> queue = queues.get(guildId);
+        if (queue != null) {
+            // Release the files held by queued tracks that will never play
+            AudioTrack track;
+            while ((track = queue.poll()) != null) {
+                trackCache.release(track.getIdentifier());
+                // Stop a "Just this time" pipe that was started for the track
+                if (track instanceof YtDlpPipeAudioTrack) {
+                    ((YtDlpPipeAudioTrack) track).discardPendingProcess();
+                }
+            }
+        }
+        prefetcher.cancel(guildId);
+    }
+
+    /**
+     * Plays the next track in the queue, if available.
+     */
+    public synchronized void playNext(long guildId, AudioPlayer player) {
+        Queue<AudioTrack> queue = queues.get(guildId);
+        if (queue != null && !queue.isEmpty()) {
+            AudioTrack nextTrack = queue.poll();
+            // Spotify entries that turned out to have no match on YouTube are skipped
+            while (nextTrack instanceof SpotifyPlaceholderTrack && ((SpotifyPlaceholderTrack) nextTrack).isUnresolvable()) {
+                BotLogger.debug("Skipping " + nextTrack.getInfo().title + ", it wasn't found on YouTube");
+                nextTrack = queue.poll();
+            }
+            // Swapped before the prefetcher is refreshed, which drops the copy of the entry that left the queue
+            AudioTrack trackToPlay = nextTrack != null ? prefetcher.swap(nextTrack) : null;
+            refreshUpcoming(guildId, queue);
+            if (trackToPlay != null) {
+                // Play the prefetched copy if the download finished; a copy of the track avoids concurrent modification
+                player.playTrack(trackToPlay.makeClone());
+                return;
+            }
+        }
+
+        // If queue is empty (or only had entries that can't be played), schedule auto-disconnect
+        Guild guild = Bot.getJDAInstance().getGuildById(guildId);
+        if (guild != null) {
+            scheduleDisconnect(guild, guildId);
+        }
+    }
+
+    /**
+     * Plays the next track in the queue for the specified guild.
+     */
+    public void playNext(Guild guild) {
+        long guildId = guild.getIdLong();
+        AudioPlayer player = players.get(guildId);
+        if (player != null) {
+            playNext(guildId, player);
+        }
+    }
+
+    /**
+     * Gets the queue for the specified guild.
+     */
+    public Queue<AudioTrack> getQueue(Guild guild) {
+        return queues.get(guild.getIdLong());
+    }
+
+    /**
+     * Shuffles the queue for the specified guild.
+     */
+    public void shuffle(Guild guild) {
+        long guildId = guild.getIdLong();
+        Queue<AudioTrack> queue = queues.get(guildId);
+        if (queue != null) {
+            List<AudioTrack> tracks = new ArrayList<>(queue);
+            Collections.shuffle(tracks);
+            queue.clear();
+            queue.addAll(tracks);
+            refreshUpcoming(guildId, queue);
+        }
+    }
+
+    /**
+     * Removes a track from the queue at the specified index.
+     */
+    public boolean remove(Guild guild, int index) {
+        long guildId = guild.getIdLong();
+        Queue<AudioTrack> queue = queues.get(guildId);
+        if (queue != null && !queue.isEmpty()) {
+            List<AudioTrack> tracks = new ArrayList<>(queue);
+            if (index >= 0 && index < tracks.size()) {
+                AudioTrack removed = tracks.remove(index);
+                trackCache.release(removed.getIdentifier());
+                if (removed instanceof YtDlpPipeAudioTrack) {
+                    ((YtDlpPipeAudioTrack) removed).discardPendingProcess();
+                }
+                queue.clear();
+                queue.addAll(tracks);
+                refreshUpcoming(guildId, queue);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves a track from one position to another in the queue.
+     */
+    public boolean move(Guild guild, int fromIndex, int toIndex) {
+        long guildId = guild.getIdLong();
+        Queue<AudioTrack> queue = queues.get(guildId);
+        if (queue != null && !queue.isEmpty()) {
+            List<AudioTrack> tracks = new ArrayList<>(queue);
+            if (fromIndex >= 0 && fromIndex < tracks.size() && toIndex >= 0 && toIndex < tracks.size()) {
+                AudioTrack track = tracks.remove(fromIndex);
+                tracks.add(toIndex, track);
+                queue.clear();
+                queue.addAll(tracks);
+                refreshUpcoming(guildId, queue);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads a track, playlist or search through lavaplayer. Remote lookups go through the
+     * negative cache, the search cache and the circuit breaker of their source; when a search
+     * source is failing, the search is sent to the other platform instead.
+     */
+    public void loadItem(String identifier, AudioLoadResultHandler handler) {
+        loadItem(identifier, handler, true);
+    }
+    
+    private void loadItem(String identifier, AudioLoadResultHandler handler, boolean allowFallback) {
+        String source = sourceOf(identifier);
+        
+        // Local files go straight to lavaplayer
+        if (source == null) {
+            playerManager.loadItem(identifier, handler);
+            return;
+        }
+        
+        // Answer retries of a lookup that just failed without going to the network. Searches
+        // differing only in case or spacing share an entry, URLs (e.g. YouTube video IDs) are case-sensitive
+        boolean isSearch = SearchCache.isSearch(identifier);
+        String key = isSearch ? SearchCache.normalize(identifier) : identifier;
+        NegativeCache.Failure failure = negativeCache.get(key);
+        if (failure != null) {
+            if (failure.isNoMatches()) {
+                handler.noMatches();
+            } else {
+                handler.loadFailed(new FriendlyException(failure.getMessage(), FriendlyException.Severity.COMMON, null));
+            }
+            return;
+        }
+        
+        if (isSearch) {
+            List<AudioTrack> cached = searchCache.get(identifier);
+            if (cached != null) {
+                String query = identifier.substring(identifier.indexOf(':') + 1);
+                handler.playlistLoaded(new BasicAudioPlaylist("Search results for: " + query, cached, null, true));
+                return;
+            }
+        }
+        
+        CircuitBreaker breaker = getCircuitBreaker(source);
+        if (!breaker.allowRequest()) {
+            String alternate = allowFallback ? alternateSearch(identifier) : null;
+            if (alternate != null) {
+                BotLogger.info("Source " + source + " is failing, searching " + sourceOf(alternate) + " instead");
+                loadItem(alternate, handler, false);
+            } else {
+                handler.loadFailed(new FriendlyException("The " + source + " source is temporarily unavailable, please try again in a minute.",
+                        FriendlyException.Severity.COMMON, null));
+            }
+            return;
+        }
+        
+        playerManager.loadItem(identifier, new AudioLoadResultHandler() {
+            @Override
+            public void trackLoaded(AudioTrack track) {
+                breaker.recordSuccess();
+                if (isSearch) {
+                    searchCache.put(identifier, Collections.singletonList(track));
+                }
+                handler.trackLoaded(track);
+            }
+            
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist) {
+                breaker.recordSuccess();
+                if (isSearch) {
+                    searchCache.put(identifier, playlist.getTracks());
+                }
+                handler.playlistLoaded(playlist);
+            }
+            
+            @Override
+            public void noMatches() {
+                // The source answered, there just wasn't anything
+                breaker.recordSuccess();
+                negativeCache.putNoMatches(key);
+                handler.noMatches();
+            }
+            
+            @Override
+            public void loadFailed(FriendlyException exception) {
+                // Common failures (private or removed videos) are not the source's fault
+                if (exception.severity == FriendlyException.Severity.COMMON) {
+                    breaker.recordSuccess();
+                } else {
+                    breaker.recordFailure();
+                }
+                negativeCache.putFailure(key, exception.getMessage());
+                handler.loadFailed(exception);
+            }
+        });
+    }
+    
+    /**
+     * Returns the circuit breaker for a source, creating it on first use
+     */
+    public CircuitBreaker getCircuitBreaker(String source) {
+        return circuitBreakers.computeIfAbsent(source,
+                name -> new CircuitBreaker(name, circuitBreakerThreshold, circuitBreakerCooldownMillis));
+    }
+    
+    /**
+     * Which circuit breaker guards a lavaplayer identifier, null for local files
+     */
+    private static String sourceOf(String identifier) {
+        if (identifier.startsWith(YtDlpPipeSourceManager.PREFIX)) {
+            return SOURCE_YTDLP;
+        }
+        if (identifier.startsWith("ytsearch:") || identifier.startsWith("ytmsearch:")
+                || identifier.contains("youtube.com") || identifier.contains("youtu.be")) {
+            return SOURCE_YOUTUBE;
+        }
+        if (identifier.startsWith("scsearch:") || identifier.contains("soundcloud.com")) {
+            return SOURCE_SOUNDCLOUD;
+        }
+        if (identifier.startsWith("http://") || identifier.startsWith("https://")) {
+            return SOURCE_HTTP;
+        }
+        return null;
+    }
+    
+    /**
+     * The same search on the other platform, or null if the identifier isn't a search
+     */
+    private static String alternateSearch(String identifier) {
+        if (identifier.startsWith("ytsearch:") || identifier.startsWith("ytmsearch:")) {
+            return "scsearch:" + identifier.substring(identifier.indexOf(':') + 1);
+        }
+        if (identifier.startsWith("scsearch:")) {
+            return "ytsearch:" + identifier.substring(identifier.indexOf(':') + 1);
+        }
+        return null;
+    }
+    
+    private void registerCircuitBreakerMetrics() {
+        MetricsServer.registerLabeled("musicbot_circuit_breaker_open", "source", () -> {
+            Map<String, Number> values = new TreeMap<>();
+            circuitBreakers.forEach((name, breaker) ->
+                    values.put(name, breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1));
+            return values;
+        });
+        MetricsServer.registerLabeled("musicbot_circuit_breaker_error_rate", "source", () -> {
+            Map<String, Number> values = new TreeMap<>();
+            circuitBreakers.forEach((name, breaker) -> values.put(name, breaker.getErrorRate()));
+            return values;
+        });
+        MetricsServer.registerLabeled("musicbot_circuit_breaker_rejected_total", "source", () -> {
+            Map<String, Number> values = new TreeMap<>();
+            circuitBreakers.forEach((name, breaker) -> values.put(name, breaker.getRejected()));
+            return values;
+        });
+    }
+
+    public AudioPlayerManager getPlayerManager() {
+        return playerManager;
+    }
+
+    /**
+     * Time from a play request until its track starts, for tracks that play right away
+     */
+    public LatencyStats getTimeToFirstAudio() {
+        return timeToFirstAudio;
+    }
+
+    public GrowingFileSourceManager getGrowingFileSource() {
+        return growingFileSource;
+    }
+
+    public TrackCache getTrackCache() {
+        return trackCache;
+    }
+    
+    public DownloadScheduler getDownloadScheduler() {
+        return downloadScheduler;
+    }
+    
+    public TrackDownloader getTrackDownloader() {
+        return trackDownloader;
+    }
+    
+    public ProgressReporter getProgressReporter() {
+        return progressReporter;
+    }
+
+    public SpotifyManager getSpotifyManager() {
+        return spotifyManager;
+    }
+
+    public SpotifyResolver getSpotifyResolver() {
+        return spotifyResolver;
+    }
+
+    public SpotifyMatchCache getSpotifyMatchCache() {
+        return spotifyMatchCache;
+    }
+    
+    public DownloadJournal getDownloadJournal() {
+        return downloadJournal;
+    }
+    
+    public TranscodeService getTranscodeService() {
+        return transcodeService;
+    }
+    
+    public ReEncoder getReEncoder() {
+        return reEncoder;
+    }
+    
+    public CacheMigrator getCacheMigrator() {
+        return cacheMigrator;
+    }
 }
\ No newline at end of file
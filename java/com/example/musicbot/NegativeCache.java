@@ -0,0 +1,100 @@
+package com.example.musicbot;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived memory of lookups that found nothing or failed, so a user retrying the
+ * same search or link straight away gets the answer without another network round-trip.
+ */
+public class NegativeCache {
+    // Keep the map from growing without bound between sweeps
+    private static final int MAX_ENTRIES = 10000;
+
+    private final long ttlMillis;
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+
+    public NegativeCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the remembered failure for a lookup, or null if it should be tried again
+     */
+    public Failure get(String key) {
+        Failure failure = failures.get(key);
+        if (failure == null) return null;
+
+        if (failure.expiresAt <= System.currentTimeMillis()) {
+            failures.remove(key, failure);
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return failure;
+    }
+
+    /**
+     * Remembers a lookup that returned no matches
+     */
+    public void putNoMatches(String key) {
+        put(key, new Failure(null, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Remembers a lookup that failed with the given message
+     */
+    public void putFailure(String key, String message) {
+        put(key, new Failure(message == null ? "Unknown error" : message, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Drops expired failures.
+     */
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        failures.values().removeIf(failure -> failure.expiresAt <= now);
+    }
+
+    /**
+     * Exposes the negative cache counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_negative_cache_hits_total", hits::get);
+        MetricsServer.register("musicbot_negative_cache_entries", failures::size);
+    }
+
+    private void put(String key, Failure failure) {
+        if (ttlMillis <= 0) return;
+
+        if (failures.size() >= MAX_ENTRIES) {
+            sweep();
+        }
+        if (failures.size() < MAX_ENTRIES) {
+            failures.put(key, failure);
+        }
+    }
+
+    /**
+     * A remembered failed lookup. A null message means the lookup simply had no matches.
+     */
+    public static class Failure {
+        private final String message;
+        private final long expiresAt;
+
+        Failure(String message, long expiresAt) {
+            this.message = message;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isNoMatches() {
+            return message == null;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
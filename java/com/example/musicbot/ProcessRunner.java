@@ -0,0 +1,357 @@
+package com.example.musicbot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs external programs (yt-dlp, ffmpeg, ffprobe). stdout and stderr are drained on their own
+ * threads from the moment the process starts, line by line into the given handlers, so a
+ * chatty program can never block on a full pipe. Runs can be given a timeout and cancelled,
+ * both kill the whole process tree. Wall and CPU time of every run are recorded per program.
+ *
+ * <pre>
+ * ProcessRunner.Execution execution = new ProcessRunner("ffmpeg", command)
+ *         .onStderr(line -> ...)
+ *         .timeout(5, TimeUnit.MINUTES)
+ *         .start();
+ * ProcessRunner.Result result = execution.await();
+ * </pre>
+ */
+public class ProcessRunner {
+    private static final int STDERR_TAIL_LINES = 20;
+    private static final long CPU_SAMPLE_MILLIS = 1000;
+
+    private static final ExecutorService drainers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Process-Output");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Process-Watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Map<String, ProgramStats> stats = new ConcurrentHashMap<>();
+    private static final Set<Execution> running = ConcurrentHashMap.newKeySet();
+
+    static {
+        // A yt-dlp left running would keep writing a partial download the next run resumes
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> running.forEach(Execution::destroyTree),
+                "Process-Shutdown"));
+    }
+
+    private final String program;
+    private final List<String> command;
+    private Consumer<String> stdoutHandler;
+    private boolean rawStdout;
+    private Consumer<String> stderrHandler = line -> { };
+    private long timeoutMillis;
+
+    /**
+     * @param program short name the run is recorded under, e.g. "ffmpeg"
+     */
+    public ProcessRunner(String program, List<String> command) {
+        this.program = program;
+        this.command = new ArrayList<>(command);
+        this.stdoutHandler = line -> { };
+    }
+
+    /**
+     * Handler for stdout lines, called on a drainer thread
+     */
+    public ProcessRunner onStdout(Consumer<String> handler) {
+        this.stdoutHandler = handler;
+        this.rawStdout = false;
+        return this;
+    }
+
+    /**
+     * Leaves stdout to the caller (Execution.getStdout), for programs that write media to it
+     */
+    public ProcessRunner rawStdout() {
+        this.rawStdout = true;
+        return this;
+    }
+
+    /**
+     * Handler for stderr lines, called on a drainer thread. The last lines are also kept for error messages.
+     */
+    public ProcessRunner onStderr(Consumer<String> handler) {
+        this.stderrHandler = handler;
+        return this;
+    }
+
+    /**
+     * Kills the process if it's still running after this time, 0 for no limit
+     */
+    public ProcessRunner timeout(long duration, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public Execution start() throws IOException {
+        Process process = new ProcessBuilder(command).start();
+        return new Execution(this, process);
+    }
+
+    /**
+     * Exposes run counts and wall/CPU time per program on the metrics endpoint.
+     */
+    public static void registerMetrics() {
+        MetricsServer.registerLabeled("musicbot_process_runs_total", "program",
+                () -> collect(s -> s.wallTime.getCount()));
+        MetricsServer.registerLabeled("musicbot_process_wall_ms_sum", "program",
+                () -> collect(s -> s.wallTime.getSum()));
+        MetricsServer.registerLabeled("musicbot_process_wall_ms_max", "program",
+                () -> collect(s -> s.wallTime.getMax()));
+        MetricsServer.registerLabeled("musicbot_process_cpu_ms_sum", "program",
+                () -> collect(s -> s.cpuMillis.get()));
+        MetricsServer.registerLabeled("musicbot_process_timeouts_total", "program",
+                () -> collect(s -> s.timeouts.get()));
+        MetricsServer.registerLabeled("musicbot_process_cancelled_total", "program",
+                () -> collect(s -> s.cancelled.get()));
+    }
+
+    private static Map<String, Number> collect(Function<ProgramStats, Number> value) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        stats.forEach((program, programStats) -> values.put(program, value.apply(programStats)));
+        return values;
+    }
+
+    /**
+     * A started process
+     */
+    public static class Execution {
+        private final String program;
+        private final Process process;
+        private final long startedAt = System.currentTimeMillis();
+        private final Deque<String> stderrTail = new ArrayDeque<>();
+        private final CompletableFuture<Result> completion = new CompletableFuture<>();
+        private final ScheduledFuture<?> cpuSampler;
+        private final ScheduledFuture<?> timeoutTask;
+
+        private volatile long cpuMillis;
+        private volatile boolean timedOut;
+        private volatile boolean cancelled;
+
+        private Execution(ProcessRunner runner, Process process) {
+            this.program = runner.program;
+            this.process = process;
+            running.add(this);
+
+            CompletableFuture<Void> stdoutDrained = runner.rawStdout
+                    ? CompletableFuture.completedFuture(null)
+                    : drain(process.getInputStream(), runner.stdoutHandler);
+            CompletableFuture<Void> stderrDrained = drain(process.getErrorStream(), line -> {
+                synchronized (stderrTail) {
+                    if (stderrTail.size() == STDERR_TAIL_LINES) stderrTail.removeFirst();
+                    stderrTail.addLast(line);
+                }
+                runner.stderrHandler.accept(line);
+            });
+
+            cpuSampler = watchdog.scheduleAtFixedRate(this::sampleCpu, CPU_SAMPLE_MILLIS, CPU_SAMPLE_MILLIS,
+                    TimeUnit.MILLISECONDS);
+            timeoutTask = runner.timeoutMillis > 0
+                    ? watchdog.schedule(this::onTimeout, runner.timeoutMillis, TimeUnit.MILLISECONDS)
+                    : null;
+
+            // Complete once the process exited and all its output has been handled
+            CompletableFuture.allOf(process.onExit(), stdoutDrained, stderrDrained).whenComplete((ignored, error) -> {
+                running.remove(this);
+                cpuSampler.cancel(false);
+                if (timeoutTask != null) timeoutTask.cancel(false);
+
+                Result result = new Result(process.exitValue(), timedOut, cancelled,
+                        System.currentTimeMillis() - startedAt, cpuMillis, getStderrTail());
+                stats.computeIfAbsent(program, name -> new ProgramStats()).record(result);
+                completion.complete(result);
+            });
+        }
+
+        /**
+         * Waits for the process to exit. If the waiting thread is interrupted the process is killed.
+         */
+        public Result await() throws InterruptedException {
+            try {
+                return completion.get();
+            } catch (InterruptedException e) {
+                cancel();
+                throw e;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        /**
+         * Completes when the process exited and its output was drained
+         */
+        public CompletableFuture<Result> getCompletion() {
+            return completion;
+        }
+
+        /**
+         * Kills the process and everything it started
+         */
+        public void cancel() {
+            if (!process.isAlive()) return;
+            cancelled = true;
+            destroyTree();
+        }
+
+        public boolean isAlive() {
+            return process.isAlive();
+        }
+
+        public OutputStream getStdin() {
+            return process.getOutputStream();
+        }
+
+        /**
+         * stdout of a process started with rawStdout()
+         */
+        public InputStream getStdout() {
+            return process.getInputStream();
+        }
+
+        /**
+         * The last lines the process printed on stderr
+         */
+        public String getStderrTail() {
+            synchronized (stderrTail) {
+                return String.join("\n", stderrTail);
+            }
+        }
+
+        private void onTimeout() {
+            if (!process.isAlive()) return;
+            timedOut = true;
+            BotLogger.warn(program + " timed out, killing it");
+            destroyTree();
+        }
+
+        private void destroyTree() {
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }
+
+        private void sampleCpu() {
+            // Children (ffmpeg started by yt-dlp) count towards the run
+            long total = cpuOf(process.toHandle()) + process.descendants().mapToLong(Execution::cpuOf).sum();
+            cpuMillis = Math.max(cpuMillis, total);
+        }
+
+        private static long cpuOf(ProcessHandle handle) {
+            return handle.info().totalCpuDuration().map(Duration::toMillis).orElse(0L);
+        }
+
+        private static CompletableFuture<Void> drain(InputStream stream, Consumer<String> handler) {
+            return CompletableFuture.runAsync(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        try {
+                            handler.accept(line);
+                        } catch (RuntimeException e) {
+                            BotLogger.debug("Output handler failed: " + e.getMessage());
+                        }
+                    }
+                } catch (IOException e) {
+                    // Process was killed
+                }
+            }, drainers);
+        }
+    }
+
+    /**
+     * How a run ended
+     */
+    public static class Result {
+        private final int exitCode;
+        private final boolean timedOut;
+        private final boolean cancelled;
+        private final long wallMillis;
+        private final long cpuMillis;
+        private final String stderrTail;
+
+        Result(int exitCode, boolean timedOut, boolean cancelled, long wallMillis, long cpuMillis, String stderrTail) {
+            this.exitCode = exitCode;
+            this.timedOut = timedOut;
+            this.cancelled = cancelled;
+            this.wallMillis = wallMillis;
+            this.cpuMillis = cpuMillis;
+            this.stderrTail = stderrTail;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * Exited on its own with exit code 0
+         */
+        public boolean isSuccess() {
+            return exitCode == 0 && !timedOut && !cancelled;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        /**
+         * CPU time of the process and its children, sampled once a second while it ran
+         */
+        public long getCpuMillis() {
+            return cpuMillis;
+        }
+
+        public String getStderrTail() {
+            return stderrTail;
+        }
+    }
+
+    private static class ProgramStats {
+        private final LatencyStats wallTime = new LatencyStats();
+        private final AtomicLong cpuMillis = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+
+        void record(Result result) {
+            wallTime.record(result.getWallMillis());
+            cpuMillis.addAndGet(result.getCpuMillis());
+            if (result.isTimedOut()) timeouts.incrementAndGet();
+            if (result.isCancelled()) cancelled.incrementAndGet();
+        }
+    }
+}
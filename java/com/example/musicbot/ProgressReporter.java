@@ -0,0 +1,143 @@
+package com.example.musicbot;
+
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Edits progress messages (downloads, Spotify imports) without flooding Discord. Updates to a
+ * message are coalesced: at most one edit per interval is sent, carrying the latest content,
+ * and content that equals what the message already shows is not sent at all. All messages
+ * share one scheduler thread.
+ *
+ * <pre>
+ * ProgressReporter.Progress&lt;Message&gt; progress = reporter.open(message::editMessageEmbeds);
+ * progress.update(embed);                  // as often as you like
+ * progress.finish(finalEmbed).queue();     // last edit, sent right away
+ * </pre>
+ */
+public class ProgressReporter {
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Progress-Reporter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final long intervalMillis;
+
+    private final AtomicLong edits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * @param intervalMillis minimum time between two edits of the same message
+     */
+    public ProgressReporter(long intervalMillis) {
+        this.intervalMillis = Math.max(0, intervalMillis);
+    }
+
+    /**
+     * Starts reporting progress on one message
+     * @param editor builds the edit of the message for new content, e.g. message::editMessageEmbeds
+     */
+    public <T> Progress<T> open(Function<MessageEmbed, ? extends RestAction<T>> editor) {
+        return new Progress<>(editor);
+    }
+
+    /**
+     * Exposes edit counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_progress_edits_total", edits::get);
+        MetricsServer.register("musicbot_progress_coalesced_total", coalesced::get);
+        MetricsServer.register("musicbot_progress_unchanged_total", unchanged::get);
+        MetricsServer.register("musicbot_progress_failed_total", failed::get);
+    }
+
+    /**
+     * Progress shown on one message
+     */
+    public class Progress<T> {
+        private final Function<MessageEmbed, ? extends RestAction<T>> editor;
+        private MessageEmbed pending;
+        private MessageEmbed shown;
+        private long lastEditAt;
+        private ScheduledFuture<?> flushTask;
+        private boolean closed;
+
+        private Progress(Function<MessageEmbed, ? extends RestAction<T>> editor) {
+            this.editor = editor;
+        }
+
+        /**
+         * Sets the content the message should show. It's sent with the next edit, replacing
+         * anything that was set before and not yet sent.
+         */
+        public synchronized void update(MessageEmbed embed) {
+            if (closed) return;
+
+            if (pending != null) {
+                coalesced.incrementAndGet();
+            } else if (embed.equals(shown)) {
+                unchanged.incrementAndGet();
+                return;
+            }
+            pending = embed;
+
+            if (flushTask == null) {
+                long delay = Math.max(0, lastEditAt + intervalMillis - System.currentTimeMillis());
+                flushTask = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Stops the updates and returns the final edit, which isn't throttled. Content that
+         * wasn't sent yet is dropped.
+         */
+        public RestAction<T> finish(MessageEmbed embed) {
+            close();
+            edits.incrementAndGet();
+            return editor.apply(embed);
+        }
+
+        /**
+         * Stops the updates, e.g. before the message is deleted
+         */
+        public synchronized void close() {
+            closed = true;
+            pending = null;
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+        }
+
+        private synchronized void flush() {
+            flushTask = null;
+            if (closed || pending == null) return;
+
+            MessageEmbed embed = pending;
+            pending = null;
+            if (embed.equals(shown)) {
+                unchanged.incrementAndGet();
+                return;
+            }
+
+            // Queued while holding the lock, so a later finish() edit can't overtake it
+            shown = embed;
+            lastEditAt = System.currentTimeMillis();
+            edits.incrementAndGet();
+            editor.apply(embed).queue(null, error -> {
+                failed.incrementAndGet();
+                BotLogger.debug("Could not update progress: " + error.getMessage());
+            });
+        }
+    }
+}
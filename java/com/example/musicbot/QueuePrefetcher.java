@@ -0,0 +1,223 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads the YouTube tracks at the front of each guild's queue into the cache in the
+ * background, so they play from disk when they reach the head of the queue instead of
+ * stalling on YouTube. Prefetches are cancelled when their entries leave the front of the
+ * queue (removed, cleared or moved back) before the download started.
+ */
+public class QueuePrefetcher {
+    private static final Pattern YOUTUBE_URL = Pattern.compile(
+            "^https?://(?:www\\.|music\\.|m\\.)?(?:youtube\\.com/watch\\?(?:.*&)?v=|youtu\\.be/)([a-zA-Z0-9_-]{11})");
+
+    private final AudioPlayerManager playerManager;
+    private final TrackCache trackCache;
+    private final DownloadScheduler downloadScheduler;
+    private final TrackDownloader trackDownloader;
+    private final int depth;
+
+    // guildId -> video IDs of that guild's upcoming YouTube entries
+    private final Map<Long, Set<String>> wanted = new ConcurrentHashMap<>();
+    // videoId -> local track to play in place of the queued stream
+    private final Map<String, AudioTrack> ready = new ConcurrentHashMap<>();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong swapped = new AtomicLong();
+
+    /**
+     * @param depth number of entries at the front of each queue to prefetch, 0 to disable
+     */
+    public QueuePrefetcher(AudioPlayerManager playerManager, TrackCache trackCache,
+                           DownloadScheduler downloadScheduler, TrackDownloader trackDownloader, int depth) {
+        this.playerManager = playerManager;
+        this.trackCache = trackCache;
+        this.downloadScheduler = downloadScheduler;
+        this.trackDownloader = trackDownloader;
+        this.depth = depth;
+    }
+
+    /**
+     * Called whenever a guild's queue changed: starts prefetches for entries that moved to the
+     * front and cancels those whose entries are no longer there.
+     */
+    public void refresh(long guildId, Collection<AudioTrack> queue) {
+        if (depth <= 0) return;
+
+        Set<String> upcoming = new LinkedHashSet<>();
+        for (AudioTrack track : queue) {
+            if (upcoming.size() >= depth) break;
+            String videoId = videoIdOf(track);
+            if (videoId != null) {
+                upcoming.add(videoId);
+            }
+        }
+
+        Set<String> previous = wanted.put(guildId, upcoming);
+        if (previous == null) previous = Collections.emptySet();
+
+        String previousHead = previous.isEmpty() ? null : previous.iterator().next();
+        boolean head = true;
+        for (String videoId : upcoming) {
+            // The entry playing next is more urgent than the ones after it
+            if (head && !videoId.equals(previousHead)) {
+                prefetch(videoId, DownloadScheduler.Priority.NEXT_IN_QUEUE);
+            } else if (!previous.contains(videoId)) {
+                prefetch(videoId, DownloadScheduler.Priority.PREFETCH);
+            }
+            head = false;
+        }
+
+        for (String videoId : previous) {
+            if (!upcoming.contains(videoId)) {
+                drop(videoId);
+            }
+        }
+    }
+
+    /**
+     * Cancels all prefetches of a guild, e.g. when its queue was cleared.
+     */
+    public void cancel(long guildId) {
+        Set<String> previous = wanted.remove(guildId);
+        if (previous != null) {
+            previous.forEach(this::drop);
+        }
+    }
+
+    /**
+     * Returns a track playing the prefetched copy of a queued YouTube track, or the track itself
+     * if there is none. The returned local copy holds a reference on its cache file.
+     */
+    public AudioTrack swap(AudioTrack track) {
+        String videoId = videoIdOf(track);
+        AudioTrack local = videoId != null ? ready.get(videoId) : null;
+        if (local == null || !new File(local.getIdentifier()).exists()) {
+            return track;
+        }
+
+        swapped.incrementAndGet();
+        trackCache.acquire(local.getIdentifier());
+        BotLogger.debug("Playing prefetched copy of " + videoId);
+        return new LocalCopyAudioTrack(track.getInfo(), local);
+    }
+
+    /**
+     * Exposes prefetch counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_prefetch_started_total", started::get);
+        MetricsServer.register("musicbot_prefetch_cancelled_total", cancelled::get);
+        MetricsServer.register("musicbot_prefetch_used_total", swapped::get);
+        MetricsServer.register("musicbot_prefetch_ready", ready::size);
+    }
+
+    /**
+     * Video ID of a track streamed from YouTube, null for local files and other sources.
+     * "Just this time" pipe plays are left alone, they were asked not to be stored.
+     * Spotify placeholders count as the video they were matched with, once it's known.
+     */
+    static String videoIdOf(AudioTrack track) {
+        if (track instanceof SpotifyPlaceholderTrack) {
+            track = ((SpotifyPlaceholderTrack) track).getResolved();
+            if (track == null) return null;
+        }
+        String uri = track.getInfo().uri;
+        if (uri == null || track instanceof LocalCopyAudioTrack || track instanceof YtDlpPipeAudioTrack) return null;
+
+        Matcher matcher = YOUTUBE_URL.matcher(uri);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private void prefetch(String videoId, DownloadScheduler.Priority priority) {
+        if (ready.containsKey(videoId)) return;
+
+        // Already downloaded earlier, only the local track needs to be loaded
+        TrackCache.CacheEntry cached = trackCache.peek(videoId);
+        if (cached != null) {
+            prepare(videoId, cached.getFile());
+            return;
+        }
+
+        if (!downloadScheduler.isInFlight(videoId)) {
+            started.incrementAndGet();
+        }
+        String url = "https://www.youtube.com/watch?v=" + videoId;
+        DownloadScheduler.Ticket ticket = downloadScheduler.submit(videoId, priority, null,
+                () -> trackDownloader.download(url, videoId, TrackCache.Tier.CACHE, 0, new TrackDownloader.Listener() {}));
+
+        ticket.getResult().whenComplete((file, failure) -> {
+            if (failure == null) {
+                // A joined "just this time" download is kept, the queue is going to play it
+                File promoted = ticket.isJoined() ? trackCache.promote(videoId) : null;
+                prepare(videoId, promoted != null ? promoted : file);
+            } else if (!ticket.getResult().isCancelled()) {
+                // The entry still streams from YouTube when it comes up
+                BotLogger.warn("Prefetch of " + videoId + " failed: " + failure.getMessage());
+            }
+        });
+    }
+
+    private void prepare(String videoId, File file) {
+        if (!isWanted(videoId)) return;
+
+        playerManager.loadItem(file.getAbsolutePath(), new AudioLoadResultHandler() {
+            @Override
+            public void trackLoaded(AudioTrack track) {
+                if (isWanted(videoId)) {
+                    ready.put(videoId, track);
+                }
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist) {
+                // Not expected for a single file
+            }
+
+            @Override
+            public void noMatches() {
+                BotLogger.warn("Prefetched file could not be loaded: " + file.getName());
+            }
+
+            @Override
+            public void loadFailed(FriendlyException exception) {
+                BotLogger.warn("Prefetched file could not be loaded: " + exception.getMessage());
+            }
+        });
+    }
+
+    private void drop(String videoId) {
+        // Another guild may still have the same track coming up
+        if (isWanted(videoId)) return;
+
+        ready.remove(videoId);
+        if (downloadScheduler.cancelQueued(videoId)) {
+            cancelled.incrementAndGet();
+            BotLogger.debug("Prefetch of " + videoId + " cancelled");
+        }
+    }
+
+    private boolean isWanted(String videoId) {
+        for (Set<String> videoIds : wanted.values()) {
+            if (videoIds.contains(videoId)) return true;
+        }
+        return false;
+    }
+}
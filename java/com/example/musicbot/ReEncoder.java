@@ -1,95 +1,266 @@
-package com.example.musicbot;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
-
-public class ReEncoder {
-
-    /**
-     * Re-encodes the given input file to an MP3 file at the specified output path using FFmpeg.
-     * Optimized for lower CPU usage and faster encoding.
-     *
-     * @param inputPath  the path to the input audio file
-     * @param outputPath the desired output MP3 file path
-     * @return true if re-encoding succeeds (exit code 0), false otherwise
-     */
-    public static boolean reencodeToMp3(String inputPath, String outputPath) {
-        // Build the FFmpeg command with optimized parameters
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffmpeg", "-y", "-i", inputPath,
-                "-vn",                      // Disable video
-                "-ar", "44100",            // Sample rate
-                "-ac", "2",                // Audio channels
-                "-b:a", "192k",            // Audio bitrate
-                "-preset", "ultrafast",    // Ultra fast encoding (lowest CPU usage)
-                "-threads", "2",           // Limit thread count to avoid overwhelming the CPU
-                "-max_muxing_queue_size", "1024", // Avoid muxing queue errors
-                "-af", "dynaudnorm",       // Dynamic audio normalization for consistent volume
-                outputPath
-        );
-        pb.redirectErrorStream(true);
-        
-        try {
-            Process process = pb.start();
-            
-            // Set up process timeout to avoid hangs
-            boolean completed = process.waitFor(5, TimeUnit.MINUTES);
-            if (!completed) {
-                process.destroyForcibly();
-                System.err.println("FFmpeg encoding timed out after 5 minutes");
-                return false;
-            }
-            
-            // Capture FFmpeg output for debugging
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String line;
-            StringBuilder output = new StringBuilder();
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
-            
-            int exitCode = process.exitValue();
-            if (exitCode == 0) {
-                return true;
-            } else {
-                System.err.println("FFmpeg re-encode failed with exit code " + exitCode);
-                System.err.println("FFmpeg output: " + output.toString());
-                return false;
-            }
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
-    
-    /**
-     * Optimized method for quickly checking if a file is a valid audio file.
-     * This is much faster than trying to load the full file.
-     */
-    public static boolean isValidAudioFile(String filePath) {
-        ProcessBuilder pb = new ProcessBuilder(
-                "ffprobe", "-v", "error", "-show_entries", 
-                "format=duration", "-of", "default=noprint_wrappers=1:nokey=1", 
-                filePath
-        );
-        pb.redirectErrorStream(true);
-        
-        try {
-            Process process = pb.start();
-            boolean completed = process.waitFor(10, TimeUnit.SECONDS);
-            if (!completed) {
-                process.destroyForcibly();
-                return false;
-            }
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String result = reader.readLine();
-            
-            return process.exitValue() == 0 && result != null && !result.trim().isEmpty();
-        } catch (Exception e) {
-            return false;
-        }
-    }
+package com.example.musicbot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ReEncoder {
+    private final TranscodeService transcoder;
+
+    // Quieter than this for at least SILENCE_MIN_SECONDS counts as silence
+    private static final int SILENCE_THRESHOLD_DB = -50;
+    private static final double SILENCE_MIN_SECONDS = 0.5;
+    // Silence left at a trimmed edge, so fades and breaths aren't cut off
+    private static final long TRIM_MARGIN_MILLIS = 150;
+    // A silence this close to the start or end of the file is treated as touching it
+    private static final long EDGE_TOLERANCE_MILLIS = 100;
+
+    public ReEncoder(TranscodeService transcoder) {
+        this.transcoder = transcoder;
+    }
+
+    /**
+     * Converts a file to the given format without touching the audio otherwise, e.g. to move the
+     * cache to another codec or bitrate.
+     */
+    public CompletableFuture<TranscodeService.Result> reencode(File input, File output, Format format,
+                                                              TranscodeService.Priority priority) {
+        List<String> options = Arrays.asList(
+                "-vn", "-map_metadata", "-1",
+                "-c:a", format.codec.encoder,
+                "-b:a", format.bitrateKbps + "k",
+                "-f", format.codec.container
+        );
+        return transcoder.submit(priority, input, output, options, null);
+    }
+
+    /**
+     * Reads a file through to its end without decoding it, as a check that it's complete and
+     * playable. Queued on the transcode service like any other ffmpeg run.
+     * @return completes with true if ffmpeg read audio from the whole file without errors
+     */
+    public CompletableFuture<Boolean> probe(File input, TranscodeService.Priority priority) {
+        return transcoder.submit(priority, input, null, Arrays.asList("-vn", "-c:a", "copy", "-xerror"), null)
+                .thenApply(result -> result.isSuccess() && result.getMediaMillis() > 0);
+    }
+    
+    /**
+     * Measures a file's loudness (EBU R128 integrated loudness and true peak) and the silence at
+     * its start and end in one pass, so playback can even out volume differences with a gain and
+     * skip dead air by seeking, instead of re-encoding the audio.
+     * @return completes with the measurement, or exceptionally if ffmpeg failed
+     */
+    public CompletableFuture<Analysis> analyze(File input) {
+        AnalysisParser parser = new AnalysisParser();
+        String filters = "silencedetect=noise=" + SILENCE_THRESHOLD_DB + "dB:d=" + SILENCE_MIN_SECONDS
+                + ",ebur128=peak=true";
+        return transcoder.submit(TranscodeService.Priority.INGEST, input, null,
+                Arrays.asList("-vn", "-af", filters), parser::onLine)
+                .thenApply(result -> {
+                    if (!result.isSuccess() || Double.isNaN(parser.loudnessLufs)) {
+                        throw new IllegalStateException("Loudness analysis of " + input.getName()
+                                + " failed: " + result.getStderrTail());
+                    }
+                    return parser.toAnalysis(result.getMediaMillis());
+                });
+    }
+
+    /**
+     * What analyze measured
+     */
+    public static class Analysis {
+        private final double loudnessLufs;
+        private final double peakDbfs;
+        private final long startMillis;
+        private final long endMillis;
+
+        Analysis(double loudnessLufs, double peakDbfs, long startMillis, long endMillis) {
+            this.loudnessLufs = loudnessLufs;
+            this.peakDbfs = peakDbfs;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+
+        /**
+         * Integrated loudness over the whole track
+         */
+        public double getLoudnessLufs() {
+            return loudnessLufs;
+        }
+
+        /**
+         * True peak, -100 for silence
+         */
+        public double getPeakDbfs() {
+            return peakDbfs;
+        }
+
+        /**
+         * Where the audio starts after leading silence, 0 if it starts right away
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * Where trailing silence begins, 0 if the audio lasts until the end
+         */
+        public long getEndMillis() {
+            return endMillis;
+        }
+    }
+
+    /**
+     * Picks the values from the summary ebur128 prints when it's done. The per-frame lines
+     * before it carry an "I:" value too, so nothing is read before the summary starts.
+     * Silences are collected from silencedetect's silence_start / silence_end lines.
+     */
+    private static class AnalysisParser {
+        private boolean inSummary;
+        private volatile double loudnessLufs = Double.NaN;
+        private volatile double peakDbfs = -100;
+        // [start, end] of each silence in milliseconds, end is -1 while it lasts
+        private final List<long[]> silences = new ArrayList<>();
+
+        synchronized void onLine(String line) {
+            int start = line.indexOf("silence_start:");
+            int end = line.indexOf("silence_end:");
+            if (start >= 0) {
+                silences.add(new long[]{parseMillis(line, start + "silence_start:".length()), -1});
+                return;
+            }
+            if (end >= 0) {
+                if (!silences.isEmpty()) {
+                    silences.get(silences.size() - 1)[1] = parseMillis(line, end + "silence_end:".length());
+                }
+                return;
+            }
+
+            String trimmed = line.trim();
+            if (trimmed.endsWith("Summary:")) {
+                inSummary = true;
+            } else if (inSummary && trimmed.startsWith("I:")) {
+                loudnessLufs = parseValue(trimmed, Double.NaN);
+            } else if (inSummary && trimmed.startsWith("Peak:")) {
+                peakDbfs = Math.max(-100, parseValue(trimmed, -100));
+            }
+        }
+
+        /**
+         * Turns the silences into trim offsets. A file that is silent throughout isn't trimmed.
+         */
+        synchronized Analysis toAnalysis(long durationMillis) {
+            long startMillis = 0;
+            long endMillis = 0;
+            if (!silences.isEmpty()) {
+                long[] first = silences.get(0);
+                if (first[0] <= EDGE_TOLERANCE_MILLIS && first[1] > 0) {
+                    startMillis = Math.max(0, first[1] - TRIM_MARGIN_MILLIS);
+                }
+                // Silence that runs to the end may not get a silence_end line
+                long[] last = silences.get(silences.size() - 1);
+                boolean toEnd = last[1] < 0 || (durationMillis > 0 && last[1] >= durationMillis - EDGE_TOLERANCE_MILLIS);
+                if (toEnd && last[0] > startMillis) {
+                    endMillis = last[0] + TRIM_MARGIN_MILLIS;
+                }
+            }
+            return new Analysis(loudnessLufs, peakDbfs, startMillis, endMillis);
+        }
+
+        // "silence_start: 12.3456", "silence_end: 14.5 | silence_duration: 2.2"
+        private static long parseMillis(String line, int from) {
+            String[] parts = line.substring(from).trim().split("\\s+");
+            try {
+                return Math.max(0, Math.round(Double.parseDouble(parts[0]) * 1000));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        // "I:         -14.6 LUFS", "Peak:        -0.3 dBFS", silence gives "-inf"
+        private static double parseValue(String line, double fallback) {
+            String[] parts = line.split("\\s+");
+            if (parts.length < 2) return fallback;
+            if (parts[1].equals("-inf")) return Double.NEGATIVE_INFINITY;
+            try {
+                return Double.parseDouble(parts[1]);
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+    }
+
+    /**
+     * Codec and bitrate files can be converted to
+     */
+    public static class Format {
+        private final Codec codec;
+        private final int bitrateKbps;
+
+        public Format(Codec codec, int bitrateKbps) {
+            this.codec = codec;
+            this.bitrateKbps = bitrateKbps;
+        }
+
+        /**
+         * Name stored in the cache index, e.g. "opus-128k"
+         */
+        public String getId() {
+            return codec.name().toLowerCase() + "-" + bitrateKbps + "k";
+        }
+
+        /**
+         * File extension of the container, e.g. "webm"
+         */
+        public String getExtension() {
+            return codec.container;
+        }
+
+        @Override
+        public String toString() {
+            return getId();
+        }
+    }
+
+    public enum Codec {
+        // lavaplayer can pass Opus frames to Discord without decoding them
+        OPUS("libopus", "webm"),
+        MP3("libmp3lame", "mp3");
+
+        private final String encoder;
+        private final String container;
+
+        Codec(String encoder, String container) {
+            this.encoder = encoder;
+            this.container = container;
+        }
+    }
+    
+    /**
+     * Optimized method for quickly checking if a file is a valid audio file.
+     * This is much faster than trying to load the full file.
+     */
+    public static boolean isValidAudioFile(String filePath) {
+        AtomicReference<String> firstLine = new AtomicReference<>();
+        
+        try {
+            ProcessRunner.Result result = new ProcessRunner("ffprobe", Arrays.asList(
+                    "ffprobe", "-v", "error", "-show_entries", 
+                    "format=duration", "-of", "default=noprint_wrappers=1:nokey=1", 
+                    filePath))
+                    .onStdout(line -> firstLine.compareAndSet(null, line))
+                    .timeout(10, TimeUnit.SECONDS)
+                    .start()
+                    .await();
+            
+            String output = firstLine.get();
+            return result.isSuccess() && output != null && !output.trim().isEmpty();
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the results of ytsearch:/scsearch: lookups so a repeated search, from any guild,
+ * doesn't go to the network again. Tracks are stored in lavaplayer's own encoding so a cached
+ * result decodes into fresh, playable tracks with all their metadata.
+ *
+ * Bounded by a TTL and a maximum number of queries (least recently used dropped first),
+ * and persisted next to the track cache index.
+ */
+public class SearchCache {
+    private static final String[] SEARCH_PREFIXES = {"ytsearch:", "ytmsearch:", "scsearch:"};
+    // Only the first few results of a search are ever used
+    private static final int MAX_TRACKS_PER_QUERY = 5;
+
+    private final AudioPlayerManager playerManager;
+    private final File file;
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    // Access ordered, so iteration starts at the least recently used query
+    private final LinkedHashMap<String, CachedSearch> searches = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public SearchCache(AudioPlayerManager playerManager, File file, long ttlMillis, int maxEntries) {
+        this.playerManager = playerManager;
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+
+        load();
+    }
+
+    /**
+     * Whether a lavaplayer identifier is a search query this cache handles
+     */
+    public static boolean isSearch(String identifier) {
+        for (String prefix : SEARCH_PREFIXES) {
+            if (identifier.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cache key for a search: lower case, trimmed, with runs of whitespace collapsed
+     */
+    public static String normalize(String identifier) {
+        return identifier.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Returns freshly decoded tracks for a search, or null if it isn't cached (or expired)
+     */
+    public List<AudioTrack> get(String identifier) {
+        if (ttlMillis <= 0) return null;
+
+        String key = normalize(identifier);
+        CachedSearch cached;
+        synchronized (searches) {
+            cached = searches.get(key);
+            if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+                searches.remove(key);
+                dirty.set(true);
+                cached = null;
+            }
+        }
+
+        if (cached == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        List<AudioTrack> tracks = new ArrayList<>();
+        for (String encoded : cached.tracks) {
+            AudioTrack track = decode(encoded);
+            if (track != null) {
+                tracks.add(track);
+            }
+        }
+
+        if (tracks.isEmpty()) {
+            // Encoding from an older lavaplayer version or a removed source, search again
+            synchronized (searches) {
+                searches.remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return tracks;
+    }
+
+    /**
+     * Stores the results of a successful search
+     */
+    public void put(String identifier, List<AudioTrack> results) {
+        if (ttlMillis <= 0 || results.isEmpty()) return;
+
+        List<String> encodedTracks = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        for (AudioTrack track : results) {
+            if (encodedTracks.size() >= MAX_TRACKS_PER_QUERY) break;
+            String encoded = encode(track);
+            if (encoded != null) {
+                encodedTracks.add(encoded);
+                titles.add(track.getInfo().title);
+            }
+        }
+        if (encodedTracks.isEmpty()) return;
+
+        String key = normalize(identifier);
+        CachedSearch cached = new CachedSearch(key, encodedTracks, titles, System.currentTimeMillis() + ttlMillis);
+
+        synchronized (searches) {
+            searches.put(key, cached);
+
+            // Drop least recently used searches over the limit
+            Iterator<String> oldest = searches.keySet().iterator();
+            while (searches.size() > maxEntries && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * Exposes the search cache counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_search_cache_hits_total", hits::get);
+        MetricsServer.register("musicbot_search_cache_misses_total", misses::get);
+        MetricsServer.register("musicbot_search_cache_entries", this::size);
+    }
+
+    public int size() {
+        synchronized (searches) {
+            return searches.size();
+        }
+    }
+
+    /**
+     * Drops expired searches and writes the cache if it changed since the last save.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        synchronized (searches) {
+            if (searches.values().removeIf(cached -> cached.expiresAt <= now)) {
+                dirty.set(true);
+            }
+        }
+
+        if (dirty.get()) {
+            save();
+        }
+    }
+
+    private String encode(AudioTrack track) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            playerManager.encodeTrack(new MessageOutput(out), track);
+            return Base64.getEncoder().encodeToString(out.toByteArray());
+        } catch (IOException e) {
+            BotLogger.debug("Could not encode search result " + track.getIdentifier() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private AudioTrack decode(String encoded) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(encoded);
+            DecodedTrackHolder holder = playerManager.decodeTrack(new MessageInput(new ByteArrayInputStream(bytes)));
+            return holder == null ? null : holder.decodedTrack;
+        } catch (Exception e) {
+            BotLogger.debug("Could not decode cached search result: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void save() {
+        DataArray array = DataArray.empty();
+        synchronized (searches) {
+            for (CachedSearch cached : searches.values()) {
+                array.add(cached.toData());
+            }
+        }
+
+        // Write to a temporary file first so a crash never leaves a truncated file
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), array.toJson());
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty.set(false);
+        } catch (IOException e) {
+            BotLogger.error("Could not save search cache: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+
+        long now = System.currentTimeMillis();
+        try (InputStream in = new FileInputStream(file)) {
+            DataArray array = DataArray.fromJson(in);
+            synchronized (searches) {
+                for (int i = 0; i < array.length(); i++) {
+                    CachedSearch cached = CachedSearch.fromData(array.getObject(i));
+                    if (cached.expiresAt > now) {
+                        searches.put(cached.query, cached);
+                    }
+                }
+            }
+            BotLogger.info("Loaded search cache with " + size() + " queries");
+        } catch (Exception e) {
+            BotLogger.error("Could not read search cache, starting empty: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Results of one search query
+     */
+    private static class CachedSearch {
+        private final String query;
+        private final List<String> tracks;
+        // Only stored to make the file readable
+        private final List<String> titles;
+        private final long expiresAt;
+
+        CachedSearch(String query, List<String> tracks, List<String> titles, long expiresAt) {
+            this.query = query;
+            this.tracks = tracks;
+            this.titles = titles;
+            this.expiresAt = expiresAt;
+        }
+
+        DataObject toData() {
+            return DataObject.empty()
+                    .put("query", query)
+                    .put("tracks", DataArray.fromCollection(tracks))
+                    .put("titles", DataArray.fromCollection(titles))
+                    .put("expires_at", expiresAt);
+        }
+
+        static CachedSearch fromData(DataObject data) {
+            List<String> tracks = new ArrayList<>();
+            DataArray trackArray = data.getArray("tracks");
+            for (int i = 0; i < trackArray.length(); i++) {
+                tracks.add(trackArray.getString(i));
+            }
+
+            List<String> titles = new ArrayList<>();
+            DataArray titleArray = data.optArray("titles").orElse(DataArray.empty());
+            for (int i = 0; i < titleArray.length(); i++) {
+                titles.add(titleArray.getString(i));
+            }
+
+            return new CachedSearch(data.getString("query"), tracks, titles, data.getLong("expires_at", 0));
+        }
+    }
+}
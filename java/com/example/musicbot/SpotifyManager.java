@@ -1,348 +1,605 @@
-package com.example.musicbot;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.concurrent.CompletableFuture;
-import com.example.musicbot.SpotifyURLDecoder;
-
-
-/**
- * A simplified version of SpotifyManager that doesn't rely on external Spotify API libraries
- * Instead, it extracts information from Spotify URLs to create better search queries
- */
-public class SpotifyManager {
-    private final BotConfig config;
-
-    // Patterns for different types of Spotify URLs
-    private static final Pattern TRACK_PATTERN = Pattern.compile("spotify\\.com/track/([a-zA-Z0-9]+)");
-    private static final Pattern ALBUM_PATTERN = Pattern.compile("spotify\\.com/album/([a-zA-Z0-9]+)");
-    private static final Pattern PLAYLIST_PATTERN = Pattern.compile("spotify\\.com/playlist/([a-zA-Z0-9]+)");
-    
-    // Pattern to extract title from URL path
-    private static final Pattern TITLE_PATTERN = Pattern.compile("/track/[a-zA-Z0-9]+/([^?/]+)");
-
-    public SpotifyManager(BotConfig config) {
-        this.config = config;
-    }
-
-    /**
-     * Checks if a URL is a Spotify URL
-     */
-    public boolean isSpotifyUrl(String url) {
-        return url.contains("open.spotify.com") || url.contains("spotify:track") || 
-               url.contains("spotify:album") || url.contains("spotify:playlist");
-    }
-
-    public String getDebugInfo(String trackId) {
-        try {
-            TrackInfo info = getTrackInfo(trackId);
-            return "Track ID: " + trackId + "\n" +
-                   "URL: " + config.getLastSpotifyUrl() + "\n" +
-                   "Title: " + info.getName() + "\n" +
-                   "Artist: " + info.getArtists() + "\n" +
-                   "Search Query: " + info.getSearchQuery();
-        } catch (Exception e) {
-            return "Error getting debug info: " + e.getMessage();
-        }
-    }
-
-    /**
-     * Gets the type of Spotify URL (track, album, playlist)
-     */
-    public SpotifyUrlType getSpotifyUrlType(String url) {
-        if (TRACK_PATTERN.matcher(url).find() || url.contains("spotify:track:")) {
-            return SpotifyUrlType.TRACK;
-        } else if (ALBUM_PATTERN.matcher(url).find() || url.contains("spotify:album:")) {
-            return SpotifyUrlType.ALBUM;
-        } else if (PLAYLIST_PATTERN.matcher(url).find() || url.contains("spotify:playlist:")) {
-            return SpotifyUrlType.PLAYLIST;
-        }
-        return SpotifyUrlType.UNKNOWN;
-    }
-
-    /**
-     * Extracts Spotify ID from a URL
-     */
-    public String extractId(String url, SpotifyUrlType type) {
-        Pattern pattern;
-        
-        switch (type) {
-            case TRACK:
-                pattern = TRACK_PATTERN;
-                if (url.contains("spotify:track:")) {
-                    return url.split("spotify:track:")[1];
-                }
-                break;
-            case ALBUM:
-                pattern = ALBUM_PATTERN;
-                if (url.contains("spotify:album:")) {
-                    return url.split("spotify:album:")[1];
-                }
-                break;
-            case PLAYLIST:
-                pattern = PLAYLIST_PATTERN;
-                if (url.contains("spotify:playlist:")) {
-                    return url.split("spotify:playlist:")[1];
-                }
-                break;
-            default:
-                return null;
-        }
-        
-        Matcher matcher = pattern.matcher(url);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        
-        return null;
-    }
-
-    /**
-     * Try to extract a title from the Spotify URL if present
-     */
-    private String[] extractInfoFromUrl(String url) {
-        // Default values
-        String title = "Unknown Track";
-        String artist = "Unknown Artist";
-        
-        try {
-            // First, check for title in URL path format
-            Matcher titleMatcher = TITLE_PATTERN.matcher(url);
-            if (titleMatcher.find()) {
-                String slugTitle = titleMatcher.group(1);
-                
-                // Convert slug format to title format
-                String[] words = slugTitle.split("-");
-                StringBuilder titleBuilder = new StringBuilder();
-                for (String word : words) {
-                    if (!word.isEmpty()) {
-                        if (titleBuilder.length() > 0) {
-                            titleBuilder.append(" ");
-                        }
-                        titleBuilder.append(Character.toUpperCase(word.charAt(0)));
-                        if (word.length() > 1) {
-                            titleBuilder.append(word.substring(1));
-                        }
-                    }
-                }
-                title = titleBuilder.toString();
-            }
-            
-            // Look for artist name in the URL
-            // Example pattern: /artist/123456/track/ or /artist/name/
-            Pattern artistPattern = Pattern.compile("artist/([a-zA-Z0-9_-]+)");
-            Matcher artistMatcher = artistPattern.matcher(url);
-            if (artistMatcher.find()) {
-                String slugArtist = artistMatcher.group(1);
-                if (slugArtist.matches("[a-zA-Z0-9]+")) {
-                    // If it's just an ID, we can't determine the name
-                    artist = "Unknown Artist";
-                } else {
-                    // Convert slug format to name format
-                    String[] words = slugArtist.split("-");
-                    StringBuilder artistBuilder = new StringBuilder();
-                    for (String word : words) {
-                        if (!word.isEmpty()) {
-                            if (artistBuilder.length() > 0) {
-                                artistBuilder.append(" ");
-                            }
-                            artistBuilder.append(Character.toUpperCase(word.charAt(0)));
-                            if (word.length() > 1) {
-                                artistBuilder.append(word.substring(1));
-                            }
-                        }
-                    }
-                    artist = artistBuilder.toString();
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error extracting info from URL: " + e.getMessage());
-        }
-        
-        return new String[]{title, artist};
-    }
-
-    /**
-     * Gets track info from a Spotify track URL
-     * Extracts meaningful information from the URL when possible
-     */
-    public TrackInfo getTrackInfo(String trackId) {
-        String title = null;
-        String artists = null;
-        String album = "";
-        
-        // First try to get the info by downloading the page content
-        String originalUrl = config.getLastSpotifyUrl();
-        if (originalUrl != null && !originalUrl.isEmpty()) {
-            String[] info = SpotifyURLDecoder.extractFromURL(originalUrl);
-            
-            if (info[0] != null && !info[0].equals("Unknown Track")) {
-                title = info[0];
-            }
-            
-            if (info[1] != null && !info[1].equals("Unknown Artist")) {
-                artists = info[1];
-            }
-        }
-        
-        // If we still don't have a title or artist, use fallbacks
-        if (title == null || title.equals("Unknown Track")) {
-            // Try the last user query
-            String userQuery = config.getLastUserQuery();
-            if (userQuery != null && !userQuery.trim().isEmpty()) {
-                // Extract search terms from the query
-                String searchTerms = userQuery.trim();
-                
-                if (searchTerms.startsWith(config.getPrefix())) {
-                    searchTerms = searchTerms.substring(config.getPrefix().length()).trim();
-                }
-                
-                if (searchTerms.toLowerCase().startsWith("play")) {
-                    searchTerms = searchTerms.substring(4).trim();
-                }
-                
-                // Remove the URL
-                searchTerms = searchTerms.replaceAll("https?://\\S+", "").trim();
-                
-                if (!searchTerms.isEmpty()) {
-                    title = searchTerms;
-                    // We already have the full search, no need for separate artists
-                    artists = "";
-                } else {
-                    title = "Spotify song";
-                }
-            } else {
-                title = "Spotify song";
-            }
-        }
-        
-        // If we have no artist info, use generic terms
-        if (artists == null || artists.isEmpty() || artists.equals("Unknown Artist")) {
-            artists = "official audio";
-        }
-        
-        return new TrackInfo(
-                title,
-                artists,
-                album,
-                180 // default duration of 3 minutes
-        );
-    }
-
-    /**
-     * Gets all tracks from a Spotify album ID
-     * Creates mock track info with better search terms
-     */
-    public List<TrackInfo> getAlbumTracks(String albumId) {
-        List<TrackInfo> tracks = new ArrayList<>();
-        
-        // Create 5 mock tracks for the album with better search terms
-        for (int i = 1; i <= 5; i++) {
-            tracks.add(new TrackInfo(
-                    "Spotify album song " + i,
-                    "popular album track official",
-                    "Album",
-                    180 // 3 minute default duration
-            ));
-        }
-        
-        return tracks;
-    }
-
-    /**
-     * Gets all tracks from a Spotify playlist ID
-     * Creates mock track info with better search terms
-     */
-    public List<TrackInfo> getPlaylistTracks(String playlistId) {
-        List<TrackInfo> tracks = new ArrayList<>();
-        
-        // Create 10 mock tracks for the playlist with better search terms
-        for (int i = 1; i <= 10; i++) {
-            tracks.add(new TrackInfo(
-                    "Spotify playlist song " + i,
-                    "popular track official audio",
-                    "Playlist",
-                    180 // 3 minute default duration
-            ));
-        }
-        
-        return tracks;
-    }
-
-    /**
-     * Data class to store track information
-     */
-    public static class TrackInfo {
-        private final String name;
-        private final String artists;
-        private final String album;
-        private final long durationSeconds;
-
-        public TrackInfo(String name, String artists, String album, long durationSeconds) {
-            this.name = name;
-            this.artists = artists;
-            this.album = album;
-            this.durationSeconds = durationSeconds;
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public String getArtists() {
-            return artists;
-        }
-
-        public String getAlbum() {
-            return album;
-        }
-
-        public long getDurationSeconds() {
-            return durationSeconds;
-        }
-        
-        public String getSearchQuery() {
-            // If the name already has the artist (from user query), just use it directly
-            if (name != null && !name.equals("Spotify song") && !name.equals("Unknown Track")) {
-                if (name.toLowerCase().contains(artists.toLowerCase()) || artists.isEmpty()) {
-                    return name + " official audio";
-                } else {
-                    return name + " " + artists + " official audio";
-                }
-            }
-            
-            // Fallback to a more generic search
-            if (artists != null && !artists.equals("official audio") && !artists.equals("Unknown Artist")) {
-                return "best songs by " + artists + " official audio";
-            }
-            
-            // Last resort
-            return "popular songs official audio";
-        }
-        
-        @Override
-        public String toString() {
-            if (album != null && !album.isEmpty()) {
-                return name + " by " + artists + " [" + album + "]";
-            } else {
-                return name + " by " + artists;
-            }
-        }
-    }
-
-    /**
-     * Enum for Spotify URL types
-     */
-    public enum SpotifyUrlType {
-        TRACK,
-        ALBUM,
-        PLAYLIST,
-        UNKNOWN
-    }
+package com.example.musicbot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.io.IOException;
+import java.util.stream.Collectors;
+import com.example.musicbot.SpotifyURLDecoder;
+import org.apache.hc.core5.http.ParseException;
+import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.exceptions.SpotifyWebApiException;
+import se.michaelthelin.spotify.exceptions.detailed.NotFoundException;
+import se.michaelthelin.spotify.exceptions.detailed.TooManyRequestsException;
+import se.michaelthelin.spotify.exceptions.detailed.UnauthorizedException;
+import se.michaelthelin.spotify.model_objects.IPlaylistItem;
+import se.michaelthelin.spotify.model_objects.credentials.ClientCredentials;
+import se.michaelthelin.spotify.model_objects.specification.Album;
+import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
+import se.michaelthelin.spotify.model_objects.specification.Paging;
+import se.michaelthelin.spotify.model_objects.specification.PlaylistTrack;
+import se.michaelthelin.spotify.model_objects.specification.Track;
+import se.michaelthelin.spotify.model_objects.specification.TrackSimplified;
+import se.michaelthelin.spotify.requests.IRequest;
+
+
+/**
+ * Looks up Spotify tracks, albums and playlists so they can be searched on YouTube.
+ *
+ * With a client ID and secret configured it uses the Spotify Web API: the client credentials
+ * token is cached until shortly before it expires, albums and playlists are fetched in pages
+ * of the largest size the API allows, and full track details are fetched 50 at a time.
+ * Without credentials single tracks fall back to reading the title from the track page.
+ */
+public class SpotifyManager {
+    // Largest page and batch sizes the Web API accepts
+    private static final int ALBUM_PAGE_SIZE = 50;
+    private static final int PLAYLIST_PAGE_SIZE = 100;
+    private static final int TRACK_BATCH_SIZE = 50;
+    // Only what TrackInfo needs, keeps playlist pages small
+    private static final String PLAYLIST_FIELDS =
+            "items(track(type,id,name,duration_ms,artists(name),album(name),external_ids)),next,total";
+    // A token is renewed this long before it expires, so no request is sent with a stale one
+    private static final long TOKEN_MARGIN_MILLIS = 60 * 1000;
+    // Rate limited or unauthorized calls are retried this often before giving up
+    private static final int MAX_RETRIES = 3;
+
+    private final BotConfig config;
+    // null without credentials
+    private final SpotifyApi api;
+
+    private String accessToken;
+    private long tokenExpiresAt;
+    // Set from Retry-After when the API rate limits us; all calls wait until then
+    private volatile long pausedUntil;
+
+    private final AtomicLong apiCalls = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong tokenRefreshes = new AtomicLong();
+    private final LatencyStats apiLatency = new LatencyStats();
+
+    // Lookups take many calls (and Retry-After waits) for big playlists, they never run on JDA's threads
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService lookups = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Spotify-Lookup-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Patterns for different types of Spotify URLs
+    private static final Pattern TRACK_PATTERN = Pattern.compile("spotify\\.com/track/([a-zA-Z0-9]+)");
+    private static final Pattern ALBUM_PATTERN = Pattern.compile("spotify\\.com/album/([a-zA-Z0-9]+)");
+    private static final Pattern PLAYLIST_PATTERN = Pattern.compile("spotify\\.com/playlist/([a-zA-Z0-9]+)");
+    
+    // Pattern to extract title from URL path
+    private static final Pattern TITLE_PATTERN = Pattern.compile("/track/[a-zA-Z0-9]+/([^?/]+)");
+
+    public SpotifyManager(BotConfig config) {
+        this.config = config;
+        String clientId = config.getSpotifyClientId().trim();
+        String clientSecret = config.getSpotifyClientSecret().trim();
+        this.api = clientId.isEmpty() || clientSecret.isEmpty() ? null
+                : new SpotifyApi.Builder().setClientId(clientId).setClientSecret(clientSecret).build();
+    }
+
+    /**
+     * Whether the Web API can be used (credentials are configured). Albums and playlists need it.
+     */
+    public boolean isApiAvailable() {
+        return api != null;
+    }
+
+    /**
+     * Runs a lookup on Spotify's own threads, e.g. from a JDA callback that mustn't block
+     */
+    public void execute(Runnable lookup) {
+        lookups.execute(lookup);
+    }
+
+    /**
+     * Exposes API call counters and latency on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_spotify_api_calls_total", apiCalls::get);
+        MetricsServer.register("musicbot_spotify_api_rate_limited_total", rateLimited::get);
+        MetricsServer.register("musicbot_spotify_token_refreshes_total", tokenRefreshes::get);
+        apiLatency.register("musicbot_spotify_api_ms");
+    }
+
+    /**
+     * Checks if a URL is a Spotify URL
+     */
+    public boolean isSpotifyUrl(String url) {
+        return url.contains("open.spotify.com") || url.contains("spotify:track") || 
+               url.contains("spotify:album") || url.contains("spotify:playlist");
+    }
+
+    public String getDebugInfo(String trackId) {
+        try {
+            TrackInfo info = getTrackInfo(trackId);
+            return "Track ID: " + trackId + "\n" +
+                   "URL: " + config.getLastSpotifyUrl() + "\n" +
+                   "Title: " + info.getName() + "\n" +
+                   "Artist: " + info.getArtists() + "\n" +
+                   "Search Query: " + info.getSearchQuery();
+        } catch (Exception e) {
+            return "Error getting debug info: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Gets the type of Spotify URL (track, album, playlist)
+     */
+    public SpotifyUrlType getSpotifyUrlType(String url) {
+        if (TRACK_PATTERN.matcher(url).find() || url.contains("spotify:track:")) {
+            return SpotifyUrlType.TRACK;
+        } else if (ALBUM_PATTERN.matcher(url).find() || url.contains("spotify:album:")) {
+            return SpotifyUrlType.ALBUM;
+        } else if (PLAYLIST_PATTERN.matcher(url).find() || url.contains("spotify:playlist:")) {
+            return SpotifyUrlType.PLAYLIST;
+        }
+        return SpotifyUrlType.UNKNOWN;
+    }
+
+    /**
+     * Extracts Spotify ID from a URL
+     */
+    public String extractId(String url, SpotifyUrlType type) {
+        Pattern pattern;
+        
+        switch (type) {
+            case TRACK:
+                pattern = TRACK_PATTERN;
+                if (url.contains("spotify:track:")) {
+                    return url.split("spotify:track:")[1];
+                }
+                break;
+            case ALBUM:
+                pattern = ALBUM_PATTERN;
+                if (url.contains("spotify:album:")) {
+                    return url.split("spotify:album:")[1];
+                }
+                break;
+            case PLAYLIST:
+                pattern = PLAYLIST_PATTERN;
+                if (url.contains("spotify:playlist:")) {
+                    return url.split("spotify:playlist:")[1];
+                }
+                break;
+            default:
+                return null;
+        }
+        
+        Matcher matcher = pattern.matcher(url);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        
+        return null;
+    }
+
+    /**
+     * Try to extract a title from the Spotify URL if present
+     */
+    private String[] extractInfoFromUrl(String url) {
+        // Default values
+        String title = "Unknown Track";
+        String artist = "Unknown Artist";
+        
+        try {
+            // First, check for title in URL path format
+            Matcher titleMatcher = TITLE_PATTERN.matcher(url);
+            if (titleMatcher.find()) {
+                String slugTitle = titleMatcher.group(1);
+                
+                // Convert slug format to title format
+                String[] words = slugTitle.split("-");
+                StringBuilder titleBuilder = new StringBuilder();
+                for (String word : words) {
+                    if (!word.isEmpty()) {
+                        if (titleBuilder.length() > 0) {
+                            titleBuilder.append(" ");
+                        }
+                        titleBuilder.append(Character.toUpperCase(word.charAt(0)));
+                        if (word.length() > 1) {
+                            titleBuilder.append(word.substring(1));
+                        }
+                    }
+                }
+                title = titleBuilder.toString();
+            }
+            
+            // Look for artist name in the URL
+            // Example pattern: /artist/123456/track/ or /artist/name/
+            Pattern artistPattern = Pattern.compile("artist/([a-zA-Z0-9_-]+)");
+            Matcher artistMatcher = artistPattern.matcher(url);
+            if (artistMatcher.find()) {
+                String slugArtist = artistMatcher.group(1);
+                if (slugArtist.matches("[a-zA-Z0-9]+")) {
+                    // If it's just an ID, we can't determine the name
+                    artist = "Unknown Artist";
+                } else {
+                    // Convert slug format to name format
+                    String[] words = slugArtist.split("-");
+                    StringBuilder artistBuilder = new StringBuilder();
+                    for (String word : words) {
+                        if (!word.isEmpty()) {
+                            if (artistBuilder.length() > 0) {
+                                artistBuilder.append(" ");
+                            }
+                            artistBuilder.append(Character.toUpperCase(word.charAt(0)));
+                            if (word.length() > 1) {
+                                artistBuilder.append(word.substring(1));
+                            }
+                        }
+                    }
+                    artist = artistBuilder.toString();
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error extracting info from URL: " + e.getMessage());
+        }
+        
+        return new String[]{title, artist};
+    }
+
+    /**
+     * Gets track info for a Spotify track ID, from the Web API when credentials are configured
+     */
+    public TrackInfo getTrackInfo(String trackId) {
+        if (api != null) {
+            try {
+                return toTrackInfo(call(spotify -> spotify.getTrack(trackId).build()));
+            } catch (IOException e) {
+                BotLogger.warn("Could not get Spotify track " + trackId + ", reading the track page instead: "
+                        + e.getMessage());
+            }
+        }
+        return scrapeTrackInfo();
+    }
+
+    /**
+     * Gets full details of several tracks, 50 per request. Tracks that don't exist are left out.
+     */
+    public List<TrackInfo> getTracks(List<String> trackIds) throws IOException {
+        requireApi();
+        List<TrackInfo> tracks = new ArrayList<>(trackIds.size());
+        for (int from = 0; from < trackIds.size(); from += TRACK_BATCH_SIZE) {
+            String[] batch = trackIds.subList(from, Math.min(trackIds.size(), from + TRACK_BATCH_SIZE))
+                    .toArray(new String[0]);
+            for (Track track : call(spotify -> spotify.getSeveralTracks(batch).build())) {
+                if (track != null) {
+                    tracks.add(toTrackInfo(track));
+                }
+            }
+        }
+        return tracks;
+    }
+
+    /**
+     * Extracts meaningful information from the last Spotify URL or user query when the Web
+     * API can't be used
+     */
+    private TrackInfo scrapeTrackInfo() {
+        String title = null;
+        String artists = null;
+        String album = "";
+        
+        // First try to get the info by downloading the page content
+        String originalUrl = config.getLastSpotifyUrl();
+        if (originalUrl != null && !originalUrl.isEmpty()) {
+            String[] info = SpotifyURLDecoder.extractFromURL(originalUrl);
+            
+            if (info[0] != null && !info[0].equals("Unknown Track")) {
+                title = info[0];
+            }
+            
+            if (info[1] != null && !info[1].equals("Unknown Artist")) {
+                artists = info[1];
+            }
+        }
+        
+        // If we still don't have a title or artist, use fallbacks
+        if (title == null || title.equals("Unknown Track")) {
+            // Try the last user query
+            String userQuery = config.getLastUserQuery();
+            if (userQuery != null && !userQuery.trim().isEmpty()) {
+                // Extract search terms from the query
+                String searchTerms = userQuery.trim();
+                
+                if (searchTerms.startsWith(config.getPrefix())) {
+                    searchTerms = searchTerms.substring(config.getPrefix().length()).trim();
+                }
+                
+                if (searchTerms.toLowerCase().startsWith("play")) {
+                    searchTerms = searchTerms.substring(4).trim();
+                }
+                
+                // Remove the URL
+                searchTerms = searchTerms.replaceAll("https?://\\S+", "").trim();
+                
+                if (!searchTerms.isEmpty()) {
+                    title = searchTerms;
+                    // We already have the full search, no need for separate artists
+                    artists = "";
+                } else {
+                    title = "Spotify song";
+                }
+            } else {
+                title = "Spotify song";
+            }
+        }
+        
+        // If we have no artist info, use generic terms
+        if (artists == null || artists.isEmpty() || artists.equals("Unknown Artist")) {
+            artists = "official audio";
+        }
+        
+        return new TrackInfo(
+                title,
+                artists,
+                album,
+                180 // default duration of 3 minutes
+        );
+    }
+
+    /**
+     * Gets all tracks of a Spotify album, in album order. The album comes with its first page
+     * of tracks, the rest is fetched 50 at a time, then the full track details (ISRC) in batches.
+     * @return the tracks, empty if the album doesn't exist or couldn't be fetched
+     * @throws IllegalStateException if no Spotify credentials are configured
+     */
+    public List<TrackInfo> getAlbumTracks(String albumId) {
+        requireApi();
+        try {
+            Album album = call(spotify -> spotify.getAlbum(albumId).build());
+            List<TrackSimplified> items = new ArrayList<>(Arrays.asList(album.getTracks().getItems()));
+            Paging<TrackSimplified> page = album.getTracks();
+            while (page.getNext() != null && items.size() < page.getTotal()) {
+                int offset = items.size();
+                page = call(spotify -> spotify.getAlbumsTracks(albumId).limit(ALBUM_PAGE_SIZE).offset(offset).build());
+                if (page.getItems().length == 0) break;
+                items.addAll(Arrays.asList(page.getItems()));
+            }
+
+            List<String> ids = items.stream().map(TrackSimplified::getId).collect(Collectors.toList());
+            try {
+                return getTracks(ids);
+            } catch (IOException e) {
+                // The simplified tracks are good enough to search for
+                BotLogger.debug("Could not get details of album " + albumId + " tracks: " + e.getMessage());
+                return items.stream()
+                        .map(track -> new TrackInfo(track.getName(), artistNames(track.getArtists()), album.getName(),
+                                track.getDurationMs() / 1000, track.getId(), null))
+                        .collect(Collectors.toList());
+            }
+        } catch (IOException e) {
+            BotLogger.warn("Could not get Spotify album " + albumId + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Gets all tracks of a Spotify playlist, in playlist order, 100 per request. Podcast
+     * episodes and tracks that are no longer available are left out.
+     * @return the tracks, empty if the playlist doesn't exist or couldn't be fetched
+     * @throws IllegalStateException if no Spotify credentials are configured
+     */
+    public List<TrackInfo> getPlaylistTracks(String playlistId) {
+        requireApi();
+        List<TrackInfo> tracks = new ArrayList<>();
+        try {
+            int offset = 0;
+            Paging<PlaylistTrack> page;
+            do {
+                int pageOffset = offset;
+                page = call(spotify -> spotify.getPlaylistsItems(playlistId).fields(PLAYLIST_FIELDS)
+                        .limit(PLAYLIST_PAGE_SIZE).offset(pageOffset).build());
+                for (PlaylistTrack item : page.getItems()) {
+                    IPlaylistItem track = item.getTrack();
+                    if (track instanceof Track && track.getId() != null) {
+                        tracks.add(toTrackInfo((Track) track));
+                    }
+                }
+                offset += page.getItems().length;
+            } while (page.getNext() != null && page.getItems().length > 0);
+        } catch (IOException e) {
+            BotLogger.warn("Could not get Spotify playlist " + playlistId + " (" + tracks.size() + " tracks read): "
+                    + e.getMessage());
+        }
+        return tracks;
+    }
+
+    private void requireApi() {
+        if (api == null) {
+            throw new IllegalStateException("Spotify albums and playlists need spotify_client_id and "
+                    + "spotify_client_secret in the config");
+        }
+    }
+
+    /**
+     * Runs a Web API request with a valid token. Rate limited requests wait for the time the
+     * API asks for (and hold back every other request meanwhile), a rejected token is renewed.
+     */
+    private <T> T call(Function<SpotifyApi, IRequest<T>> request) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            waitForRateLimit();
+            long start = System.currentTimeMillis();
+            try {
+                String token = accessToken();
+                IRequest<T> built;
+                // The token is read when the request is built
+                synchronized (api) {
+                    api.setAccessToken(token);
+                    built = request.apply(api);
+                }
+                apiCalls.incrementAndGet();
+                return built.execute();
+            } catch (TooManyRequestsException e) {
+                rateLimited.incrementAndGet();
+                pausedUntil = System.currentTimeMillis() + Math.max(1, e.getRetryAfter()) * 1000L;
+                BotLogger.debug("Spotify API rate limited, retrying in " + e.getRetryAfter() + "s");
+                if (attempt >= MAX_RETRIES) throw new IOException("Spotify API rate limit", e);
+            } catch (UnauthorizedException e) {
+                invalidateToken();
+                if (attempt >= MAX_RETRIES) throw new IOException("Spotify API rejected the credentials", e);
+            } catch (NotFoundException e) {
+                throw new IOException("Not found on Spotify", e);
+            } catch (SpotifyWebApiException | ParseException e) {
+                throw new IOException("Spotify API error: " + e.getMessage(), e);
+            } finally {
+                apiLatency.record(System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    private void waitForRateLimit() throws IOException {
+        long wait = pausedUntil - System.currentTimeMillis();
+        if (wait <= 0) return;
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the Spotify rate limit", e);
+        }
+    }
+
+    /**
+     * The cached client credentials token, renewed when it's about to expire
+     */
+    private synchronized String accessToken() throws IOException {
+        if (accessToken != null && System.currentTimeMillis() < tokenExpiresAt - TOKEN_MARGIN_MILLIS) {
+            return accessToken;
+        }
+        try {
+            apiCalls.incrementAndGet();
+            ClientCredentials credentials = api.clientCredentials().build().execute();
+            accessToken = credentials.getAccessToken();
+            tokenExpiresAt = System.currentTimeMillis() + credentials.getExpiresIn() * 1000L;
+            tokenRefreshes.incrementAndGet();
+            BotLogger.debug("Got Spotify access token, valid for " + credentials.getExpiresIn() + "s");
+            return accessToken;
+        } catch (SpotifyWebApiException | ParseException e) {
+            throw new IOException("Could not get a Spotify access token: " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized void invalidateToken() {
+        accessToken = null;
+    }
+
+    private static TrackInfo toTrackInfo(Track track) {
+        String isrc = track.getExternalIds() != null && track.getExternalIds().getExternalIds() != null
+                ? track.getExternalIds().getExternalIds().get("isrc") : null;
+        String album = track.getAlbum() != null && track.getAlbum().getName() != null ? track.getAlbum().getName() : "";
+        return new TrackInfo(track.getName(), artistNames(track.getArtists()), album,
+                track.getDurationMs() / 1000, track.getId(), isrc);
+    }
+
+    private static String artistNames(ArtistSimplified[] artists) {
+        if (artists == null) return "";
+        return Arrays.stream(artists).map(ArtistSimplified::getName).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Data class to store track information
+     */
+    public static class TrackInfo {
+        private final String name;
+        private final String artists;
+        private final String album;
+        private final long durationSeconds;
+        // Only known for tracks from the Web API
+        private final String spotifyId;
+        private final String isrc;
+
+        public TrackInfo(String name, String artists, String album, long durationSeconds) {
+            this(name, artists, album, durationSeconds, null, null);
+        }
+
+        public TrackInfo(String name, String artists, String album, long durationSeconds, String spotifyId,
+                         String isrc) {
+            this.name = name;
+            this.artists = artists;
+            this.album = album;
+            this.durationSeconds = durationSeconds;
+            this.spotifyId = spotifyId;
+            this.isrc = isrc;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getArtists() {
+            return artists;
+        }
+
+        public String getAlbum() {
+            return album;
+        }
+
+        public long getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        /**
+         * Spotify track ID, null if the track wasn't looked up with the Web API
+         */
+        public String getSpotifyId() {
+            return spotifyId;
+        }
+
+        /**
+         * International Standard Recording Code, null if unknown
+         */
+        public String getIsrc() {
+            return isrc;
+        }
+        
+        public String getSearchQuery() {
+            // If the name already has the artist (from user query), just use it directly
+            if (name != null && !name.equals("Spotify song") && !name.equals("Unknown Track")) {
+                if (name.toLowerCase().contains(artists.toLowerCase()) || artists.isEmpty()) {
+                    return name + " official audio";
+                } else {
+                    return name + " " + artists + " official audio";
+                }
+            }
+            
+            // Fallback to a more generic search
+            if (artists != null && !artists.equals("official audio") && !artists.equals("Unknown Artist")) {
+                return "best songs by " + artists + " official audio";
+            }
+            
+            // Last resort
+            return "popular songs official audio";
+        }
+        
+        @Override
+        public String toString() {
+            if (album != null && !album.isEmpty()) {
+                return name + " by " + artists + " [" + album + "]";
+            } else {
+                return name + " by " + artists;
+            }
+        }
+    }
+
+    /**
+     * Enum for Spotify URL types
+     */
+    public enum SpotifyUrlType {
+        TRACK,
+        ALBUM,
+        PLAYLIST,
+        UNKNOWN
+    }
 }
\ No newline at end of file
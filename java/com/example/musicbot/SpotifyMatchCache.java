@@ -0,0 +1,360 @@
+package com.example.musicbot;
+
+import com.example.musicbot.SpotifyManager.TrackInfo;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Remembers which YouTube video was chosen for a Spotify track, keyed by its Spotify ID and
+ * its ISRC (the same recording on another album or single has a different ID but the same
+ * ISRC). A repeated play of a Spotify link needs neither the Spotify lookup nor the YouTube
+ * search, and since the video ID is also the track cache key, the file is often on disk too.
+ *
+ * Every match carries a confidence score (how well title, artist and duration agree).
+ * Matches expire after the TTL, uncertain ones after a quarter of it, so they get searched
+ * again. Persisted next to the track cache index.
+ */
+public class SpotifyMatchCache {
+    private static final int MAX_ENTRIES = 50_000;
+    // Matches below this confidence expire early
+    private static final double LOW_CONFIDENCE = 0.5;
+
+    private final AudioPlayerManager playerManager;
+    private final File file;
+    private final long ttlMillis;
+
+    // Access ordered by Spotify ID (or "isrc:" + ISRC), least recently used first
+    private final LinkedHashMap<String, Match> matches = new LinkedHashMap<>(16, 0.75f, true);
+    // ISRC -> key in matches
+    private final Map<String, String> isrcIndex = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public SpotifyMatchCache(AudioPlayerManager playerManager, File file, long ttlMillis) {
+        this.playerManager = playerManager;
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+
+        load();
+    }
+
+    /**
+     * Returns a freshly decoded track for a Spotify track, or null if it isn't cached (or expired)
+     */
+    public AudioTrack getTrack(TrackInfo info) {
+        Match match = find(info.getSpotifyId(), info.getIsrc());
+        if (match == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        AudioTrack track = decode(match.track);
+        if (track == null) {
+            // Encoding from an older lavaplayer version or a removed source, search again
+            remove(match);
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return track;
+    }
+
+    /**
+     * The Spotify details stored with a match, so a known track doesn't have to be looked up
+     * on Spotify again. Null if the track isn't cached.
+     */
+    public TrackInfo getTrackInfo(String spotifyId) {
+        Match match = find(spotifyId, null);
+        return match == null ? null : new TrackInfo(match.name, match.artists, match.album, match.durationSeconds,
+                match.spotifyId, match.isrc);
+    }
+
+    /**
+     * Stores the video chosen for a Spotify track. Tracks with neither a Spotify ID nor an
+     * ISRC (read from the track page) can't be keyed and are ignored.
+     */
+    public void put(TrackInfo info, AudioTrack track, double confidence) {
+        if (ttlMillis <= 0 || (info.getSpotifyId() == null && info.getIsrc() == null)) return;
+
+        String encoded = encode(track);
+        if (encoded == null) return;
+
+        long now = System.currentTimeMillis();
+        long ttl = confidence < LOW_CONFIDENCE ? ttlMillis / 4 : ttlMillis;
+        Match match = new Match(info.getSpotifyId(), info.getIsrc(), info.getName(), info.getArtists(),
+                info.getAlbum(), info.getDurationSeconds(), QueuePrefetcher.videoIdOf(track), track.getInfo().title,
+                encoded, confidence, now + ttl);
+
+        synchronized (matches) {
+            matches.put(match.key(), match);
+            if (match.isrc != null) {
+                isrcIndex.put(match.isrc, match.key());
+            }
+
+            // Drop least recently used matches over the limit
+            Iterator<Match> oldest = matches.values().iterator();
+            while (matches.size() > MAX_ENTRIES && oldest.hasNext()) {
+                Match dropped = oldest.next();
+                oldest.remove();
+                if (dropped.isrc != null) {
+                    isrcIndex.remove(dropped.isrc, dropped.key());
+                }
+            }
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * How well a YouTube result fits a Spotify track, from 0 to 1: the words of the title and
+     * of the first artist found in the video's title and channel, and how close the durations are.
+     */
+    public static double confidence(TrackInfo info, AudioTrack track) {
+        String haystack = (track.getInfo().title + " " + track.getInfo().author).toLowerCase(Locale.ROOT);
+
+        double titleScore = wordsFound(info.getName(), haystack);
+        String firstArtist = info.getArtists() == null ? "" : info.getArtists().split(",")[0];
+        double artistScore = wordsFound(firstArtist, haystack);
+
+        double durationScore = 0.5;
+        long spotifySeconds = info.getDurationSeconds();
+        long youtubeSeconds = track.getDuration() / 1000;
+        if (spotifySeconds > 0 && youtubeSeconds > 0) {
+            // Full score within 3 seconds, nothing from 30 seconds off
+            long difference = Math.abs(spotifySeconds - youtubeSeconds);
+            durationScore = Math.max(0, Math.min(1, (30 - difference) / 27.0));
+        }
+
+        double confidence = 0.4 * titleScore + 0.3 * artistScore + 0.3 * durationScore;
+        return Math.round(confidence * 100) / 100.0;
+    }
+
+    private static double wordsFound(String text, String haystack) {
+        List<String> words = text == null ? List.of() : Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toList());
+        if (words.isEmpty()) return 0.5;
+        return words.stream().filter(haystack::contains).count() / (double) words.size();
+    }
+
+    /**
+     * Exposes the match cache counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_spotify_match_cache_hits_total", hits::get);
+        MetricsServer.register("musicbot_spotify_match_cache_misses_total", misses::get);
+        MetricsServer.register("musicbot_spotify_match_cache_entries", this::size);
+    }
+
+    public int size() {
+        synchronized (matches) {
+            return matches.size();
+        }
+    }
+
+    /**
+     * Drops expired matches and writes the cache if it changed since the last save.
+     */
+    public void flush() {
+        long now = System.currentTimeMillis();
+        synchronized (matches) {
+            Iterator<Match> it = matches.values().iterator();
+            while (it.hasNext()) {
+                Match match = it.next();
+                if (match.expiresAt <= now) {
+                    it.remove();
+                    if (match.isrc != null) {
+                        isrcIndex.remove(match.isrc, match.key());
+                    }
+                    dirty.set(true);
+                }
+            }
+        }
+
+        if (dirty.get()) {
+            save();
+        }
+    }
+
+    /**
+     * The match for a Spotify ID, or failing that for the ISRC; null if there is none or it expired
+     */
+    private Match find(String spotifyId, String isrc) {
+        if (ttlMillis <= 0) return null;
+
+        synchronized (matches) {
+            Match match = spotifyId != null ? matches.get(spotifyId) : null;
+            if (match == null && isrc != null) {
+                String key = isrcIndex.get(isrc);
+                match = key != null ? matches.get(key) : null;
+            }
+            if (match != null && match.expiresAt <= System.currentTimeMillis()) {
+                remove(match);
+                return null;
+            }
+            return match;
+        }
+    }
+
+    private void remove(Match match) {
+        synchronized (matches) {
+            matches.remove(match.key());
+            if (match.isrc != null) {
+                isrcIndex.remove(match.isrc, match.key());
+            }
+        }
+        dirty.set(true);
+    }
+
+    private String encode(AudioTrack track) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            playerManager.encodeTrack(new MessageOutput(out), track);
+            return Base64.getEncoder().encodeToString(out.toByteArray());
+        } catch (IOException e) {
+            BotLogger.debug("Could not encode Spotify match " + track.getIdentifier() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private AudioTrack decode(String encoded) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(encoded);
+            DecodedTrackHolder holder = playerManager.decodeTrack(new MessageInput(new ByteArrayInputStream(bytes)));
+            return holder == null ? null : holder.decodedTrack;
+        } catch (Exception e) {
+            BotLogger.debug("Could not decode cached Spotify match: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private synchronized void save() {
+        DataArray array = DataArray.empty();
+        synchronized (matches) {
+            for (Match match : matches.values()) {
+                array.add(match.toData());
+            }
+        }
+
+        // Write to a temporary file first so a crash never leaves a truncated file
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), array.toJson());
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty.set(false);
+        } catch (IOException e) {
+            BotLogger.error("Could not save Spotify match cache: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+
+        long now = System.currentTimeMillis();
+        try (InputStream in = new FileInputStream(file)) {
+            DataArray array = DataArray.fromJson(in);
+            synchronized (matches) {
+                for (int i = 0; i < array.length(); i++) {
+                    Match match = Match.fromData(array.getObject(i));
+                    if (match.expiresAt > now) {
+                        matches.put(match.key(), match);
+                        if (match.isrc != null) {
+                            isrcIndex.put(match.isrc, match.key());
+                        }
+                    }
+                }
+            }
+            BotLogger.info("Loaded Spotify match cache with " + size() + " tracks");
+        } catch (Exception e) {
+            BotLogger.error("Could not read Spotify match cache, starting empty: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The video chosen for one Spotify track
+     */
+    private static class Match {
+        private final String spotifyId;
+        private final String isrc;
+        private final String name;
+        private final String artists;
+        private final String album;
+        private final long durationSeconds;
+        // Also the track cache key; only stored to make the file readable
+        private final String videoId;
+        private final String videoTitle;
+        private final String track;
+        private final double confidence;
+        private final long expiresAt;
+
+        Match(String spotifyId, String isrc, String name, String artists, String album, long durationSeconds,
+              String videoId, String videoTitle, String track, double confidence, long expiresAt) {
+            this.spotifyId = spotifyId;
+            this.isrc = isrc;
+            this.name = name;
+            this.artists = artists;
+            this.album = album;
+            this.durationSeconds = durationSeconds;
+            this.videoId = videoId;
+            this.videoTitle = videoTitle;
+            this.track = track;
+            this.confidence = confidence;
+            this.expiresAt = expiresAt;
+        }
+
+        String key() {
+            return spotifyId != null ? spotifyId : "isrc:" + isrc;
+        }
+
+        DataObject toData() {
+            return DataObject.empty()
+                    .put("spotify_id", spotifyId)
+                    .put("isrc", isrc)
+                    .put("name", name)
+                    .put("artists", artists)
+                    .put("album", album)
+                    .put("duration_seconds", durationSeconds)
+                    .put("video_id", videoId)
+                    .put("video_title", videoTitle)
+                    .put("track", track)
+                    .put("confidence", confidence)
+                    .put("expires_at", expiresAt);
+        }
+
+        static Match fromData(DataObject data) {
+            return new Match(data.getString("spotify_id", null), data.getString("isrc", null),
+                    data.getString("name", ""), data.getString("artists", ""), data.getString("album", ""),
+                    data.getLong("duration_seconds", 0), data.getString("video_id", null),
+                    data.getString("video_title", ""), data.getString("track"), data.getDouble("confidence", 0),
+                    data.getLong("expires_at", 0));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.musicbot;
+
+import com.example.musicbot.SpotifyManager.TrackInfo;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.DelegatedAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A queued Spotify track that wasn't searched on YouTube yet. The queue resolves placeholders
+ * a few positions before they reach the head; one that is played before that is resolved
+ * when it starts. Clones share the resolution, so the search runs once per queue entry.
+ */
+public class SpotifyPlaceholderTrack extends DelegatedAudioTrack {
+    // How long a placeholder that starts playing waits for its search
+    private static final long RESOLVE_TIMEOUT_SECONDS = 30;
+
+    private final TrackInfo spotifyInfo;
+    private final SpotifyResolver resolver;
+    private final Resolution resolution;
+
+    public SpotifyPlaceholderTrack(TrackInfo spotifyInfo, SpotifyResolver resolver) {
+        this(spotifyInfo, resolver, new Resolution());
+    }
+
+    private SpotifyPlaceholderTrack(TrackInfo spotifyInfo, SpotifyResolver resolver, Resolution resolution) {
+        super(new AudioTrackInfo(spotifyInfo.getName(), spotifyInfo.getArtists(),
+                spotifyInfo.getDurationSeconds() * 1000, identifierOf(spotifyInfo), false,
+                spotifyInfo.getSpotifyId() != null ? "https://open.spotify.com/track/" + spotifyInfo.getSpotifyId() : null));
+        this.spotifyInfo = spotifyInfo;
+        this.resolver = resolver;
+        this.resolution = resolution;
+    }
+
+    private static String identifierOf(TrackInfo info) {
+        return info.getSpotifyId() != null ? "spotify:track:" + info.getSpotifyId() : "ytsearch:" + info.getSearchQuery();
+    }
+
+    public TrackInfo getSpotifyInfo() {
+        return spotifyInfo;
+    }
+
+    /**
+     * Starts the YouTube search if it didn't start yet
+     * @return completes with the track found, or null if there was none
+     */
+    public CompletableFuture<AudioTrack> resolve() {
+        synchronized (resolution) {
+            if (resolution.future == null) {
+                resolution.future = new CompletableFuture<>();
+                resolver.resolve(spotifyInfo, resolution.future::complete);
+            }
+            return resolution.future;
+        }
+    }
+
+    public boolean isResolutionStarted() {
+        synchronized (resolution) {
+            return resolution.future != null;
+        }
+    }
+
+    /**
+     * The track found on YouTube, null if the search didn't finish (or didn't start) yet
+     */
+    public AudioTrack getResolved() {
+        CompletableFuture<AudioTrack> future;
+        synchronized (resolution) {
+            future = resolution.future;
+        }
+        return future != null && future.isDone() ? future.getNow(null) : null;
+    }
+
+    /**
+     * Whether the search finished without finding anything, so playing it is pointless
+     */
+    public boolean isUnresolvable() {
+        CompletableFuture<AudioTrack> future;
+        synchronized (resolution) {
+            future = resolution.future;
+        }
+        return future != null && future.isDone() && future.getNow(null) == null;
+    }
+
+    @Override
+    public void process(LocalAudioTrackExecutor executor) throws Exception {
+        AudioTrack track;
+        try {
+            track = resolve().get(RESOLVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new FriendlyException("Timed out looking for " + spotifyInfo + " on YouTube",
+                    FriendlyException.Severity.COMMON, e);
+        }
+        if (track == null) {
+            throw new FriendlyException("No YouTube match for " + spotifyInfo, FriendlyException.Severity.COMMON, null);
+        }
+        processDelegate((InternalAudioTrack) track.makeClone(), executor);
+    }
+
+    @Override
+    protected AudioTrack makeShallowClone() {
+        return new SpotifyPlaceholderTrack(spotifyInfo, resolver, resolution);
+    }
+
+    /**
+     * The search of one queue entry, shared by its clones
+     */
+    private static class Resolution {
+        private CompletableFuture<AudioTrack> future;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.musicbot;
+
+import com.example.musicbot.SpotifyManager.TrackInfo;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Finds the tracks of a Spotify album or playlist on YouTube. A few searches run at once
+ * (shared by all imports) and their starts are spaced out; when a search looks rate limited
+ * the spacing grows, and shrinks again as searches succeed. Results are handed over in
+ * playlist order as soon as everything before them is known, so the first track can play
+ * while the rest is still being searched.
+ *
+ * Tracks matched before are taken from the match cache without a search. Otherwise the
+ * search result that fits the Spotify track best is used and remembered.
+ */
+public class SpotifyResolver {
+    // Longest spacing between search starts after repeated rate limiting
+    private static final long MAX_INTERVAL_MILLIS = 10_000;
+    // Search results considered for a track; later ones are rarely the right recording
+    private static final int CANDIDATES = 3;
+    // Another result is only preferred over the first one if it fits clearly better
+    private static final double BETTER_BY = 0.15;
+
+    private final BiConsumer<String, AudioLoadResultHandler> loader;
+    private final SpotifyMatchCache matchCache;
+    private final Semaphore slots;
+    private final long minIntervalMillis;
+    private volatile long intervalMillis;
+    private long nextStartAt;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final LatencyStats searchLatency = new LatencyStats();
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService dispatchers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Spotify-Resolver-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param loader looks up an identifier, e.g. MusicManager::loadItem so the search cache is used
+     * @param matchCache earlier matches, used instead of searching and updated with new ones
+     * @param concurrency searches running at once over all imports
+     * @param minIntervalMillis spacing between two search starts while nothing is rate limited
+     */
+    public SpotifyResolver(BiConsumer<String, AudioLoadResultHandler> loader, SpotifyMatchCache matchCache,
+                           int concurrency, long minIntervalMillis) {
+        this.loader = loader;
+        this.matchCache = matchCache;
+        this.slots = new Semaphore(Math.max(1, concurrency));
+        this.minIntervalMillis = Math.max(0, minIntervalMillis);
+        this.intervalMillis = this.minIntervalMillis;
+    }
+
+    /**
+     * Exposes search counters and the current spacing on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_spotify_searches_total", searches::get);
+        MetricsServer.register("musicbot_spotify_search_failures_total", failures::get);
+        MetricsServer.register("musicbot_spotify_search_rate_limited_total", rateLimited::get);
+        MetricsServer.register("musicbot_spotify_search_interval_ms", () -> intervalMillis);
+        searchLatency.register("musicbot_spotify_search_ms");
+    }
+
+    /**
+     * Searches all tracks in the background. The listener is called from the resolver's threads,
+     * once per track in playlist order, then onComplete. Cancelling the token stops the searches
+     * that didn't start yet; results that arrive afterwards aren't handed over.
+     */
+    public void resolve(List<TrackInfo> tracks, CancellationToken token, Listener listener) {
+        Import job = new Import(tracks, token, listener);
+        dispatchers.execute(job::dispatch);
+    }
+
+    /**
+     * Finds a single track, on the resolver's threads like an import of one track
+     * @param onResult gets the track, or null if nothing was found
+     */
+    public void resolve(TrackInfo info, Consumer<AudioTrack> onResult) {
+        resolve(Collections.singletonList(info), new CancellationToken(), new Listener() {
+            @Override
+            public void onResolved(int index, TrackInfo resolvedInfo, AudioTrack track) {
+                onResult.accept(track);
+            }
+
+            @Override
+            public void onFailed(int index, TrackInfo failedInfo) {
+                onResult.accept(null);
+            }
+
+            @Override
+            public void onComplete(int resolved, int failed) {
+            }
+        });
+    }
+
+    /**
+     * The search result that fits the Spotify track best: the first one, unless a later
+     * candidate is clearly better
+     */
+    private static AudioTrack pickBest(TrackInfo info, List<AudioTrack> results) {
+        AudioTrack best = results.get(0);
+        double bestConfidence = SpotifyMatchCache.confidence(info, best);
+        for (int i = 1; i < Math.min(CANDIDATES, results.size()); i++) {
+            double confidence = SpotifyMatchCache.confidence(info, results.get(i));
+            if (confidence >= bestConfidence + BETTER_BY) {
+                best = results.get(i);
+                bestConfidence = confidence;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Waits until the next search may start
+     */
+    private void pace() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long startAt = Math.max(now, nextStartAt);
+            nextStartAt = startAt + intervalMillis;
+            wait = startAt - now;
+        }
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    private void onSearchDone(boolean succeeded, FriendlyException error) {
+        if (error != null && isRateLimit(error)) {
+            rateLimited.incrementAndGet();
+            intervalMillis = Math.min(MAX_INTERVAL_MILLIS, Math.max(250, intervalMillis * 2));
+            BotLogger.debug("YouTube search looks rate limited, spacing searches " + intervalMillis + "ms apart");
+        } else if (succeeded && intervalMillis > minIntervalMillis) {
+            intervalMillis = Math.max(minIntervalMillis, intervalMillis * 3 / 4);
+        }
+    }
+
+    private static boolean isRateLimit(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            String message = t.getMessage();
+            if (message != null && (message.contains("429") || message.toLowerCase().contains("too many requests")
+                    || message.toLowerCase().contains("rate limit"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Told about the tracks of one import, in playlist order
+     */
+    public interface Listener {
+        void onResolved(int index, TrackInfo info, AudioTrack track);
+
+        void onFailed(int index, TrackInfo info);
+
+        /**
+         * @param resolved tracks handed to onResolved
+         * @param failed tracks handed to onFailed
+         */
+        void onComplete(int resolved, int failed);
+    }
+
+    /**
+     * One album or playlist being resolved
+     */
+    private class Import {
+        private final List<TrackInfo> tracks;
+        private final CancellationToken token;
+        private final Listener listener;
+        private final AudioTrack[] results;
+        private final boolean[] done;
+        // Tracks that will get a result, fewer than tracks.size() once cancelled
+        private int end;
+        private int next;
+        private int resolved;
+        private int failed;
+        private boolean completed;
+
+        Import(List<TrackInfo> tracks, CancellationToken token, Listener listener) {
+            this.tracks = tracks;
+            this.token = token;
+            this.listener = listener;
+            this.results = new AudioTrack[tracks.size()];
+            this.done = new boolean[tracks.size()];
+            this.end = tracks.size();
+        }
+
+        void dispatch() {
+            int started = 0;
+            try {
+                for (; started < tracks.size() && !token.isCancelled(); started++) {
+                    // Known tracks need neither a slot nor a search
+                    AudioTrack cached = matchCache.getTrack(tracks.get(started));
+                    if (cached != null) {
+                        complete(started, cached);
+                        continue;
+                    }
+
+                    slots.acquire();
+                    try {
+                        pace();
+                    } catch (InterruptedException e) {
+                        slots.release();
+                        throw e;
+                    }
+                    search(started);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            // Also completes imports that were cancelled, or had no tracks at all
+            synchronized (this) {
+                end = started;
+            }
+            deliver();
+        }
+
+        private void search(int index) {
+            long start = System.currentTimeMillis();
+            TrackInfo info = tracks.get(index);
+            searches.incrementAndGet();
+            loader.accept("ytsearch:" + info.getSearchQuery(), new AudioLoadResultHandler() {
+                @Override
+                public void trackLoaded(AudioTrack track) {
+                    finish(track, null);
+                }
+
+                @Override
+                public void playlistLoaded(AudioPlaylist playlist) {
+                    finish(playlist.getTracks().isEmpty() ? null : pickBest(info, playlist.getTracks()), null);
+                }
+
+                @Override
+                public void noMatches() {
+                    finish(null, null);
+                }
+
+                @Override
+                public void loadFailed(FriendlyException exception) {
+                    finish(null, exception);
+                }
+
+                private void finish(AudioTrack track, FriendlyException error) {
+                    slots.release();
+                    searchLatency.record(System.currentTimeMillis() - start);
+                    if (track == null) {
+                        failures.incrementAndGet();
+                    } else {
+                        matchCache.put(info, track, SpotifyMatchCache.confidence(info, track));
+                    }
+                    onSearchDone(track != null, error);
+                    complete(index, track);
+                }
+            });
+        }
+
+        private void complete(int index, AudioTrack track) {
+            synchronized (this) {
+                results[index] = track;
+                done[index] = true;
+            }
+            deliver();
+        }
+
+        /**
+         * Hands over every result whose predecessors are all handed over. Synchronized, so
+         * the listener sees the tracks one at a time and in order.
+         */
+        private synchronized void deliver() {
+            while (next < end && done[next]) {
+                int index = next++;
+                AudioTrack track = results[index];
+                results[index] = null;
+                if (token.isCancelled()) continue;
+
+                try {
+                    if (track != null) {
+                        resolved++;
+                        listener.onResolved(index, tracks.get(index), track);
+                    } else {
+                        failed++;
+                        listener.onFailed(index, tracks.get(index));
+                    }
+                } catch (RuntimeException e) {
+                    BotLogger.error("Spotify import listener failed: " + e.getMessage(), e);
+                }
+            }
+
+            if (next >= end && !completed) {
+                completed = true;
+                listener.onComplete(resolved, failed);
+            }
+        }
+    }
+}
@@ -1,119 +1,306 @@
-package com.example.musicbot;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-/**
- * Helper class to extract meaningful information from Spotify URLs by fetching their HTML content
- */
-public class SpotifyURLDecoder {
-    // Patterns to extract information from Spotify URLs
-    private static final Pattern TRACK_ID_PATTERN = Pattern.compile("spotify\\.com/track/([a-zA-Z0-9]+)");
-    private static final Pattern TITLE_META_PATTERN = Pattern.compile("<meta property=\"og:title\" content=\"([^\"]+)\"");
-    private static final Pattern DESCRIPTION_META_PATTERN = Pattern.compile("<meta name=\"description\" content=\"([^\"]+)\"");
-    private static final Pattern HTML_TITLE_PATTERN = Pattern.compile("<title>([^<]+)</title>");
-    
-    /**
-     * Extract information from a Spotify URL by fetching its content
-     * @param spotifyUrl The Spotify URL
-     * @return String array with [title, artist]
-     */
-    public static String[] extractFromURL(String spotifyUrl) {
-        String title = "Unknown Track";
-        String artist = "Unknown Artist";
-        
-        try {
-            // First get the track ID
-            Matcher trackMatcher = TRACK_ID_PATTERN.matcher(spotifyUrl);
-            if (!trackMatcher.find()) {
-                return new String[]{title, artist};
-            }
-            
-            // Create a GET request to the Spotify URL
-            URL url = new URL(spotifyUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            
-            // Set a browser-like user agent to avoid being blocked
-            connection.setRequestProperty("User-Agent", 
-                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-            
-            // Set a timeout
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-            
-            // Get the response
-            int responseCode = connection.getResponseCode();
-            if (responseCode == 200) {
-                // Read the HTML content
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                StringBuilder content = new StringBuilder();
-                String line;
-                
-                while ((line = reader.readLine()) != null) {
-                    content.append(line);
-                    
-                    // Look for meta tags - we don't need to read the whole thing
-                    if (content.length() > 10000) break;
-                }
-                reader.close();
-                
-                // Extract title from meta tag
-                Matcher titleMatcher = TITLE_META_PATTERN.matcher(content);
-                if (titleMatcher.find()) {
-                    String fullTitle = titleMatcher.group(1);
-                    
-                    // Spotify meta title is usually "Song Name - Artist Name"
-                    if (fullTitle.contains(" - ")) {
-                        String[] parts = fullTitle.split(" - ", 2);
-                        title = parts[0].trim();
-                        artist = parts[1].trim();
-                    } else {
-                        title = fullTitle;
-                    }
-                } else {
-                    // Try HTML title as fallback
-                    Matcher htmlTitleMatcher = HTML_TITLE_PATTERN.matcher(content);
-                    if (htmlTitleMatcher.find()) {
-                        String htmlTitle = htmlTitleMatcher.group(1);
-                        if (htmlTitle.contains(" - ")) {
-                            String[] parts = htmlTitle.split(" - ", 2);
-                            title = parts[0].trim();
-                            if (!parts[1].toLowerCase().contains("spotify")) {
-                                artist = parts[1].trim();
-                            }
-                        } else {
-                            title = htmlTitle;
-                        }
-                    }
-                }
-                
-                // Try description meta for more info
-                Matcher descMatcher = DESCRIPTION_META_PATTERN.matcher(content);
-                if (descMatcher.find()) {
-                    String description = descMatcher.group(1);
-                    if (description.contains("by") && artist.equals("Unknown Artist")) {
-                        int byIndex = description.indexOf("by");
-                        if (byIndex > 0 && byIndex + 3 < description.length()) {
-                            String possibleArtist = description.substring(byIndex + 3).trim();
-                            if (possibleArtist.contains(".")) {
-                                possibleArtist = possibleArtist.substring(0, possibleArtist.indexOf("."));
-                            }
-                            if (!possibleArtist.isEmpty()) {
-                                artist = possibleArtist;
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error fetching Spotify URL: " + e.getMessage());
-        }
-        
-        return new String[]{title, artist};
-    }
-}
\ No newline at end of file
+package com.example.musicbot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Helper class to extract meaningful information from Spotify URLs by fetching their HTML content.
+ *
+ * All fetches share one HTTP client (HTTP/2, connections kept alive), the page is scanned tag
+ * by tag as it arrives and the download stops as soon as the title and description were seen.
+ * Concurrent lookups of the same URL share a single fetch.
+ */
+public class SpotifyURLDecoder {
+    // Patterns to extract information from Spotify URLs
+    private static final Pattern TRACK_ID_PATTERN = Pattern.compile("spotify\\.com/track/([a-zA-Z0-9]+)");
+    // Attributes of a single tag
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("([a-zA-Z:-]+)=\"([^\"]*)\"");
+    // Browser-like user agent to avoid being blocked
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    // Reading the page must be done this long after the headers arrived
+    private static final long READ_TIMEOUT_MILLIS = 5000;
+    // Lookups joining a fetch wait at most for a whole fetch: connect, headers and body
+    private static final long JOIN_TIMEOUT_MILLIS = 3 * 5000 + 1000;
+    // Pages whose head is larger than this are given up on
+    private static final int MAX_READ_CHARS = 256 * 1024;
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(TIMEOUT)
+            .build();
+
+    // Closes bodies that are still being read when their deadline passed
+    private static final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Spotify-Page-Deadline");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // URL -> fetch in progress, joined by lookups of the same URL
+    private static final Map<String, CompletableFuture<String[]>> inFlight = new ConcurrentHashMap<>();
+
+    private static final AtomicLong fetches = new AtomicLong();
+    private static final AtomicLong coalesced = new AtomicLong();
+    private static final AtomicLong charsRead = new AtomicLong();
+    private static final LatencyStats fetchLatency = new LatencyStats();
+
+    /**
+     * Extract information from a Spotify URL by fetching its content
+     * @param spotifyUrl The Spotify URL
+     * @return String array with [title, artist]
+     */
+    public static String[] extractFromURL(String spotifyUrl) {
+        // First check it's a track link at all
+        Matcher trackMatcher = TRACK_ID_PATTERN.matcher(spotifyUrl);
+        if (!trackMatcher.find()) {
+            return new String[]{"Unknown Track", "Unknown Artist"};
+        }
+
+        CompletableFuture<String[]> own = new CompletableFuture<>();
+        CompletableFuture<String[]> running = inFlight.putIfAbsent(spotifyUrl, own);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            try {
+                return running.get(JOIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).clone();
+            } catch (TimeoutException | ExecutionException e) {
+                BotLogger.warn("Gave up waiting for a fetch of " + spotifyUrl + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new String[]{"Unknown Track", "Unknown Artist"};
+        }
+
+        try {
+            own.complete(fetch(spotifyUrl));
+        } catch (RuntimeException e) {
+            // Don't leave lookups that joined this fetch waiting
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(spotifyUrl, own);
+        }
+        return own.join().clone();
+    }
+
+    /**
+     * Exposes fetch counters on the metrics endpoint.
+     */
+    public static void registerMetrics() {
+        MetricsServer.register("musicbot_spotify_page_fetches_total", fetches::get);
+        MetricsServer.register("musicbot_spotify_page_fetches_coalesced_total", coalesced::get);
+        MetricsServer.register("musicbot_spotify_page_chars_read_total", charsRead::get);
+        fetchLatency.register("musicbot_spotify_page_fetch_ms");
+    }
+
+    private static String[] fetch(String spotifyUrl) {
+        String title = "Unknown Track";
+        String artist = "Unknown Artist";
+
+        long start = System.currentTimeMillis();
+        fetches.incrementAndGet();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(spotifyUrl))
+                    .timeout(TIMEOUT)
+                    .header("User-Agent", USER_AGENT)
+                    .GET()
+                    .build();
+            HttpResponse<InputStream> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream());
+
+            MetaTagScanner page = new MetaTagScanner();
+            // Closing the body early cancels the rest of the download, the connection stays open.
+            // The request timeout only covers the headers, a stalled body is closed by the deadline.
+            InputStream body = response.body();
+            ScheduledFuture<?> deadline = deadlines.schedule(() -> closeQuietly(body),
+                    READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+                if (response.statusCode() == 200) {
+                    page.scan(reader);
+                }
+            } catch (IOException e) {
+                // What was read before the deadline may already be enough
+                if (!deadline.isDone()) throw e;
+                BotLogger.debug("Timed out reading " + spotifyUrl + ", using what was read so far");
+            } finally {
+                deadline.cancel(false);
+            }
+
+            if (page.ogTitle != null) {
+                String fullTitle = page.ogTitle;
+
+                // Spotify meta title is usually "Song Name - Artist Name"
+                if (fullTitle.contains(" - ")) {
+                    String[] parts = fullTitle.split(" - ", 2);
+                    title = parts[0].trim();
+                    artist = parts[1].trim();
+                } else {
+                    title = fullTitle;
+                }
+            } else if (page.htmlTitle != null) {
+                // Try HTML title as fallback
+                String htmlTitle = page.htmlTitle;
+                if (htmlTitle.contains(" - ")) {
+                    String[] parts = htmlTitle.split(" - ", 2);
+                    title = parts[0].trim();
+                    if (!parts[1].toLowerCase().contains("spotify")) {
+                        artist = parts[1].trim();
+                    }
+                } else {
+                    title = htmlTitle;
+                }
+            }
+
+            // Try description meta for more info
+            String description = page.description;
+            if (description != null && description.contains("by") && artist.equals("Unknown Artist")) {
+                int byIndex = description.indexOf("by");
+                if (byIndex > 0 && byIndex + 3 < description.length()) {
+                    String possibleArtist = description.substring(byIndex + 3).trim();
+                    if (possibleArtist.contains(".")) {
+                        possibleArtist = possibleArtist.substring(0, possibleArtist.indexOf("."));
+                    }
+                    if (!possibleArtist.isEmpty()) {
+                        artist = possibleArtist;
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            BotLogger.warn("Error fetching Spotify URL " + spotifyUrl + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            BotLogger.debug("Interrupted fetching Spotify URL " + spotifyUrl);
+        } finally {
+            fetchLatency.record(System.currentTimeMillis() - start);
+        }
+
+        return new String[]{title, artist};
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // The read that was blocked fails, that's all that was wanted
+        }
+    }
+
+    /**
+     * Reads a page tag by tag, keeping only the tag being read, and stops once the og:title
+     * and description meta tags were seen (or the head ended).
+     */
+    private static class MetaTagScanner {
+        private String ogTitle;
+        private String description;
+        private String htmlTitle;
+
+        void scan(Reader reader) throws IOException {
+            StringBuilder tag = new StringBuilder();
+            StringBuilder text = null; // Inside <title>
+            boolean inTag = false;
+            char[] buffer = new char[4096];
+            int total = 0;
+            int read;
+
+            while ((read = reader.read(buffer)) != -1) {
+                total += read;
+                charsRead.addAndGet(read);
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (!inTag) {
+                        if (c == '<') {
+                            inTag = true;
+                            tag.setLength(0);
+                        } else if (text != null) {
+                            text.append(c);
+                        }
+                    } else if (c == '>') {
+                        inTag = false;
+                        String name = tagName(tag);
+                        if (text != null && name.equals("/title")) {
+                            htmlTitle = unescape(text.toString().trim());
+                            text = null;
+                        } else if (name.equals("title")) {
+                            text = new StringBuilder();
+                        } else if (name.equals("meta")) {
+                            onMeta(tag);
+                        } else if (name.equals("/head") || name.equals("body")) {
+                            return;
+                        }
+                        if (ogTitle != null && description != null) {
+                            return;
+                        }
+                    } else {
+                        tag.append(c);
+                    }
+                }
+                if (total >= MAX_READ_CHARS) {
+                    return;
+                }
+            }
+        }
+
+        private void onMeta(CharSequence tag) {
+            String property = null;
+            String name = null;
+            String content = null;
+            Matcher attributes = ATTRIBUTE_PATTERN.matcher(tag);
+            while (attributes.find()) {
+                switch (attributes.group(1).toLowerCase()) {
+                    case "property":
+                        property = attributes.group(2);
+                        break;
+                    case "name":
+                        name = attributes.group(2);
+                        break;
+                    case "content":
+                        content = attributes.group(2);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (content == null) return;
+
+            if ("og:title".equals(property) && ogTitle == null) {
+                ogTitle = unescape(content);
+            } else if ("description".equals(name) && description == null) {
+                description = unescape(content);
+            }
+        }
+
+        private static String tagName(CharSequence tag) {
+            int end = tag.length() > 0 && tag.charAt(0) == '/' ? 1 : 0;
+            while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end))) {
+                end++;
+            }
+            return tag.subSequence(0, end).toString().toLowerCase();
+        }
+
+        private static String unescape(String value) {
+            return value.replace("&quot;", "\"").replace("&#x27;", "'").replace("&#39;", "'")
+                    .replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+        }
+    }
+}
@@ -0,0 +1,1050 @@
+package com.example.musicbot;
+
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Index of the downloaded YouTube tracks kept in the cache directory.
+ * Lookups, statistics and eviction all work off this index. The directory itself is only
+ * scanned at startup, to bootstrap an index for an existing cache or to pick up files the
+ * index missed because the bot stopped before it was written.
+ *
+ * Tracks live in one of two tiers: CACHE entries are kept until evicted by size,
+ * TEMP entries ("just this time" downloads) expire after a TTL once nothing is using them.
+ *
+ * Cache tier files are spread over 256 shard directories named after a hash of the video ID,
+ * so no directory grows past a few hundred files. Downloads are written to the staging
+ * directory as .part files and only renamed into place once complete.
+ */
+public class TrackCache {
+    private static final String INDEX_FILE = "index.json";
+    private static final String TEMP_DIR = "temp";
+    private static final String STAGING_DIR = "staging";
+    private static final String PART_SUFFIX = ".part";
+    // A file replaced by a converted copy that nobody acquired is kept this long, for players
+    // that looked it up before the replacement and are still loading it
+    private static final long RETIRED_GRACE_MILLIS = 60 * 1000;
+
+    private final File cacheDir;
+    private final File tempDir;
+    private final File stagingDir;
+    private final File indexFile;
+    private final long maxCacheSize;
+    private final long maxEntrySize;
+    private final long tempTtlMillis;
+
+    // videoId -> entry
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    // absolute file path -> videoId, so players can release files by track identifier
+    private final Map<String, String> pathIndex = new ConcurrentHashMap<>();
+    // References to files still being downloaded (played while downloading), taken over on admission
+    private final Map<String, AtomicInteger> pendingRefs = new ConcurrentHashMap<>();
+    // Files replaced by a converted copy, deleted once their references are released: path -> retirement
+    private final Map<String, Retired> retired = new ConcurrentHashMap<>();
+    // Serializes index writes; taken before the cache's own lock, never while holding it
+    private final Object indexLock = new Object();
+
+    // Live counters
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong admissionRejections = new AtomicLong();
+    private final AtomicLong downloadMillisAvoided = new AtomicLong();
+    private final AtomicLong bytesStored = new AtomicLong();
+    private final AtomicLong tempBytes = new AtomicLong();
+    private final AtomicLong tempExpirations = new AtomicLong();
+
+    // Set when the index changed and needs to be written; it's written by flush, not on every change
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public TrackCache(File cacheDir, long maxCacheSize, long maxEntrySize, long tempTtlMillis) {
+        this.cacheDir = cacheDir;
+        this.tempDir = new File(cacheDir, TEMP_DIR);
+        this.stagingDir = new File(cacheDir, STAGING_DIR);
+        this.indexFile = new File(cacheDir, INDEX_FILE);
+        this.maxCacheSize = maxCacheSize;
+        this.maxEntrySize = maxEntrySize;
+        this.tempTtlMillis = tempTtlMillis;
+
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        if (!tempDir.exists()) {
+            tempDir.mkdirs();
+        }
+        if (!stagingDir.exists()) {
+            stagingDir.mkdirs();
+        }
+
+        load();
+        migrateFlatLayout();
+    }
+
+    /**
+     * Final location of a track's file: a shard directory for the cache tier, the temp directory otherwise.
+     * The title must already be safe for use in a filename.
+     * @param extension the file's container, e.g. "webm"
+     */
+    public File fileFor(String videoId, String title, String extension, Tier tier) {
+        String fileName = videoId + "_" + title + "." + extension;
+        if (tier == Tier.TEMP) {
+            return new File(tempDir, fileName);
+        }
+        return new File(new File(cacheDir, shardFor(videoId)), fileName);
+    }
+
+    /**
+     * Where a download of the given video should be written. Staging files are never
+     * in the index, so lookups can't hand out a partially written file.
+     */
+    public File stagingFileFor(String videoId) {
+        return new File(stagingDir, videoId + PART_SUFFIX);
+    }
+
+    /**
+     * Where a cache file being converted to another format is written before it replaces the original
+     */
+    public File conversionFileFor(String videoId) {
+        return new File(stagingDir, videoId + ".convert");
+    }
+
+    /**
+     * Atomically moves a completed download from the staging directory to its final location.
+     */
+    public void commit(File stagingFile, File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        Files.move(stagingFile.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Looks up a track by its YouTube video ID in either tier and records a hit or miss.
+     * Reusing a temp entry extends its TTL.
+     * @return the cache entry, or null if the track is not available
+     */
+    public CacheEntry lookup(String videoId) {
+        CacheEntry entry = entries.get(videoId);
+
+        // Drop entries whose file was removed behind our back, and expired temp files nobody is playing
+        if (entry != null && (!entry.getFile().exists()
+                || (entry.isExpired(System.currentTimeMillis()) && entry.refs.get() == 0))) {
+            remove(videoId);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        downloadMillisAvoided.addAndGet(entry.downloadMillis);
+        entry.recordHit();
+        if (entry.tier == Tier.TEMP) {
+            entry.expiresAt = System.currentTimeMillis() + tempTtlMillis;
+        }
+        dirty.set(true);
+        return entry;
+    }
+
+    /**
+     * Like lookup, but without counting a hit or miss or touching the entry.
+     * @return the cache entry, or null if the track is not available
+     */
+    public CacheEntry peek(String videoId) {
+        CacheEntry entry = entries.get(videoId);
+        return entry != null && entry.getFile().exists() ? entry : null;
+    }
+
+    /**
+     * Adds a freshly downloaded file to the cache tier.
+     * @return false if the file was rejected by the admission policy (too large),
+     *         in which case the caller still owns the file
+     */
+    public boolean admit(String videoId, String title, File file, long downloadMillis) {
+        long size = file.length();
+        if (size <= 0 || size > maxEntrySize) {
+            admissionRejections.incrementAndGet();
+            BotLogger.debug("Cache admission rejected for " + videoId + " (" + size + " bytes)");
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        put(new CacheEntry(cacheDir, videoId, title, relativePath(file), Tier.CACHE, size,
+                now, now, 0, downloadMillis, 0));
+
+        evictToLimit();
+        dirty.set(true);
+        return true;
+    }
+
+    /**
+     * Registers a "just this time" download in the temp tier. The file is deleted once
+     * the TTL has passed and no player is using it any more.
+     */
+    public CacheEntry admitTemp(String videoId, String title, File file, long downloadMillis) {
+        long now = System.currentTimeMillis();
+        CacheEntry entry = new CacheEntry(cacheDir, videoId, title, relativePath(file), Tier.TEMP,
+                file.length(), now, now, 0, downloadMillis, now + tempTtlMillis);
+        put(entry);
+        dirty.set(true);
+        return entry;
+    }
+
+    /**
+     * Moves a temp entry to the cache tier, e.g. when someone who wants to keep a track joined
+     * a "just this time" download of it. A file that is in use is retagged where it is.
+     * @return the entry's file, null if the video isn't in the index
+     */
+    public synchronized File promote(String videoId) {
+        CacheEntry entry = entries.get(videoId);
+        if (entry == null) return null;
+        if (entry.tier == Tier.CACHE) return entry.getFile();
+        if (entry.sizeBytes > maxEntrySize) {
+            admissionRejections.incrementAndGet();
+            return entry.getFile();
+        }
+
+        File file = entry.getFile();
+        if (entry.refs.get() == 0) {
+            String name = file.getName();
+            File target = fileFor(videoId, entry.title, name.substring(name.lastIndexOf('.') + 1), Tier.CACHE);
+            try {
+                commit(file, target);
+                file = target;
+            } catch (IOException e) {
+                BotLogger.warn("Could not move " + entry.path + " into the cache: " + e.getMessage());
+            }
+        }
+
+        CacheEntry promoted = new CacheEntry(cacheDir, videoId, entry.title, relativePath(file), Tier.CACHE,
+                entry.sizeBytes, entry.createdAt, System.currentTimeMillis(), entry.hits, entry.downloadMillis, 0);
+        promoted.copyAudioInfo(entry);
+        promoted.refs.set(entry.refs.get());
+        unaccount(entry);
+        entries.put(videoId, promoted);
+        account(promoted);
+        BotLogger.debug("Promoted " + videoId + " to the cache tier");
+
+        evictToLimit();
+        dirty.set(true);
+        return file;
+    }
+
+    /**
+     * Marks a file as in use by a player or queue, so it can't expire underneath it.
+     * Files that aren't admitted yet (still downloading) are counted until they are.
+     * Synchronized with replaceFile, so a file can't be swapped between its check and the swap.
+     */
+    public synchronized void acquire(String filePath) {
+        if (filePath == null) return;
+
+        CacheEntry entry = entryForPath(filePath);
+        Retired old = retired.get(new File(filePath).getAbsolutePath());
+        if (entry != null) {
+            entry.refs.incrementAndGet();
+        } else if (old != null) {
+            old.refs++;
+        } else {
+            pendingRefs.computeIfAbsent(new File(filePath).getAbsolutePath(), path -> new AtomicInteger())
+                    .incrementAndGet();
+        }
+    }
+
+    /**
+     * Releases a file previously acquired, e.g. when its track ended or was removed from a queue.
+     * Unknown paths are ignored so this can be called for every track.
+     */
+    public synchronized void release(String filePath) {
+        if (filePath == null) return;
+
+        CacheEntry entry = entryForPath(filePath);
+        if (entry != null) {
+            entry.refs.updateAndGet(refs -> Math.max(0, refs - 1));
+            return;
+        }
+
+        String path = new File(filePath).getAbsolutePath();
+        Retired old = retired.get(path);
+        if (old != null) {
+            if (--old.refs <= 0) {
+                deleteRetired(path);
+            }
+            return;
+        }
+
+        AtomicInteger pending = pendingRefs.get(path);
+        if (pending != null && pending.decrementAndGet() <= 0) {
+            pendingRefs.remove(path, pending);
+        }
+    }
+
+    /**
+     * Stores what the analysis at download found out about a track's file: its loudness and
+     * the range to play without the silence at its edges (0 for the file's own start and end)
+     */
+    public void setAudioInfo(String videoId, double loudnessLufs, double peakDbfs, long startMillis, long endMillis) {
+        CacheEntry entry = entries.get(videoId);
+        if (entry == null) return;
+        entry.loudnessLufs = loudnessLufs;
+        entry.peakDbfs = peakDbfs;
+        entry.startMillis = startMillis;
+        entry.endMillis = endMillis;
+        dirty.set(true);
+    }
+
+    /**
+     * Cache tier entries whose file isn't in the given format yet, most played first
+     */
+    public List<CacheEntry> entriesNotInFormat(String format) {
+        return entries.values().stream()
+                .filter(e -> e.tier == Tier.CACHE && !format.equals(e.format))
+                .sorted(Comparator.comparingLong((CacheEntry e) -> e.hits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Swaps an entry's file for a copy converted to another format. The copy is moved into place
+     * atomically under the original's name with the new container's extension, so players and the
+     * index never see a half-written file. The original stays until players that still acquire it
+     * by its old path released it (or for a grace period if nobody does).
+     * @param extension file extension of the new format, e.g. "webm"
+     * @return false if the entry changed or is being played, the copy is left where it is then
+     */
+    public synchronized boolean replaceFile(String videoId, File original, File converted, String format,
+                                            String extension) throws IOException {
+        CacheEntry entry = entries.get(videoId);
+        if (entry == null || !entry.getFile().equals(original) || entry.refs.get() > 0) {
+            return false;
+        }
+
+        long size = converted.length();
+        String name = original.getName();
+        int dot = name.lastIndexOf('.');
+        File target = new File(original.getParentFile(),
+                (dot > 0 ? name.substring(0, dot) : name) + "." + extension);
+        commit(converted, target);
+        if (!target.equals(original)) {
+            retired.put(original.getAbsolutePath(), new Retired());
+        }
+
+        CacheEntry replaced = new CacheEntry(cacheDir, entry.videoId, entry.title, relativePath(target), entry.tier,
+                size, entry.createdAt, entry.lastAccess, entry.hits, entry.downloadMillis, entry.expiresAt);
+        replaced.copyAudioInfo(entry);
+        replaced.format = format;
+        unaccount(entry);
+        entries.put(videoId, replaced);
+        account(replaced);
+
+        evictToLimit();
+        dirty.set(true);
+        return true;
+    }
+
+    /**
+     * Removes an entry from the index and deletes its file.
+     */
+    public void remove(String videoId) {
+        CacheEntry entry = entries.remove(videoId);
+        if (entry != null) {
+            unaccount(entry);
+            try {
+                Files.deleteIfExists(entry.getFile().toPath());
+            } catch (IOException e) {
+                BotLogger.warn("Could not delete cache file " + entry.path + ": " + e.getMessage());
+            }
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Deletes least recently used cache tier entries until the cache fits in its size limit.
+     * Files that are playing, queued or being streamed are never evicted; the cache may stay
+     * over its limit until they're released.
+     */
+    public synchronized void evictToLimit() {
+        if (bytesStored.get() <= maxCacheSize) return;
+
+        List<CacheEntry> byAccess = entries.values().stream()
+                .filter(e -> e.tier == Tier.CACHE && e.refs.get() == 0)
+                .sorted(Comparator.comparingLong(e -> e.lastAccess))
+                .collect(Collectors.toList());
+
+        for (CacheEntry entry : byAccess) {
+            if (bytesStored.get() <= maxCacheSize) break;
+            remove(entry.videoId);
+            evictions.incrementAndGet();
+            BotLogger.info("Cache eviction: " + entry.videoId + " (" + entry.title + ")");
+        }
+    }
+
+    /**
+     * Deletes temp entries whose TTL has passed and that no player is holding on to.
+     */
+    public void sweepTemp() {
+        long now = System.currentTimeMillis();
+        for (CacheEntry entry : new ArrayList<>(entries.values())) {
+            if (entry.isExpired(now) && entry.refs.get() == 0) {
+                remove(entry.videoId);
+                tempExpirations.incrementAndGet();
+                BotLogger.debug("Temp file expired: " + entry.path);
+            }
+        }
+        sweepRetired(now);
+        flush();
+    }
+
+    /**
+     * Deletes replaced files nobody acquired within the grace period
+     */
+    private synchronized void sweepRetired(long now) {
+        for (Map.Entry<String, Retired> old : new ArrayList<>(retired.entrySet())) {
+            if (old.getValue().refs <= 0 && now - old.getValue().retiredAt >= RETIRED_GRACE_MILLIS) {
+                deleteRetired(old.getKey());
+            }
+        }
+    }
+
+    private void deleteRetired(String path) {
+        retired.remove(path);
+        try {
+            Files.deleteIfExists(new File(path).toPath());
+        } catch (IOException e) {
+            BotLogger.warn("Could not delete replaced cache file " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Startup sweep: expires temp entries and deletes files left in the temp and staging directories
+     * by a crash, including the old working-directory temp folder used before temp files were indexed.
+     * @param resumable partial downloads that will be resumed and must be kept
+     */
+    public void sweepOnStartup(Set<File> resumable) {
+        sweepTemp();
+
+        int orphans = 0;
+        File[] tempFiles = tempDir.listFiles();
+        if (tempFiles != null) {
+            for (File file : tempFiles) {
+                if (!pathIndex.containsKey(file.getAbsolutePath()) && file.delete()) {
+                    orphans++;
+                }
+            }
+        }
+
+        // Interrupted downloads that aren't going to be resumed
+        File[] stagingFiles = stagingDir.listFiles();
+        if (stagingFiles != null) {
+            for (File file : stagingFiles) {
+                if (!resumable.contains(file.getAbsoluteFile()) && file.delete()) {
+                    orphans++;
+                }
+            }
+        }
+
+        File legacyTempDir = new File("temp");
+        File[] legacyFiles = legacyTempDir.listFiles();
+        if (legacyFiles != null) {
+            for (File file : legacyFiles) {
+                if (file.delete()) {
+                    orphans++;
+                }
+            }
+            legacyTempDir.delete();
+        }
+
+        if (orphans > 0) {
+            BotLogger.info("Startup sweep removed " + orphans + " leftover temp files");
+        }
+    }
+
+    /**
+     * Returns the most played cached tracks, most hits first.
+     */
+    public List<CacheEntry> topTracks(int limit) {
+        return entries.values().stream()
+                .filter(e -> e.hits > 0)
+                .sorted(Comparator.comparingLong((CacheEntry e) -> e.hits).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Takes a snapshot of the cache counters.
+     */
+    public Stats getStats() {
+        int cacheEntries = 0;
+        int tempEntries = 0;
+        for (CacheEntry entry : entries.values()) {
+            if (entry.tier == Tier.CACHE) {
+                cacheEntries++;
+            } else {
+                tempEntries++;
+            }
+        }
+
+        return new Stats(hits.get(), misses.get(), bytesStored.get(), cacheEntries,
+                evictions.get(), admissionRejections.get(), downloadMillisAvoided.get(), maxCacheSize,
+                tempBytes.get(), tempEntries, tempExpirations.get());
+    }
+
+    /**
+     * Exposes the cache counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_cache_hits_total", hits::get);
+        MetricsServer.register("musicbot_cache_misses_total", misses::get);
+        MetricsServer.register("musicbot_cache_hit_ratio", () -> getStats().getHitRatio());
+        MetricsServer.register("musicbot_cache_bytes", bytesStored::get);
+        MetricsServer.register("musicbot_cache_entries", () -> getStats().getEntries());
+        MetricsServer.register("musicbot_cache_evictions_total", evictions::get);
+        MetricsServer.register("musicbot_cache_admission_rejections_total", admissionRejections::get);
+        MetricsServer.register("musicbot_cache_avg_download_ms_avoided", () -> getStats().getAverageDownloadMillisAvoided());
+        MetricsServer.register("musicbot_cache_temp_bytes", tempBytes::get);
+        MetricsServer.register("musicbot_cache_temp_entries", () -> getStats().getTempEntries());
+        MetricsServer.register("musicbot_cache_temp_expirations_total", tempExpirations::get);
+        MetricsServer.registerLabeled("musicbot_cache_track_hits", "video_id", () -> {
+            Map<String, Number> top = new LinkedHashMap<>();
+            for (CacheEntry entry : topTracks(10)) {
+                top.put(entry.videoId, entry.hits);
+            }
+            return top;
+        });
+    }
+
+    /**
+     * Writes the index if it changed since the last save. Called periodically and on shutdown.
+     */
+    public void flush() {
+        if (dirty.get()) {
+            save();
+        }
+    }
+
+    public File getTempDir() {
+        return tempDir;
+    }
+
+    private void put(CacheEntry entry) {
+        CacheEntry previous = entries.put(entry.videoId, entry);
+        if (previous != null) {
+            unaccount(previous);
+            // Delete the old file unless the new entry reuses it or it's still playing
+            if (!previous.getFile().equals(entry.getFile()) && previous.refs.get() == 0) {
+                previous.getFile().delete();
+            }
+        }
+        account(entry);
+    }
+
+    private void account(CacheEntry entry) {
+        String path = entry.getFile().getAbsolutePath();
+        AtomicInteger pending = pendingRefs.remove(path);
+        if (pending != null) {
+            entry.refs.addAndGet(Math.max(0, pending.get()));
+        }
+        pathIndex.put(path, entry.videoId);
+        (entry.tier == Tier.CACHE ? bytesStored : tempBytes).addAndGet(entry.sizeBytes);
+    }
+
+    private void unaccount(CacheEntry entry) {
+        pathIndex.remove(entry.getFile().getAbsolutePath(), entry.videoId);
+        (entry.tier == Tier.CACHE ? bytesStored : tempBytes).addAndGet(-entry.sizeBytes);
+    }
+
+    /**
+     * The entry a file belongs to (e.g. a player's track identifier), null if it's not in the cache
+     */
+    public CacheEntry entryForPath(String filePath) {
+        if (filePath == null) return null;
+        String videoId = pathIndex.get(new File(filePath).getAbsolutePath());
+        return videoId == null ? null : entries.get(videoId);
+    }
+
+    /**
+     * Writes the index. Only the snapshot is taken under the cache's lock, so players acquiring
+     * files don't wait for the disk.
+     */
+    private void save() {
+        synchronized (indexLock) {
+            byte[] json;
+            synchronized (this) {
+                DataArray array = DataArray.empty();
+                for (CacheEntry entry : entries.values()) {
+                    array.add(entry.toData());
+                }
+                json = array.toJson();
+                dirty.set(false);
+            }
+
+            // Write to a temporary file first so a crash never leaves a truncated index
+            File tempFile = new File(cacheDir, INDEX_FILE + ".tmp");
+            try {
+                Files.write(tempFile.toPath(), json);
+                Files.move(tempFile.toPath(), indexFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                dirty.set(true);
+                BotLogger.error("Could not save cache index: " + e.getMessage());
+            }
+        }
+    }
+
+    private void load() {
+        if (indexFile.exists()) {
+            try (InputStream in = new FileInputStream(indexFile)) {
+                DataArray array = DataArray.fromJson(in);
+                for (int i = 0; i < array.length(); i++) {
+                    CacheEntry entry = CacheEntry.fromData(array.getObject(i), cacheDir);
+                    if (entry.getFile().exists()) {
+                        entries.put(entry.videoId, entry);
+                        account(entry);
+                    }
+                }
+                BotLogger.info("Loaded cache index with " + entries.size() + " entries");
+                reconcileShards();
+                return;
+            } catch (Exception e) {
+                BotLogger.error("Could not read cache index, rebuilding: " + e.getMessage());
+                entries.clear();
+                pathIndex.clear();
+                bytesStored.set(0);
+                tempBytes.set(0);
+            }
+        }
+
+        bootstrapFromDirectory();
+    }
+
+    /**
+     * Builds an index for a cache created before the index existed, or whose index was lost.
+     * Looks at the flat cache directory and the shard directories.
+     */
+    private void bootstrapFromDirectory() {
+        bootstrapFiles(cacheDir.listFiles((dir, name) -> isAudioFile(name)));
+        for (File shard : shardDirectories()) {
+            bootstrapFiles(shard.listFiles(File::isFile));
+        }
+
+        BotLogger.info("Built cache index from directory with " + entries.size() + " entries");
+        save();
+    }
+
+    /**
+     * Index changes are only written every few seconds, so a crash can leave files in the shard
+     * directories that the saved index doesn't know: a download committed just before it, or a
+     * converted file whose original the index still points to. Files of videos that aren't in
+     * the index are adopted, leftovers of videos indexed under another file are deleted.
+     */
+    private void reconcileShards() {
+        int adopted = 0;
+        int deleted = 0;
+        for (File shard : shardDirectories()) {
+            File[] files = shard.listFiles(File::isFile);
+            if (files == null) continue;
+
+            for (File file : files) {
+                if (pathIndex.containsKey(file.getAbsolutePath()) || videoIdOf(file.getName()) == null) continue;
+
+                if (entries.containsKey(videoIdOf(file.getName()))) {
+                    if (file.delete()) deleted++;
+                } else {
+                    bootstrapFiles(new File[]{file});
+                    adopted++;
+                }
+            }
+        }
+
+        if (adopted > 0 || deleted > 0) {
+            BotLogger.info("Reconciled cache directory with its index: " + adopted + " files adopted, "
+                    + deleted + " leftovers deleted");
+            evictToLimit();
+            save();
+        }
+    }
+
+    private File[] shardDirectories() {
+        File[] shards = cacheDir.listFiles(file -> file.isDirectory() && file.getName().matches("[0-9a-f]{2}"));
+        return shards != null ? shards : new File[0];
+    }
+
+    /**
+     * Files are named videoId_Title.ext, YouTube video IDs are always 11 characters.
+     * @return the video ID, null if the name doesn't follow that pattern
+     */
+    private static String videoIdOf(String name) {
+        return name.length() > 12 && name.charAt(11) == '_' ? name.substring(0, 11) : null;
+    }
+
+    private void bootstrapFiles(File[] files) {
+        if (files == null) return;
+
+        for (File file : files) {
+            String name = file.getName();
+            String videoId = videoIdOf(name);
+            if (videoId == null) continue;
+
+            int dot = name.lastIndexOf('.');
+            String title = name.substring(12, dot > 12 ? dot : name.length()).replace("_", " ");
+            CacheEntry entry = new CacheEntry(cacheDir, videoId, title, relativePath(file), Tier.CACHE,
+                    file.length(), file.lastModified(), file.lastModified(), 0, 0, 0);
+            entries.put(videoId, entry);
+            account(entry);
+        }
+    }
+
+    /**
+     * One-time migration of cache tier files from the old flat directory into shard directories.
+     * Entries are moved one by one, so an interrupted migration just continues on the next start.
+     */
+    private void migrateFlatLayout() {
+        int migrated = 0;
+
+        for (CacheEntry entry : new ArrayList<>(entries.values())) {
+            if (entry.tier != Tier.CACHE || !cacheDir.equals(entry.getFile().getParentFile())) continue;
+
+            File target = new File(new File(cacheDir, shardFor(entry.videoId)), entry.getFile().getName());
+            try {
+                commit(entry.getFile(), target);
+            } catch (IOException e) {
+                BotLogger.warn("Could not migrate cache file " + entry.path + ": " + e.getMessage());
+                continue;
+            }
+
+            CacheEntry moved = new CacheEntry(cacheDir, entry.videoId, entry.title, relativePath(target),
+                    entry.tier, entry.sizeBytes, entry.createdAt, entry.lastAccess, entry.hits,
+                    entry.downloadMillis, entry.expiresAt);
+            moved.copyAudioInfo(entry);
+            unaccount(entry);
+            entries.put(moved.videoId, moved);
+            account(moved);
+            migrated++;
+        }
+
+        if (migrated > 0) {
+            BotLogger.info("Migrated " + migrated + " cache files to the sharded layout");
+            save();
+        }
+    }
+
+    // Downloads keep the container yt-dlp fetched, the cache migrator converts to .webm or .mp3
+    private static boolean isAudioFile(String name) {
+        return name.endsWith(".mp3") || name.endsWith(".webm") || name.endsWith(".m4a") || name.endsWith(".opus")
+                || name.endsWith(".ogg");
+    }
+
+    /**
+     * Two hex characters derived from the video ID, giving 256 evenly filled shard directories.
+     */
+    private static String shardFor(String videoId) {
+        return String.format("%02x", videoId.hashCode() & 0xff);
+    }
+
+    private String relativePath(File file) {
+        return cacheDir.toPath().toAbsolutePath().relativize(file.toPath().toAbsolutePath()).toString();
+    }
+
+    /**
+     * A file replaced by a converted copy, guarded by the cache's lock
+     */
+    private static class Retired {
+        private final long retiredAt = System.currentTimeMillis();
+        private int refs;
+    }
+
+    /**
+     * Retention tier of a cache entry
+     */
+    public enum Tier {
+        CACHE,
+        TEMP
+    }
+
+    /**
+     * A single cached track.
+     */
+    public static class CacheEntry {
+        private final String videoId;
+        private final String title;
+        private final String path;
+        private final Tier tier;
+        private final long sizeBytes;
+        private final long createdAt;
+        private volatile long lastAccess;
+        private volatile long hits;
+        private final long downloadMillis;
+        private volatile long expiresAt;
+        // Format the file was converted to, empty if it's still the downloaded original
+        private volatile String format = "";
+        // Measured at ingest, NaN until then
+        private volatile double loudnessLufs = Double.NaN;
+        private volatile double peakDbfs = Double.NaN;
+        // Playback range without the silence at the edges, 0 for the file's own start and end
+        private volatile long startMillis;
+        private volatile long endMillis;
+        private final File file;
+
+        // Players/queues currently using the file, not persisted
+        private final AtomicInteger refs = new AtomicInteger();
+
+        CacheEntry(File cacheDir, String videoId, String title, String path, Tier tier, long sizeBytes,
+                   long createdAt, long lastAccess, long hits, long downloadMillis, long expiresAt) {
+            this.file = new File(cacheDir, path);
+            this.videoId = videoId;
+            this.title = title;
+            this.path = path;
+            this.tier = tier;
+            this.sizeBytes = sizeBytes;
+            this.createdAt = createdAt;
+            this.lastAccess = lastAccess;
+            this.hits = hits;
+            this.downloadMillis = downloadMillis;
+            this.expiresAt = expiresAt;
+        }
+
+        synchronized void recordHit() {
+            hits++;
+            lastAccess = System.currentTimeMillis();
+        }
+
+        boolean isExpired(long now) {
+            return tier == Tier.TEMP && expiresAt <= now;
+        }
+
+        public String getVideoId() {
+            return videoId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public Tier getTier() {
+            return tier;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public long getLastAccess() {
+            return lastAccess;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getDownloadMillis() {
+            return downloadMillis;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+
+        public boolean hasLoudness() {
+            return !Double.isNaN(loudnessLufs);
+        }
+
+        /**
+         * EBU R128 integrated loudness, NaN if it wasn't measured
+         */
+        public double getLoudnessLufs() {
+            return loudnessLufs;
+        }
+
+        /**
+         * True peak in dBFS, NaN if it wasn't measured
+         */
+        public double getPeakDbfs() {
+            return peakDbfs;
+        }
+
+        /**
+         * Where playback starts, past leading silence; 0 to start at the beginning
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * Where playback stops, before trailing silence; 0 to play to the end
+         */
+        public long getEndMillis() {
+            return endMillis;
+        }
+
+        /**
+         * Takes over what is known about the audio from the entry this one replaces
+         */
+        void copyAudioInfo(CacheEntry other) {
+            format = other.format;
+            loudnessLufs = other.loudnessLufs;
+            peakDbfs = other.peakDbfs;
+            startMillis = other.startMillis;
+            endMillis = other.endMillis;
+        }
+
+        /**
+         * Whether a player or queue is using the file
+         */
+        public boolean isInUse() {
+            return refs.get() > 0;
+        }
+
+        DataObject toData() {
+            DataObject data = DataObject.empty()
+                    .put("video_id", videoId)
+                    .put("title", title)
+                    .put("path", path)
+                    .put("tier", tier.name())
+                    .put("size", sizeBytes)
+                    .put("created_at", createdAt)
+                    .put("last_access", lastAccess)
+                    .put("hits", hits)
+                    .put("download_ms", downloadMillis)
+                    .put("expires_at", expiresAt)
+                    .put("format", format);
+            if (hasLoudness()) {
+                data.put("loudness_lufs", loudnessLufs).put("peak_dbfs", peakDbfs);
+            }
+            if (startMillis > 0 || endMillis > 0) {
+                data.put("start_ms", startMillis).put("end_ms", endMillis);
+            }
+            return data;
+        }
+
+        static CacheEntry fromData(DataObject data, File cacheDir) {
+            CacheEntry entry = new CacheEntry(
+                    cacheDir,
+                    data.getString("video_id"),
+                    data.getString("title", ""),
+                    data.getString("path"),
+                    Tier.valueOf(data.getString("tier", Tier.CACHE.name())),
+                    data.getLong("size", 0),
+                    data.getLong("created_at", 0),
+                    data.getLong("last_access", 0),
+                    data.getLong("hits", 0),
+                    data.getLong("download_ms", 0),
+                    data.getLong("expires_at", 0));
+            entry.format = data.getString("format", "");
+            entry.loudnessLufs = data.getDouble("loudness_lufs", Double.NaN);
+            entry.peakDbfs = data.getDouble("peak_dbfs", Double.NaN);
+            entry.startMillis = data.getLong("start_ms", 0);
+            entry.endMillis = data.getLong("end_ms", 0);
+            return entry;
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of the cache counters.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long bytesStored;
+        private final int entries;
+        private final long evictions;
+        private final long admissionRejections;
+        private final long downloadMillisAvoided;
+        private final long maxBytes;
+        private final long tempBytes;
+        private final int tempEntries;
+        private final long tempExpirations;
+
+        Stats(long hits, long misses, long bytesStored, int entries, long evictions,
+              long admissionRejections, long downloadMillisAvoided, long maxBytes,
+              long tempBytes, int tempEntries, long tempExpirations) {
+            this.hits = hits;
+            this.misses = misses;
+            this.bytesStored = bytesStored;
+            this.entries = entries;
+            this.evictions = evictions;
+            this.admissionRejections = admissionRejections;
+            this.downloadMillisAvoided = downloadMillisAvoided;
+            this.maxBytes = maxBytes;
+            this.tempBytes = tempBytes;
+            this.tempEntries = tempEntries;
+            this.tempExpirations = tempExpirations;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        public long getBytesStored() {
+            return bytesStored;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getAdmissionRejections() {
+            return admissionRejections;
+        }
+
+        public long getAverageDownloadMillisAvoided() {
+            return hits == 0 ? 0 : downloadMillisAvoided / hits;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public long getTempBytes() {
+            return tempBytes;
+        }
+
+        public int getTempEntries() {
+            return tempEntries;
+        }
+
+        public long getTempExpirations() {
+            return tempExpirations;
+        }
+    }
+}
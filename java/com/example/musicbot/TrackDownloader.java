@@ -0,0 +1,336 @@
+package com.example.musicbot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Downloads YouTube videos into the track cache with a single yt-dlp run, on a pooled
+ * worker when one is available.
+ * The download is written to a staging file, which can be played while it grows, and is
+ * moved into place and admitted to the cache once yt-dlp finished successfully.
+ *
+ * Downloads in flight are recorded in the journal. When yt-dlp fails or the bot restarts the
+ * staging file is kept, and the next attempt continues it with a range request.
+ *
+ * Finished downloads are analysed (EBU R128 loudness, silence at the edges) in the background,
+ * so playback can level and trim them without touching the file.
+ */
+public class TrackDownloader {
+    // Name yt-dlp gives a file it's still writing, and continues from when it exists
+    private static final String YTDLP_PART_SUFFIX = ".part";
+    // Failed attempts after which a partial download is thrown away
+    private static final int MAX_ATTEMPTS = 3;
+    // Longest a finished download waits for the user to decide whether to keep it
+    private static final long TIER_DECISION_TIMEOUT_MINUTES = 10;
+
+    private final TrackCache trackCache;
+    private final GrowingFileSourceManager growingFileSource;
+    private final CircuitBreaker ytDlpBreaker;
+    private final YtDlpWorkerPool workerPool;
+    private final DownloadJournal journal;
+    private final ReEncoder reEncoder;
+
+    public TrackDownloader(TrackCache trackCache, GrowingFileSourceManager growingFileSource, CircuitBreaker ytDlpBreaker,
+                           YtDlpWorkerPool workerPool, DownloadJournal journal, ReEncoder reEncoder) {
+        this.trackCache = trackCache;
+        this.growingFileSource = growingFileSource;
+        this.ytDlpBreaker = ytDlpBreaker;
+        this.workerPool = workerPool;
+        this.journal = journal;
+        this.reEncoder = reEncoder;
+    }
+
+    /**
+     * Downloads a video and admits it to the cache (or the temp tier if requested or too large).
+     * @param streamStartBytes once this much has arrived the download is made playable under its
+     *                         final path and the listener is told so; 0 to only play complete files
+     * @return completed with the file in the cache
+     * @throws IOException if yt-dlp failed
+     */
+    public CompletableFuture<File> download(String url, String videoId, TrackCache.Tier tier, long streamStartBytes,
+                                            Listener listener) throws IOException, InterruptedException {
+        return download(url, videoId, CompletableFuture.completedFuture(tier), streamStartBytes, listener);
+    }
+
+    /**
+     * Downloads a video whose tier isn't known yet, e.g. while the user is still asking whether
+     * to keep it. Streaming only starts once the tier is decided. yt-dlp runs on the calling
+     * thread; a finished download is moved into place once the tier is decided, without
+     * holding the caller until then.
+     * @return completes with the file in the cache, or exceptionally if it couldn't be moved there
+     */
+    public CompletableFuture<File> download(String url, String videoId, CompletableFuture<TrackCache.Tier> tierDecision,
+                                            long streamStartBytes, Listener listener)
+            throws IOException, InterruptedException {
+        if (!ytDlpBreaker.allowRequest()) {
+            throw new IOException("yt-dlp is failing, not downloading " + videoId);
+        }
+
+        long downloadStart = System.currentTimeMillis();
+        File stagingFile = trackCache.stagingFileFor(videoId);
+        File resumeFile = new File(stagingFile.getPath() + YTDLP_PART_SUFFIX);
+        long resumeBytes;
+        try {
+            resumeBytes = prepareResume(videoId, stagingFile, resumeFile);
+        } catch (IOException e) {
+            // Nothing ran, the allowed request (maybe the half-open trial) is handed back
+            ytDlpBreaker.recordCancelled();
+            throw e;
+        }
+        journal.start(videoId, url, stagingFile);
+        tierDecision.thenAccept(tier -> journal.setTier(videoId, tier));
+
+        // A resumed download is written to resumeFile, so it's only played once complete
+        Run run = new Run(videoId, tierDecision, stagingFile, streamStartBytes, listener);
+
+        try {
+            int exitCode = runYtDlp(url, stagingFile, resumeBytes > 0, run::onLine);
+            if (exitCode != 0 || stagingFile.length() == 0) {
+                throw new IOException("yt-dlp exited with code " + exitCode);
+            }
+            ytDlpBreaker.recordSuccess();
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            // Being interrupted (the download was cancelled) is not yt-dlp's fault
+            if (e instanceof InterruptedException) {
+                ytDlpBreaker.recordCancelled();
+            } else {
+                ytDlpBreaker.recordFailure();
+            }
+
+            keepOrDiscardPartial(videoId, stagingFile, resumeFile, e instanceof InterruptedException);
+
+            if (run.growingFile != null) {
+                run.growingFile.fail(e.getMessage());
+                growingFileSource.unregister(run.growingFile);
+            }
+            throw e;
+        }
+
+        // If we couldn't get the title, use the video ID
+        String title = run.title.isEmpty() ? "video_" + videoId : run.title;
+        long downloadMillis = System.currentTimeMillis() - downloadStart;
+
+        // Whoever should have decided may be gone; don't keep a finished download waiting forever
+        tierDecision.completeOnTimeout(TrackCache.Tier.TEMP, TIER_DECISION_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        return tierDecision.handle((tier, error) -> tier != null ? tier : TrackCache.Tier.TEMP).thenApply(tier -> {
+            try {
+                return place(videoId, title, tier, stagingFile, resumeBytes, downloadMillis, run);
+            } catch (IOException e) {
+                keepOrDiscardPartial(videoId, stagingFile, resumeFile, false);
+                if (run.growingFile != null) {
+                    run.growingFile.fail(e.getMessage());
+                    growingFileSource.unregister(run.growingFile);
+                }
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Moves a finished download to its final location in the given tier and admits it to the cache.
+     */
+    private File place(String videoId, String title, TrackCache.Tier tier, File stagingFile, long resumeBytes,
+                       long downloadMillis, Run run) throws IOException {
+        File outputFile = trackCache.fileFor(videoId, title, run.extension(), tier);
+        trackCache.commit(stagingFile, outputFile);
+        journal.remove(videoId);
+        if (resumeBytes > 0) {
+            journal.recordResume(resumeBytes);
+        }
+
+        // Let a track already playing from the download know where the file ended up
+        if (run.growingFile != null) {
+            run.growingFile.complete(outputFile);
+            growingFileSource.unregister(run.growingFile);
+        }
+
+        // Add to the cache index; oversized files are rejected and kept as temp files
+        boolean cached = tier == TrackCache.Tier.CACHE && trackCache.admit(videoId, title, outputFile, downloadMillis);
+        if (!cached) {
+            trackCache.admitTemp(videoId, title, outputFile, downloadMillis);
+        }
+        analyze(videoId, outputFile);
+
+        return outputFile;
+    }
+
+    /**
+     * Measures the loudness and edge silence of a finished download and stores them in the
+     * cache index. Until they're there the track plays as it is.
+     */
+    private void analyze(String videoId, File file) {
+        reEncoder.analyze(file).whenComplete((analysis, error) -> {
+            if (error != null) {
+                BotLogger.debug("Could not analyse " + videoId + ": " + error.getMessage());
+                return;
+            }
+            trackCache.setAudioInfo(videoId, analysis.getLoudnessLufs(), analysis.getPeakDbfs(),
+                    analysis.getStartMillis(), analysis.getEndMillis());
+        });
+    }
+
+    /**
+     * Gets a partial download left by an earlier attempt ready to be continued: yt-dlp
+     * only resumes files under its own .part name.
+     * @return the number of bytes already downloaded, 0 to start from scratch
+     */
+    private long prepareResume(String videoId, File stagingFile, File resumeFile) throws IOException {
+        // A restart during a resumed download leaves the data under yt-dlp's name already
+        long length = stagingFile.exists() ? stagingFile.length() : resumeFile.length();
+        if (journal.get(videoId) == null || length == 0) {
+            Files.deleteIfExists(stagingFile.toPath());
+            Files.deleteIfExists(resumeFile.toPath());
+            return 0;
+        }
+
+        if (stagingFile.exists()) {
+            Files.move(stagingFile.toPath(), resumeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        BotLogger.info("Resuming download of " + videoId + " at " + length + " bytes");
+        return length;
+    }
+
+    /**
+     * After a failed attempt, keeps what was downloaded so far for the next attempt. Cancelled
+     * downloads, empty files and downloads that failed too often are deleted.
+     */
+    private void keepOrDiscardPartial(String videoId, File stagingFile, File resumeFile, boolean cancelled) {
+        try {
+            // A failed resume leaves the data under yt-dlp's name
+            if (resumeFile.exists()) {
+                Files.move(resumeFile.toPath(), stagingFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            long length = stagingFile.length();
+            if (!cancelled && length > 0 && journal.recordFailure(videoId) < MAX_ATTEMPTS) {
+                BotLogger.info("Keeping " + length + " bytes of " + videoId + " to resume the download later");
+                return;
+            }
+
+            journal.remove(videoId);
+            Files.deleteIfExists(stagingFile.toPath());
+        } catch (IOException e) {
+            BotLogger.warn("Could not clean up partial download " + stagingFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the download on a pooled yt-dlp worker, or as its own yt-dlp process if no worker is available.
+     * @param resume continue the partial file yt-dlp left next to the output
+     * @return yt-dlp's exit code
+     */
+    private int runYtDlp(String url, File output, boolean resume, Consumer<String> lineHandler)
+            throws IOException, InterruptedException {
+        if (workerPool != null && workerPool.isAvailable()) {
+            try {
+                return workerPool.download(url, output, resume, lineHandler);
+            } catch (YtDlpWorkerPool.UnavailableException e) {
+                BotLogger.debug("Running yt-dlp directly: " + e.getMessage());
+                workerPool.recordFallback();
+            }
+        }
+
+        // One yt-dlp run prints the metadata (title, duration, codec) and then downloads
+        // the best audio in its original format; errors and warnings arrive on stderr
+        ProcessRunner.Execution execution = new ProcessRunner("yt-dlp", YtDlp.downloadCommand(url, output, resume))
+                .onStdout(lineHandler)
+                .onStderr(line -> BotLogger.debug("yt-dlp: " + line))
+                .start();
+
+        // Wait for download to complete
+        ProcessRunner.Result result = execution.await();
+        if (!result.isSuccess() && !result.getStderrTail().isEmpty()) {
+            BotLogger.warn("yt-dlp failed for " + url + ": " + result.getStderrTail());
+        }
+        return result.getExitCode();
+    }
+
+    /**
+     * State of one download, fed with yt-dlp's output lines
+     */
+    private class Run {
+        private final String videoId;
+        private final CompletableFuture<TrackCache.Tier> tierDecision;
+        private final File stagingFile;
+        private final long streamStartBytes;
+        private final Listener listener;
+
+        private YtDlp.Metadata metadata;
+        private String title = "";
+        private GrowingFile growingFile;
+
+        Run(String videoId, CompletableFuture<TrackCache.Tier> tierDecision, File stagingFile, long streamStartBytes,
+            Listener listener) {
+            this.videoId = videoId;
+            this.tierDecision = tierDecision;
+            this.stagingFile = stagingFile;
+            this.streamStartBytes = streamStartBytes;
+            this.listener = listener;
+        }
+
+        void onLine(String line) {
+            // Metadata arrives before the first progress line
+            YtDlp.Metadata parsed = YtDlp.parseMetadata(line);
+            if (parsed != null) {
+                metadata = parsed;
+                title = YtDlp.safeFileName(metadata.getTitle());
+                if (title.isEmpty()) {
+                    title = "video_" + videoId;
+                }
+                BotLogger.debug("yt-dlp metadata for " + videoId + ": " + metadata.getContainer()
+                        + "/" + metadata.getCodec() + ", " + metadata.getDurationMillis() + "ms");
+                listener.onMetadata(metadata, title);
+                return;
+            }
+
+            YtDlp.Progress progress = YtDlp.parseProgress(line);
+            if (progress == null) return;
+
+            // Make the download playable from the growing file once enough of it has arrived
+            if (growingFile != null) {
+                growingFile.onProgress();
+            } else if (streamStartBytes > 0 && metadata != null && tierDecision.isDone()
+                    && stagingFile.length() >= streamStartBytes) {
+                // Played under its final path, so the cache can take over the track's file reference
+                File streamTarget = trackCache.fileFor(videoId, title, extension(),
+                        tierDecision.getNow(TrackCache.Tier.TEMP));
+                growingFile = new GrowingFile(stagingFile, metadata.getContainer(), metadata.getFileSize());
+                growingFileSource.register(streamTarget.getAbsolutePath(), growingFile);
+                listener.onStreamReady(streamTarget);
+            }
+
+            listener.onProgress(progress);
+        }
+
+        /**
+         * Extension of the downloaded file: the container yt-dlp reported, else the one the format asks for first
+         */
+        String extension() {
+            String container = metadata != null ? metadata.getContainer() : "";
+            return container.matches("[a-z0-9]{1,5}") ? container : "webm";
+        }
+    }
+
+    /**
+     * Receives updates while a download runs, on the downloading thread
+     */
+    public interface Listener {
+        default void onMetadata(YtDlp.Metadata metadata, String title) {
+        }
+
+        default void onProgress(YtDlp.Progress progress) {
+        }
+
+        /**
+         * The download can now be played from the given (final) path while it continues
+         */
+        default void onStreamReady(File file) {
+        }
+    }
+}
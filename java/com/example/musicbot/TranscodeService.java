@@ -0,0 +1,365 @@
+package com.example.musicbot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The one place ffmpeg runs. Jobs are queued by priority and run within a global CPU thread
+ * budget: every job gets the same number of ffmpeg threads, so at most budget / threads per
+ * job run at once. ffmpeg is started with a lower scheduling priority (nice) so lavaplayer's
+ * playback threads win when the CPU is busy.
+ *
+ * How many jobs may run at once also follows the audio health: when playing tracks miss
+ * frames the limit is lowered, one job at a time, and raised again once playback is clean.
+ */
+public class TranscodeService {
+    /**
+     * Priority classes, most urgent first
+     */
+    public enum Priority {
+        INGEST,
+        BACKGROUND
+    }
+
+    private static final int MAX_THREADS_PER_JOB = 2;
+    private static final long TIMEOUT_MINUTES = 10;
+    private static final long HEALTH_CHECK_SECONDS = 10;
+    // Share of missed frames at which transcoding backs off, and below which it speeds up again
+    private static final double UNHEALTHY_MISSED_RATIO = 0.02;
+    private static final double HEALTHY_MISSED_RATIO = 0.005;
+    // With fewer frames in a check interval too little is playing to judge
+    private static final long MIN_FRAMES = 100;
+
+    private final int threadsPerJob;
+    private final int maxConcurrent;
+    private final List<String> nicePrefix;
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Guarded by this: how many jobs may run, how many workers hold a slot
+    private int limit;
+    private int slots;
+
+    // Frame counters at the last health check
+    private long lastFramesSent = AudioHealth.getFramesSent();
+    private long lastFramesMissed = AudioHealth.getFramesMissed();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong();
+    private final AtomicLong outputBytes = new AtomicLong();
+    private final AtomicLong mediaMillis = new AtomicLong();
+    private final AtomicLong backoffs = new AtomicLong();
+    private final AtomicLong running = new AtomicLong();
+    private final LatencyStats wallTime = new LatencyStats();
+    private volatile double lastSpeedFactor;
+
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Transcode-Health");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param threadBudget CPU threads all ffmpeg processes together may use
+     * @param niceness added to ffmpeg's nice value, 0 to run it at normal priority
+     */
+    public TranscodeService(int threadBudget, int niceness) {
+        int budget = Math.max(1, threadBudget);
+        this.threadsPerJob = Math.min(MAX_THREADS_PER_JOB, budget);
+        this.maxConcurrent = Math.max(1, budget / threadsPerJob);
+        this.limit = maxConcurrent;
+        this.nicePrefix = niceness > 0 && !System.getProperty("os.name", "").toLowerCase().startsWith("windows")
+                ? Arrays.asList("nice", "-n", String.valueOf(niceness))
+                : Collections.emptyList();
+
+        for (int i = 0; i < maxConcurrent; i++) {
+            Thread worker = new Thread(this::work, "Transcode-Worker-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+        }
+        healthChecker.scheduleAtFixedRate(this::checkAudioHealth, HEALTH_CHECK_SECONDS, HEALTH_CHECK_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues an ffmpeg run. Cancelling the returned future removes a queued job or kills a running one.
+     * @param output file to write, null for analysis runs that only print to stderr
+     * @param options ffmpeg options between the input and the output
+     * @param stderrHandler receives ffmpeg's log lines, e.g. filter output
+     */
+    public CompletableFuture<Result> submit(Priority priority, File input, File output, List<String> options,
+                                            Consumer<String> stderrHandler) {
+        Job job = new Job(priority, sequence.incrementAndGet(), input, output, options, stderrHandler);
+        queue.add(job);
+        job.result.whenComplete((result, error) -> {
+            if (job.result.isCancelled()) {
+                queue.remove(job);
+            }
+        });
+        return job.result;
+    }
+
+    /**
+     * Exposes queue, throughput and per-job counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_transcode_queue_depth", queue::size);
+        MetricsServer.register("musicbot_transcode_running", running::get);
+        MetricsServer.register("musicbot_transcode_limit", this::getLimit);
+        MetricsServer.register("musicbot_transcode_completed_total", completed::get);
+        MetricsServer.register("musicbot_transcode_failed_total", failed::get);
+        MetricsServer.register("musicbot_transcode_input_bytes_total", inputBytes::get);
+        MetricsServer.register("musicbot_transcode_output_bytes_total", outputBytes::get);
+        MetricsServer.register("musicbot_transcode_media_ms_total", mediaMillis::get);
+        MetricsServer.register("musicbot_transcode_speed_factor_last", () -> lastSpeedFactor);
+        MetricsServer.register("musicbot_transcode_backoffs_total", backoffs::get);
+        wallTime.register("musicbot_transcode_wall_ms");
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    private void work() {
+        while (true) {
+            // Take a slot before a job, so the most urgent job is picked once one is free
+            try {
+                acquireSlot();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                Job job = queue.take();
+                if (job.result.isDone()) continue;
+
+                running.incrementAndGet();
+                try {
+                    run(job);
+                } finally {
+                    running.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                releaseSlot();
+            }
+        }
+    }
+
+    private void run(Job job) {
+        List<String> command = new ArrayList<>(nicePrefix);
+        command.addAll(Arrays.asList("ffmpeg", "-hide_banner", "-nostdin", "-y", "-nostats", "-progress", "pipe:1",
+                "-threads", String.valueOf(threadsPerJob), "-i", job.input.getAbsolutePath()));
+        command.addAll(job.options);
+        command.addAll(Arrays.asList("-threads", String.valueOf(threadsPerJob)));
+        if (job.output != null) {
+            command.add(job.output.getAbsolutePath());
+        } else {
+            command.addAll(Arrays.asList("-f", "null", "-"));
+        }
+
+        // ffmpeg reports how far it got as out_time_us=<microseconds> on stdout
+        AtomicLong processedMicros = new AtomicLong();
+        try {
+            ProcessRunner.Execution execution = new ProcessRunner("ffmpeg", command)
+                    .onStdout(line -> {
+                        if (line.startsWith("out_time_us=") || line.startsWith("out_time_ms=")) {
+                            try {
+                                processedMicros.set(Long.parseLong(line.substring(line.indexOf('=') + 1).trim()));
+                            } catch (NumberFormatException e) {
+                                // N/A before the first frame
+                            }
+                        }
+                    })
+                    .onStderr(job.stderrHandler)
+                    .timeout(TIMEOUT_MINUTES, TimeUnit.MINUTES)
+                    .start();
+            job.result.whenComplete((result, error) -> {
+                if (job.result.isCancelled()) execution.cancel();
+            });
+
+            ProcessRunner.Result processResult = execution.await();
+            Result result = new Result(processResult, job.input.length(),
+                    job.output != null ? job.output.length() : 0, processedMicros.get() / 1000);
+            record(job, result);
+            job.result.complete(result);
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            job.result.completeExceptionally(e);
+        } catch (InterruptedException e) {
+            job.result.cancel(false);
+        }
+    }
+
+    private void record(Job job, Result result) {
+        (result.isSuccess() ? completed : failed).incrementAndGet();
+        inputBytes.addAndGet(result.getInputBytes());
+        outputBytes.addAndGet(result.getOutputBytes());
+        mediaMillis.addAndGet(result.getMediaMillis());
+        wallTime.record(result.getWallMillis());
+        lastSpeedFactor = result.getSpeedFactor();
+
+        BotLogger.debug(String.format("ffmpeg %s (%s): %d -> %d bytes, %.1fx realtime, %dms CPU, exit code %d",
+                job.input.getName(), job.priority, result.getInputBytes(), result.getOutputBytes(),
+                result.getSpeedFactor(), result.getCpuMillis(), result.getExitCode()));
+        if (!result.isSuccess() && !result.isCancelled()) {
+            BotLogger.warn("ffmpeg failed for " + job.input.getName() + ": " + result.getStderrTail());
+        }
+    }
+
+    private synchronized void acquireSlot() throws InterruptedException {
+        while (slots >= limit) {
+            wait();
+        }
+        slots++;
+    }
+
+    private synchronized void releaseSlot() {
+        slots--;
+        notifyAll();
+    }
+
+    private synchronized void setLimit(int newLimit) {
+        limit = newLimit;
+        notifyAll();
+    }
+
+    /**
+     * Runs fewer transcodes at once while playback misses frames, more again once it doesn't
+     */
+    private void checkAudioHealth() {
+        long sent = AudioHealth.getFramesSent();
+        long missed = AudioHealth.getFramesMissed();
+        long sentDelta = sent - lastFramesSent;
+        long missedDelta = missed - lastFramesMissed;
+        lastFramesSent = sent;
+        lastFramesMissed = missed;
+
+        long frames = sentDelta + missedDelta;
+        double missedRatio = frames < MIN_FRAMES ? 0 : (double) missedDelta / frames;
+        int current = getLimit();
+
+        if (missedRatio >= UNHEALTHY_MISSED_RATIO && current > 1) {
+            backoffs.incrementAndGet();
+            setLimit(current - 1);
+            BotLogger.info(String.format("Playback missed %.1f%% of frames, running at most %d transcodes",
+                    missedRatio * 100, current - 1));
+        } else if (missedRatio < HEALTHY_MISSED_RATIO && current < maxConcurrent) {
+            setLimit(current + 1);
+            BotLogger.debug("Playback is healthy, running at most " + (current + 1) + " transcodes");
+        }
+    }
+
+    /**
+     * How a transcode went
+     */
+    public static class Result {
+        private final ProcessRunner.Result process;
+        private final long inputBytes;
+        private final long outputBytes;
+        private final long mediaMillis;
+
+        Result(ProcessRunner.Result process, long inputBytes, long outputBytes, long mediaMillis) {
+            this.process = process;
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            this.mediaMillis = mediaMillis;
+        }
+
+        /**
+         * ffmpeg exited on its own with exit code 0
+         */
+        public boolean isSuccess() {
+            return process.isSuccess();
+        }
+
+        public boolean isTimedOut() {
+            return process.isTimedOut();
+        }
+
+        public boolean isCancelled() {
+            return process.isCancelled();
+        }
+
+        public int getExitCode() {
+            return process.getExitCode();
+        }
+
+        public String getStderrTail() {
+            return process.getStderrTail();
+        }
+
+        public long getWallMillis() {
+            return process.getWallMillis();
+        }
+
+        public long getCpuMillis() {
+            return process.getCpuMillis();
+        }
+
+        public long getInputBytes() {
+            return inputBytes;
+        }
+
+        /**
+         * Size of the written file, 0 for analysis runs
+         */
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * Length of the audio ffmpeg got through
+         */
+        public long getMediaMillis() {
+            return mediaMillis;
+        }
+
+        /**
+         * Seconds of audio processed per second of wall time
+         */
+        public double getSpeedFactor() {
+            return process.getWallMillis() == 0 ? 0 : (double) mediaMillis / process.getWallMillis();
+        }
+    }
+
+    private static class Job implements Comparable<Job> {
+        private final Priority priority;
+        private final long sequence;
+        private final File input;
+        private final File output;
+        private final List<String> options;
+        private final Consumer<String> stderrHandler;
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+
+        Job(Priority priority, long sequence, File input, File output, List<String> options,
+            Consumer<String> stderrHandler) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.input = input;
+            this.output = output;
+            this.options = new ArrayList<>(options);
+            this.stderrHandler = stderrHandler != null ? stderrHandler : line -> { };
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            // Higher priority first, then first come first served
+            int byPriority = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
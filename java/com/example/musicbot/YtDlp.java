@@ -0,0 +1,177 @@
+package com.example.musicbot;
+
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds yt-dlp command lines and parses their output.
+ * A download is a single yt-dlp run: it prints the video metadata as one line of JSON
+ * before the media download starts, followed by one progress line per update.
+ */
+public class YtDlp {
+    private static final Pattern PROGRESS_PATTERN =
+            Pattern.compile("\\[download\\]\\s+(\\d+(?:\\.\\d+)?)%\\s+of\\s+~?\\s*(\\S+)");
+
+    // Metadata fields printed before the download, as a single JSON object
+    private static final String METADATA_TEMPLATE =
+            "before_dl:%(.{id,title,uploader,duration,ext,acodec,filesize,filesize_approx})j";
+
+    /**
+     * Command that downloads the best audio stream of a video to the given file,
+     * printing metadata and progress on stdout.
+     * @param resume continue the partial download in output + ".part" instead of writing output directly
+     */
+    public static List<String> downloadCommand(String url, File output, boolean resume) {
+        return Arrays.asList(
+                // WebM can be played while it's still downloading, other containers are the fallback
+                "yt-dlp", "-f", "bestaudio[ext=webm]/bestaudio", "--no-playlist", "--restrict-filenames",
+                resume ? "--continue" : "--no-part",
+                // --print implies --simulate and --quiet, turn the download and progress back on
+                "--print", METADATA_TEMPLATE, "--no-simulate", "--progress", "--newline",
+                "-o", output.getAbsolutePath(), url);
+    }
+
+    /**
+     * Command that writes the best WebM audio stream of a video to stdout. With -o - yt-dlp
+     * moves all its other output to stderr, so the metadata line is printed there.
+     */
+    public static List<String> pipeCommand(String url) {
+        return Arrays.asList(
+                // Only WebM can be demuxed from a pipe, it doesn't need seeking to start playing
+                "yt-dlp", "-f", "bestaudio[ext=webm]", "--no-playlist",
+                "--print", METADATA_TEMPLATE, "--no-simulate",
+                "-o", "-", url);
+    }
+
+    /**
+     * Parses the metadata line of a download, returns null for any other output line
+     */
+    public static Metadata parseMetadata(String line) {
+        if (line == null || !line.startsWith("{")) return null;
+
+        try {
+            DataObject data = DataObject.fromJson(line);
+            long filesize = data.getLong("filesize", 0);
+            if (filesize <= 0) {
+                filesize = data.getLong("filesize_approx", 0);
+            }
+            return new Metadata(
+                    data.getString("id", ""),
+                    data.getString("title", ""),
+                    data.getString("uploader", ""),
+                    (long) (data.getDouble("duration", 0) * 1000),
+                    data.getString("ext", ""),
+                    data.getString("acodec", ""),
+                    filesize);
+        } catch (Exception e) {
+            BotLogger.debug("Could not parse yt-dlp metadata: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parses a download progress line, returns null for any other output line
+     */
+    public static Progress parseProgress(String line) {
+        if (line == null) return null;
+
+        Matcher matcher = PROGRESS_PATTERN.matcher(line);
+        if (!matcher.find()) return null;
+
+        return new Progress(Double.parseDouble(matcher.group(1)), matcher.group(1), matcher.group(2));
+    }
+
+    /**
+     * Makes a video title safe for use in a file name
+     */
+    public static String safeFileName(String title) {
+        return title.replaceAll("[\\\\/:*?\"<>|]", "_").trim();
+    }
+
+    /**
+     * Video metadata printed by yt-dlp before the download starts
+     */
+    public static class Metadata {
+        private final String id;
+        private final String title;
+        private final String uploader;
+        private final long durationMillis;
+        private final String container;
+        private final String codec;
+        private final long fileSize;
+
+        Metadata(String id, String title, String uploader, long durationMillis, String container, String codec,
+                 long fileSize) {
+            this.id = id;
+            this.title = title;
+            this.uploader = uploader;
+            this.durationMillis = durationMillis;
+            this.container = container;
+            this.codec = codec;
+            this.fileSize = fileSize;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getUploader() {
+            return uploader;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public String getContainer() {
+            return container;
+        }
+
+        public String getCodec() {
+            return codec;
+        }
+
+        /**
+         * Exact or approximate size of the download, 0 if unknown
+         */
+        public long getFileSize() {
+            return fileSize;
+        }
+    }
+
+    /**
+     * One download progress update
+     */
+    public static class Progress {
+        private final double percent;
+        private final String percentText;
+        private final String totalSize;
+
+        Progress(double percent, String percentText, String totalSize) {
+            this.percent = percent;
+            this.percentText = percentText;
+            this.totalSize = totalSize;
+        }
+
+        public double getPercent() {
+            return percent;
+        }
+
+        public String getPercentText() {
+            return percentText;
+        }
+
+        public String getTotalSize() {
+            return totalSize;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.container.MediaContainerDescriptor;
+import com.sedmelluq.discord.lavaplayer.container.matroska.MatroskaContainerProbe;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.NonSeekableInputStream;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackState;
+import com.sedmelluq.discord.lavaplayer.track.DelegatedAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Track that demuxes the WebM stream yt-dlp writes to its stdout.
+ */
+public class YtDlpPipeAudioTrack extends DelegatedAudioTrack {
+    private static final MediaContainerDescriptor WEBM = new MediaContainerDescriptor(new MatroskaContainerProbe(), null);
+
+    private final String url;
+    private final YtDlpPipeSourceManager sourceManager;
+    // Process started while loading the track, used by its first playback
+    private final AtomicReference<YtDlpPipeSourceManager.PipeProcess> pendingProcess;
+
+    YtDlpPipeAudioTrack(AudioTrackInfo trackInfo, String url, YtDlpPipeSourceManager sourceManager,
+                        YtDlpPipeSourceManager.PipeProcess pendingProcess) {
+        super(trackInfo);
+        this.url = url;
+        this.sourceManager = sourceManager;
+        this.pendingProcess = new AtomicReference<>(pendingProcess);
+    }
+
+    @Override
+    public void process(LocalAudioTrackExecutor executor) throws Exception {
+        YtDlpPipeSourceManager.PipeProcess pipe = pendingProcess.getAndSet(null);
+        if (pipe == null || !pipe.claim()) {
+            // Not started yet, or given up on by the reaper
+            pipe = sourceManager.startPipe(url);
+        }
+
+        try (InputStream buffered = new BoundedBufferInputStream(pipe.getInputStream(),
+                sourceManager.getBufferSize(), "YtDlp-Pipe-" + trackInfo.title)) {
+            processDelegate((InternalAudioTrack) WEBM.createTrack(trackInfo, new NonSeekableInputStream(buffered)), executor);
+
+            // The stream ended on its own; that's only the end of the track if yt-dlp succeeded
+            if (executor.getState() != AudioTrackState.STOPPING) {
+                pipe.checkExit();
+            }
+        } finally {
+            // Also stops the download when the track is skipped or stopped
+            pipe.destroy();
+        }
+    }
+
+    /**
+     * Stops the process started while loading if the track hasn't started playing yet.
+     */
+    void discardPendingProcess() {
+        YtDlpPipeSourceManager.PipeProcess pipe = pendingProcess.getAndSet(null);
+        if (pipe != null) {
+            pipe.destroy();
+        }
+    }
+
+    @Override
+    protected AudioTrack makeShallowClone() {
+        // The queue plays a clone of the loaded track, hand it the process that's already running
+        return new YtDlpPipeAudioTrack(trackInfo, url, sourceManager, pendingProcess.getAndSet(null));
+    }
+
+    @Override
+    public AudioSourceManager getSourceManager() {
+        return sourceManager;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.musicbot;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lavaplayer source that plays a YouTube video straight from yt-dlp's stdout, without
+ * writing anything to disk. Used for "Just this time" plays: identifiers are "ytdlp:" + URL.
+ *
+ * Loading starts yt-dlp and waits for its metadata line, the same process then feeds the
+ * first playback of the track. Clones of the track (e.g. played again from the queue) start
+ * a new process.
+ */
+public class YtDlpPipeSourceManager implements AudioSourceManager {
+    public static final String PREFIX = "ytdlp:";
+
+    // A loaded track that isn't played within this time gives its process up
+    private static final long UNCLAIMED_PROCESS_SECONDS = 60;
+
+    private final int bufferSize;
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "YtDlp-Pipe-Reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param bufferSize bytes of audio read ahead from the pipe and kept in memory
+     */
+    public YtDlpPipeSourceManager(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public String getSourceName() {
+        return "yt-dlp-pipe";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference) {
+        if (!reference.identifier.startsWith(PREFIX)) {
+            return null;
+        }
+
+        String url = reference.identifier.substring(PREFIX.length());
+        PipeProcess pipe = startPipe(url);
+        YtDlp.Metadata metadata = pipe.getMetadata();
+
+        AudioTrackInfo trackInfo = new AudioTrackInfo(metadata.getTitle(), metadata.getUploader(),
+                metadata.getDurationMillis(), reference.identifier, false, url);
+        YtDlpPipeAudioTrack track = new YtDlpPipeAudioTrack(trackInfo, url, this, pipe);
+
+        // Don't keep yt-dlp running for a track that sits in the queue. Scheduled on the process,
+        // not the track: a clone of the track may be the one holding it by then
+        reaper.schedule(() -> {
+            if (pipe.claim()) {
+                pipe.destroy();
+            }
+        }, UNCLAIMED_PROCESS_SECONDS, TimeUnit.SECONDS);
+        return track;
+    }
+
+    /**
+     * Starts yt-dlp for a video and waits until it printed the metadata.
+     * @throws FriendlyException if yt-dlp could not be started or exited without streaming
+     */
+    PipeProcess startPipe(String url) {
+        try {
+            PipeProcess pipe = new PipeProcess(url);
+            YtDlp.Metadata metadata = pipe.awaitMetadata();
+
+            if (metadata == null) {
+                pipe.destroy();
+                throw new FriendlyException("yt-dlp could not stream this video: " + pipe.getLastError(),
+                        FriendlyException.Severity.SUSPICIOUS, null);
+            }
+            return pipe;
+        } catch (IOException e) {
+            throw new FriendlyException("Could not start yt-dlp.", FriendlyException.Severity.SUSPICIOUS, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FriendlyException("Interrupted while starting yt-dlp.", FriendlyException.Severity.COMMON, e);
+        }
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track) {
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException {
+        // Not encodable
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException {
+        return null;
+    }
+
+    @Override
+    public void shutdown() {
+        reaper.shutdownNow();
+    }
+
+    /**
+     * A running yt-dlp process writing media to stdout and everything else to stderr
+     */
+    static class PipeProcess {
+        // How long yt-dlp may take to exit once it closed stdout
+        private static final long EXIT_TIMEOUT_SECONDS = 5;
+
+        private final ProcessRunner.Execution execution;
+        private final CompletableFuture<YtDlp.Metadata> metadata = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile String lastError = "no output";
+
+        /**
+         * Starts yt-dlp. stderr is drained for the whole run so yt-dlp never blocks on a
+         * full stderr pipe, the metadata line on it completes awaitMetadata.
+         */
+        PipeProcess(String url) throws IOException {
+            this.execution = new ProcessRunner("yt-dlp", YtDlp.pipeCommand(url))
+                    .rawStdout()
+                    .onStderr(line -> {
+                        YtDlp.Metadata parsed = metadata.isDone() ? null : YtDlp.parseMetadata(line);
+                        if (parsed != null) {
+                            metadata.complete(parsed);
+                        } else {
+                            lastError = line;
+                            BotLogger.debug("yt-dlp: " + line);
+                        }
+                    })
+                    .start();
+
+            // Exited without printing metadata
+            execution.getCompletion().thenRun(() -> metadata.complete(null));
+        }
+
+        /**
+         * Waits for the metadata line, null if yt-dlp exited without one
+         */
+        YtDlp.Metadata awaitMetadata() throws InterruptedException {
+            try {
+                return metadata.get();
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        YtDlp.Metadata getMetadata() {
+            return metadata.getNow(null);
+        }
+
+        InputStream getInputStream() {
+            return execution.getStdout();
+        }
+
+        /**
+         * Takes the process for one playback (or for the reaper)
+         * @return false if someone else took it already
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Waits for yt-dlp to exit after the end of its output
+         * @throws FriendlyException if it failed, so a broken stream doesn't pass for the end of the track
+         */
+        void checkExit() throws InterruptedException {
+            ProcessRunner.Result result;
+            try {
+                result = execution.getCompletion().get(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new FriendlyException("yt-dlp did not finish the stream.", FriendlyException.Severity.SUSPICIOUS, e);
+            }
+            if (!result.isSuccess()) {
+                throw new FriendlyException("yt-dlp failed while streaming: " + lastError,
+                        FriendlyException.Severity.SUSPICIOUS, null);
+            }
+        }
+
+        String getLastError() {
+            return lastError;
+        }
+
+        /**
+         * Kills yt-dlp and anything it started (ffmpeg for some formats)
+         */
+        void destroy() {
+            execution.cancel();
+        }
+    }
+}
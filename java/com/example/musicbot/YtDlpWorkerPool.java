@@ -0,0 +1,369 @@
+package com.example.musicbot;
+
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pool of long-running yt-dlp worker processes (resources/ytdlp_worker.py), so downloads
+ * don't pay for starting Python and initializing the extractors every time. Jobs are sent
+ * as JSON lines on stdin, the worker answers with the same output a yt-dlp download run
+ * prints, followed by a "__DONE__" line.
+ *
+ * Workers are pinged while idle and replaced when they stop answering, and retired after
+ * a number of jobs. If workers can't be started (no Python yt_dlp module) the pool disables
+ * itself for a while and callers fall back to running yt-dlp once per download.
+ */
+public class YtDlpWorkerPool {
+    private static final String DONE = "__DONE__";
+    private static final String PONG = "__PONG__";
+    // Marks the end of a worker's output in its line queue
+    private static final String EOF = "\u0000EOF";
+
+    private static final long STARTUP_TIMEOUT_MILLIS = 20_000;
+    private static final long PING_TIMEOUT_MILLIS = 5_000;
+    // A download that prints nothing for this long is considered stuck
+    private static final long JOB_IDLE_TIMEOUT_MILLIS = 120_000;
+    private static final long DISABLE_MILLIS = 5 * 60 * 1000;
+
+    private final String python;
+    private final int size;
+    private final int maxJobsPerWorker;
+    private final File script;
+    private final long startupTimeoutMillis;
+    private final long pingTimeoutMillis;
+    private final long jobIdleTimeoutMillis;
+    private boolean scriptExtracted;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger workers = new AtomicInteger();
+    private volatile long disabledUntil;
+
+    private final AtomicLong jobs = new AtomicLong();
+    private final AtomicLong spawned = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+    private final AtomicLong unhealthy = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "YtDlp-Worker-Health");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param python Python interpreter that has the yt_dlp module installed
+     * @param size maximum number of worker processes, 0 disables the pool
+     * @param maxJobsPerWorker downloads after which a worker is replaced by a fresh one
+     * @param workDir where the worker script is extracted to
+     */
+    public YtDlpWorkerPool(String python, int size, int maxJobsPerWorker, File workDir) {
+        this(python, size, maxJobsPerWorker, workDir, STARTUP_TIMEOUT_MILLIS, PING_TIMEOUT_MILLIS, JOB_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * With other timeouts, so tests don't have to wait minutes for a stuck worker
+     */
+    YtDlpWorkerPool(String python, int size, int maxJobsPerWorker, File workDir,
+                    long startupTimeoutMillis, long pingTimeoutMillis, long jobIdleTimeoutMillis) {
+        this.python = python;
+        this.size = size;
+        this.maxJobsPerWorker = Math.max(1, maxJobsPerWorker);
+        this.script = new File(workDir, "ytdlp_worker.py");
+        this.startupTimeoutMillis = startupTimeoutMillis;
+        this.pingTimeoutMillis = pingTimeoutMillis;
+        this.jobIdleTimeoutMillis = jobIdleTimeoutMillis;
+
+        if (size > 0) {
+            healthChecker.scheduleAtFixedRate(this::checkIdleWorkers, 30, 30, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "YtDlp-Worker-Shutdown"));
+        }
+    }
+
+    /**
+     * Whether downloads should be sent to the pool, false if it's disabled or failing
+     */
+    public boolean isAvailable() {
+        return size > 0 && System.currentTimeMillis() >= disabledUntil;
+    }
+
+    /**
+     * Runs a download on a worker. Every output line is passed to the handler.
+     * @param resume continue the partial download in output + ".part" instead of writing output directly
+     * @return the exit code of the job, 0 on success
+     * @throws UnavailableException if no worker could be started; nothing was downloaded and
+     *                              the caller should run yt-dlp itself
+     * @throws IOException if the worker died or got stuck during the download
+     */
+    public int download(String url, File output, boolean resume, Consumer<String> lineHandler)
+            throws IOException, InterruptedException {
+        Worker worker = acquire();
+
+        boolean healthy = false;
+        try {
+            jobs.incrementAndGet();
+            worker.send(DataObject.empty()
+                    .put("op", "download")
+                    .put("url", url)
+                    .put("output", output.getAbsolutePath())
+                    .put("resume", resume)
+                    .put("format", "bestaudio[ext=webm]/bestaudio"));
+
+            while (true) {
+                String line = worker.lines.poll(jobIdleTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    throw new IOException("yt-dlp worker stopped responding");
+                }
+                if (line.equals(EOF)) {
+                    throw new IOException("yt-dlp worker exited during the download");
+                }
+                if (line.startsWith(DONE)) {
+                    healthy = true;
+                    return parseExitCode(line);
+                }
+                lineHandler.accept(line);
+            }
+        } finally {
+            release(worker, healthy);
+        }
+    }
+
+    /**
+     * Exposes pool counters on the metrics endpoint.
+     */
+    public void registerMetrics() {
+        MetricsServer.register("musicbot_ytdlp_workers", workers::get);
+        MetricsServer.register("musicbot_ytdlp_worker_jobs_total", jobs::get);
+        MetricsServer.register("musicbot_ytdlp_worker_spawned_total", spawned::get);
+        MetricsServer.register("musicbot_ytdlp_worker_recycled_total", recycled::get);
+        MetricsServer.register("musicbot_ytdlp_worker_unhealthy_total", unhealthy::get);
+        MetricsServer.register("musicbot_ytdlp_worker_fallbacks_total", fallbacks::get);
+    }
+
+    /**
+     * Counts a download that ran as a one-shot yt-dlp process instead
+     */
+    public void recordFallback() {
+        fallbacks.incrementAndGet();
+    }
+
+    /**
+     * Number of worker processes, busy or idle
+     */
+    int getWorkerCount() {
+        return workers.get();
+    }
+
+    long getSpawned() {
+        return spawned.get();
+    }
+
+    long getUnhealthy() {
+        return unhealthy.get();
+    }
+
+    public void shutdown() {
+        healthChecker.shutdownNow();
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    private Worker acquire() throws UnavailableException, InterruptedException {
+        if (!isAvailable()) {
+            throw new UnavailableException("yt-dlp worker pool is disabled");
+        }
+
+        while (true) {
+            Worker worker = idle.poll();
+            if (worker == null) {
+                // Start another worker if we're below the limit, otherwise wait for one to be returned
+                int current = workers.get();
+                if (current < size && workers.compareAndSet(current, current + 1)) {
+                    return spawn();
+                }
+                worker = idle.poll(startupTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (worker == null) {
+                    throw new UnavailableException("No yt-dlp worker became free");
+                }
+            }
+
+            if (worker.execution.isAlive()) {
+                return worker;
+            }
+            retire(worker);
+            unhealthy.incrementAndGet();
+        }
+    }
+
+    private void release(Worker worker, boolean healthy) {
+        if (!healthy) {
+            unhealthy.incrementAndGet();
+            retire(worker);
+        } else if (++worker.jobsDone >= maxJobsPerWorker) {
+            // Long-lived Python processes slowly grow, start over with a fresh one
+            recycled.incrementAndGet();
+            retire(worker);
+        } else {
+            idle.offer(worker);
+        }
+    }
+
+    private void retire(Worker worker) {
+        worker.destroy();
+        workers.decrementAndGet();
+    }
+
+    private Worker spawn() throws UnavailableException {
+        Worker worker = null;
+        try {
+            extractScript();
+            worker = new Worker(new ProcessRunner("yt-dlp-worker", Arrays.asList(python, "-u", script.getAbsolutePath())),
+                    spawned.incrementAndGet());
+
+            // The first ping is only answered once yt_dlp has been imported
+            if (!worker.ping(startupTimeoutMillis)) {
+                throw new IOException("worker did not start: " + worker.lastError);
+            }
+            BotLogger.debug("yt-dlp worker " + worker.number + " started");
+            return worker;
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (worker != null) {
+                worker.destroy();
+            }
+            workers.decrementAndGet();
+            disabledUntil = System.currentTimeMillis() + DISABLE_MILLIS;
+            BotLogger.warn("yt-dlp worker pool disabled for " + (DISABLE_MILLIS / 60000) + " minutes: " + e.getMessage());
+            throw new UnavailableException("Could not start a yt-dlp worker: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pings every idle worker, workers that don't answer are replaced on next use
+     */
+    void checkIdleWorkers() {
+        List<Worker> checked = new ArrayList<>();
+        idle.drainTo(checked);
+
+        for (Worker worker : checked) {
+            boolean alive;
+            try {
+                alive = worker.execution.isAlive() && worker.ping(pingTimeoutMillis);
+            } catch (IOException | InterruptedException e) {
+                alive = false;
+            }
+
+            if (alive) {
+                idle.offer(worker);
+            } else {
+                BotLogger.warn("yt-dlp worker " + worker.number + " failed its health check: " + worker.lastError);
+                unhealthy.incrementAndGet();
+                retire(worker);
+            }
+        }
+    }
+
+    private synchronized void extractScript() throws IOException {
+        // Written once per run, so an updated bot never uses an old script
+        if (scriptExtracted) return;
+
+        try (InputStream in = YtDlpWorkerPool.class.getResourceAsStream("/ytdlp_worker.py")) {
+            if (in == null) {
+                throw new IOException("ytdlp_worker.py is missing from the classpath");
+            }
+            script.getParentFile().mkdirs();
+            File tempFile = new File(script.getPath() + ".tmp");
+            Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile.toPath(), script.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            scriptExtracted = true;
+        }
+    }
+
+    private static int parseExitCode(String line) {
+        String[] parts = line.split(" ", 3);
+        try {
+            return parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Thrown when the pool can't take a job; nothing has been run
+     */
+    public static class UnavailableException extends IOException {
+        public UnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * One worker process. Its stdout is collected into a line queue so callers can wait with a timeout.
+     */
+    private static class Worker {
+        private final ProcessRunner.Execution execution;
+        private final long number;
+        private final OutputStream stdin;
+        private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private volatile String lastError = "no output";
+        private int jobsDone;
+
+        Worker(ProcessRunner runner, long number) throws IOException {
+            this.number = number;
+            this.execution = runner
+                    .onStdout(lines::offer)
+                    .onStderr(line -> {
+                        lastError = line;
+                        BotLogger.debug("yt-dlp worker " + number + ": " + line);
+                    })
+                    .start();
+            this.stdin = execution.getStdin();
+
+            // Wake up whoever is waiting for output once the worker is gone
+            execution.getCompletion().thenRun(() -> lines.offer(EOF));
+        }
+
+        void send(DataObject job) throws IOException {
+            stdin.write((job.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+            stdin.flush();
+        }
+
+        boolean ping(long timeoutMillis) throws IOException, InterruptedException {
+            lines.clear();
+            send(DataObject.empty().put("op", "ping"));
+            String line = lines.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            return PONG.equals(line);
+        }
+
+        void destroy() {
+            try {
+                stdin.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+            execution.cancel();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.musicbot.commands;
+
+import com.example.musicbot.BotConfig;
+import com.example.musicbot.CacheMigrator;
+import com.example.musicbot.Command;
+import com.example.musicbot.MusicManager;
+import com.example.musicbot.TrackCache;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+
+import java.awt.Color;
+import java.util.List;
+
+public class CacheCommand implements Command {
+    private final MusicManager musicManager;
+    private final BotConfig config;
+    private static final int TOP_TRACKS = 5;
+
+    public CacheCommand(MusicManager musicManager) {
+        this.musicManager = musicManager;
+        this.config = new BotConfig();
+    }
+
+    @Override
+    public void execute(MessageReceivedEvent event, String args) {
+        // Cache internals are only for the bot owner
+        if (!event.getAuthor().getId().equals(config.getOwner())) {
+            event.getChannel().sendMessage("❌ Only the bot owner can use this command.").queue();
+            return;
+        }
+
+        TrackCache trackCache = musicManager.getTrackCache();
+        TrackCache.Stats stats = trackCache.getStats();
+
+        EmbedBuilder embed = new EmbedBuilder();
+        embed.setTitle("💾 Cache Statistics");
+        embed.setColor(Color.decode(config.getEmbedColor()));
+
+        embed.addField("Hits", String.valueOf(stats.getHits()), true);
+        embed.addField("Misses", String.valueOf(stats.getMisses()), true);
+        embed.addField("Hit Ratio", String.format("%.1f%%", stats.getHitRatio() * 100), true);
+
+        embed.addField("Entries", String.valueOf(stats.getEntries()), true);
+        embed.addField("Stored", formatBytes(stats.getBytesStored()) + " / " + formatBytes(stats.getMaxBytes()), true);
+        embed.addField("Evictions", String.valueOf(stats.getEvictions()), true);
+
+        embed.addField("Admission Rejections", String.valueOf(stats.getAdmissionRejections()), true);
+        embed.addField("Avg. Download Avoided", formatMillis(stats.getAverageDownloadMillisAvoided()), true);
+        embed.addField("Temp Tier", stats.getTempEntries() + " files, " + formatBytes(stats.getTempBytes())
+                + " (" + stats.getTempExpirations() + " expired)", true);
+
+        // Background conversion to the configured format
+        CacheMigrator migrator = musicManager.getCacheMigrator();
+        if (migrator.isEnabled()) {
+            embed.addField("Conversion to " + migrator.getTargetFormat(), migrator.getConverted() + " converted, "
+                    + migrator.getRemaining() + " left, " + migrator.getFailed() + " failed, "
+                    + formatBytes(migrator.getBytesSaved()) + " saved", false);
+        }
+
+        // Most played cached tracks
+        List<TrackCache.CacheEntry> topTracks = trackCache.topTracks(TOP_TRACKS);
+        if (topTracks.isEmpty()) {
+            embed.addField("Top Tracks", "No cache hits yet.", false);
+        } else {
+            StringBuilder sb = new StringBuilder();
+            int rank = 1;
+            for (TrackCache.CacheEntry entry : topTracks) {
+                sb.append("`").append(rank++).append(".` ");
+                sb.append("`").append(entry.getTitle()).append("`");
+                sb.append(" - ").append(entry.getHits()).append(" hits\n");
+            }
+            embed.addField("Top Tracks", sb.toString(), false);
+        }
+
+        embed.setFooter("Counters since last restart • Sizes from the cache index");
+
+        event.getChannel().sendMessageEmbeds(embed.build()).queue();
+    }
+
+    private String formatBytes(long bytes) {
+        if (bytes >= 1024L * 1024 * 1024) {
+            return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    private String formatMillis(long millis) {
+        if (millis >= 1000) {
+            return String.format("%.1fs", millis / 1000.0);
+        }
+        return millis + "ms";
+    }
+}
@@ -0,0 +1,101 @@
+#!/usr/bin/env python3
+# Long-running yt-dlp worker used by YtDlpWorkerPool.
+#
+# Reads one JSON job per line on stdin and answers on stdout with the same lines a
+# yt-dlp download run would print (metadata JSON, "[download] x% of y" progress),
+# followed by "__DONE__ <exit code> <message>". {"op": "ping"} is answered with "__PONG__".
+# Everything else yt-dlp has to say goes to stderr.
+
+import json
+import sys
+
+import yt_dlp
+
+METADATA_FIELDS = ("id", "title", "uploader", "duration", "ext", "acodec", "filesize", "filesize_approx")
+
+
+def emit(line):
+    sys.stdout.write(line + "\n")
+    sys.stdout.flush()
+
+
+def format_size(size):
+    if not size:
+        return "Unknown"
+    for unit in ("B", "KiB", "MiB", "GiB"):
+        if size < 1024 or unit == "GiB":
+            return "%.2f%s" % (size, unit)
+        size /= 1024.0
+
+
+class StderrLogger:
+    def debug(self, msg):
+        pass
+
+    def info(self, msg):
+        pass
+
+    def warning(self, msg):
+        sys.stderr.write(msg + "\n")
+
+    def error(self, msg):
+        sys.stderr.write(msg + "\n")
+
+
+def progress_hook(status):
+    if status.get("status") != "downloading":
+        return
+    total = status.get("total_bytes") or status.get("total_bytes_estimate") or 0
+    done = status.get("downloaded_bytes") or 0
+    percent = 100.0 * done / total if total else 0.0
+    emit("[download] %5.1f%% of %s" % (percent, format_size(total)))
+
+
+def download(job):
+    options = {
+        "format": job.get("format", "bestaudio[ext=webm]/bestaudio"),
+        "outtmpl": job["output"],
+        "noplaylist": True,
+        "restrictfilenames": True,
+        # A resumed job continues output + ".part" with a range request
+        "nopart": not job.get("resume", False),
+        "continuedl": True,
+        "quiet": True,
+        "noprogress": True,
+        "logger": StderrLogger(),
+        "progress_hooks": [progress_hook],
+    }
+    with yt_dlp.YoutubeDL(options) as ydl:
+        info = ydl.extract_info(job["url"], download=False)
+        metadata = ydl.sanitize_info(info)
+        emit(json.dumps({field: metadata.get(field) for field in METADATA_FIELDS}))
+        ydl.process_ie_result(info, download=True)
+
+
+def main():
+    for raw in sys.stdin:
+        raw = raw.strip()
+        if not raw:
+            continue
+        try:
+            job = json.loads(raw)
+        except ValueError:
+            emit("__DONE__ 2 invalid job")
+            continue
+
+        if job.get("op") == "ping":
+            emit("__PONG__")
+            continue
+
+        try:
+            download(job)
+            emit("__DONE__ 0 ok")
+        except Exception as e:
+            message = str(e).replace("\n", " ")
+            sys.stderr.write(message + "\n")
+            sys.stderr.flush()
+            emit("__DONE__ 1 " + message)
+
+
+if __name__ == "__main__":
+    main()
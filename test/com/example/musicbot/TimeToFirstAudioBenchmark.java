@@ -0,0 +1,121 @@
+package com.example.musicbot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time to first audio of a YouTube download: from the play request until the first
+ * bytes of the audio are on disk. Compares the two-run flow downloads used to have (yt-dlp
+ * --get-title, then a second yt-dlp for the download) with the single run built by
+ * YtDlp.downloadCommand. Needs yt-dlp and network access, so it's not a unit test.
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) \
+ *         com.example.musicbot.TimeToFirstAudioBenchmark https://www.youtube.com/watch?v=... 10
+ * </pre>
+ *
+ * Runs alternate between the flows so both see the same network conditions. One discarded
+ * run of each warms up yt-dlp's caches first.
+ */
+public class TimeToFirstAudioBenchmark {
+    private static final long RUN_TIMEOUT_MILLIS = 60_000;
+    private static final long POLL_MILLIS = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: TimeToFirstAudioBenchmark <youtube url> [runs]");
+            System.exit(2);
+        }
+        String url = args[0];
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<Long> twoRuns = new ArrayList<>();
+        List<Long> singleRun = new ArrayList<>();
+        for (int i = -1; i < runs; i++) {
+            long twoRunMillis = twoRunFlow(url);
+            long singleRunMillis = singleRunFlow(url);
+            if (i < 0) continue;
+
+            twoRuns.add(twoRunMillis);
+            singleRun.add(singleRunMillis);
+            System.out.printf("run %d: --get-title + download %d ms, single run %d ms%n",
+                    i + 1, twoRunMillis, singleRunMillis);
+        }
+
+        report("--get-title + download", twoRuns);
+        report("single run", singleRun);
+    }
+
+    // What downloads did before: ask for the title, then download with a second yt-dlp
+    private static long twoRunFlow(String url) throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("ttfa").toFile();
+        File output = new File(dir, "audio.webm");
+        long start = System.currentTimeMillis();
+
+        ProcessRunner.Result title = new ProcessRunner("yt-dlp",
+                Arrays.asList("yt-dlp", "--get-title", "--no-playlist", url))
+                .timeout(RUN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .start()
+                .await();
+        if (!title.isSuccess()) {
+            throw new IOException("yt-dlp --get-title failed: " + title.getStderrTail());
+        }
+
+        ProcessRunner.Execution download = new ProcessRunner("yt-dlp",
+                Arrays.asList("yt-dlp", "-f", "bestaudio", "--restrict-filenames", "-o", output.getAbsolutePath(), url))
+                .timeout(RUN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .start();
+        return awaitFirstBytes(download, start, output, new File(output.getPath() + ".part"), dir);
+    }
+
+    // What TrackDownloader runs now: metadata and media from one yt-dlp
+    private static long singleRunFlow(String url) throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("ttfa").toFile();
+        File output = new File(dir, "audio.webm");
+        long start = System.currentTimeMillis();
+
+        ProcessRunner.Execution download = new ProcessRunner("yt-dlp", YtDlp.downloadCommand(url, output, false))
+                .timeout(RUN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .start();
+        return awaitFirstBytes(download, start, output, output, dir);
+    }
+
+    private static long awaitFirstBytes(ProcessRunner.Execution download, long start, File output, File partial,
+                                        File dir) throws IOException, InterruptedException {
+        try {
+            while (output.length() == 0 && partial.length() == 0) {
+                if (!download.isAlive()) {
+                    ProcessRunner.Result result = download.await();
+                    throw new IOException("yt-dlp exited with " + result.getExitCode() + " before writing audio: "
+                            + result.getStderrTail());
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            return System.currentTimeMillis() - start;
+        } finally {
+            download.cancel();
+            download.await();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+            Files.deleteIfExists(dir.toPath());
+        }
+    }
+
+    private static void report(String flow, List<Long> millis) {
+        List<Long> sorted = new ArrayList<>(millis);
+        Collections.sort(sorted);
+        System.out.printf("%s: median %d ms, min %d ms, max %d ms over %d runs%n", flow,
+                sorted.get(sorted.size() / 2), sorted.get(0), sorted.get(sorted.size() - 1), sorted.size());
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.musicbot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Runs the pool against a fake worker: a shell script in place of the Python interpreter that
+ * speaks the worker's JSON-lines protocol and does what the job's URL asks for.
+ */
+public class YtDlpWorkerPoolTest {
+    // Stands in for "python -u ytdlp_worker.py"; pings go unanswered while a "mute" file exists
+    private static final String FAKE_WORKER = String.join("\n",
+            "#!/bin/sh",
+            "dir=$(dirname \"$0\")",
+            "while IFS= read -r job; do",
+            "  case \"$job\" in",
+            "    *'\"ping\"'*)",
+            "      [ -e \"$dir/mute\" ] || echo '__PONG__' ;;",
+            "    *fail*)",
+            "      echo 'ERROR: Video unavailable' >&2",
+            "      echo '__DONE__ 1 Video unavailable' ;;",
+            "    *hang*)",
+            "      sleep 60 ;;",
+            "    *crash*)",
+            "      echo '[download]  10.0% of 1.00MiB'",
+            "      exit 3 ;;",
+            "    *)",
+            "      echo '{\"id\": \"abc\", \"title\": \"Fake\"}'",
+            "      echo '[download]  50.0% of 1.00MiB'",
+            "      echo '[download] 100.0% of 1.00MiB'",
+            "      echo '__DONE__ 0 ok' ;;",
+            "  esac",
+            "done",
+            "");
+
+    // A Python without the yt_dlp module: exits before answering the first ping
+    private static final String BROKEN_WORKER = String.join("\n",
+            "#!/bin/sh",
+            "echo \"ModuleNotFoundError: No module named 'yt_dlp'\" >&2",
+            "exit 1",
+            "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<YtDlpWorkerPool> pools = new ArrayList<>();
+    private File output;
+
+    @Before
+    public void setUp() throws IOException {
+        assumeFalse("The fake worker is a shell script", System.getProperty("os.name").startsWith("Windows"));
+        output = new File(folder.getRoot(), "out.webm");
+    }
+
+    @After
+    public void tearDown() {
+        pools.forEach(YtDlpWorkerPool::shutdown);
+    }
+
+    @Test
+    public void passesOutputLinesAndReusesTheWorker() throws Exception {
+        YtDlpWorkerPool pool = pool(FAKE_WORKER, 10);
+        List<String> lines = new ArrayList<>();
+
+        assertEquals(0, pool.download("https://www.youtube.com/watch?v=ok", output, false, lines::add));
+        assertEquals(Arrays.asList("{\"id\": \"abc\", \"title\": \"Fake\"}",
+                "[download]  50.0% of 1.00MiB", "[download] 100.0% of 1.00MiB"), lines);
+
+        assertEquals(0, pool.download("https://www.youtube.com/watch?v=ok", output, false, line -> { }));
+        assertEquals(1, pool.getSpawned());
+        assertEquals(1, pool.getWorkerCount());
+    }
+
+    @Test
+    public void failedJobReturnsItsExitCodeAndKeepsTheWorker() throws Exception {
+        YtDlpWorkerPool pool = pool(FAKE_WORKER, 10);
+
+        assertEquals(1, pool.download("https://www.youtube.com/watch?v=fail", output, false, line -> { }));
+        assertEquals(1, pool.getWorkerCount());
+        assertEquals(0, pool.getUnhealthy());
+    }
+
+    @Test
+    public void workerExitingDuringDownloadIsRetired() throws Exception {
+        YtDlpWorkerPool pool = pool(FAKE_WORKER, 10);
+
+        IOException e = assertThrows(IOException.class,
+                () -> pool.download("https://www.youtube.com/watch?v=crash", output, false, line -> { }));
+        assertTrue(e.getMessage(), e.getMessage().contains("exited"));
+        assertEquals(0, pool.getWorkerCount());
+        assertEquals(1, pool.getUnhealthy());
+
+        // The next job gets a fresh worker
+        assertEquals(0, pool.download("https://www.youtube.com/watch?v=ok", output, false, line -> { }));
+        assertEquals(2, pool.getSpawned());
+    }
+
+    @Test
+    public void stuckDownloadTimesOut() throws Exception {
+        YtDlpWorkerPool pool = pool(FAKE_WORKER, 10);
+
+        IOException e = assertThrows(IOException.class,
+                () -> pool.download("https://www.youtube.com/watch?v=hang", output, false, line -> { }));
+        assertTrue(e.getMessage(), e.getMessage().contains("stopped responding"));
+        assertEquals(0, pool.getWorkerCount());
+    }
+
+    @Test
+    public void workerIsReplacedAfterMaxJobs() throws Exception {
+        YtDlpWorkerPool pool = pool(FAKE_WORKER, 2);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, pool.download("https://www.youtube.com/watch?v=ok", output, false, line -> { }));
+        }
+        assertEquals(2, pool.getSpawned());
+    }
+
+    @Test
+    public void healthCheckKeepsWorkersThatAnswer() throws Exception {
+        YtDlpWorkerPool pool = pool(FAKE_WORKER, 10);
+        pool.download("https://www.youtube.com/watch?v=ok", output, false, line -> { });
+
+        pool.checkIdleWorkers();
+        assertEquals(1, pool.getWorkerCount());
+        assertEquals(0, pool.getUnhealthy());
+    }
+
+    @Test
+    public void healthCheckRetiresWorkersThatStopAnswering() throws Exception {
+        YtDlpWorkerPool pool = pool(FAKE_WORKER, 10);
+        pool.download("https://www.youtube.com/watch?v=ok", output, false, line -> { });
+
+        assertTrue(folder.newFile("mute").exists());
+        pool.checkIdleWorkers();
+        assertEquals(0, pool.getWorkerCount());
+        assertEquals(1, pool.getUnhealthy());
+    }
+
+    @Test
+    public void spawnFailureDisablesThePool() throws Exception {
+        YtDlpWorkerPool pool = pool(BROKEN_WORKER, 10);
+        assertTrue(pool.isAvailable());
+
+        assertThrows(YtDlpWorkerPool.UnavailableException.class,
+                () -> pool.download("https://www.youtube.com/watch?v=ok", output, false, line -> { }));
+        assertFalse(pool.isAvailable());
+        assertEquals(0, pool.getWorkerCount());
+
+        // Backing off: no new worker is started until the pool is enabled again
+        assertThrows(YtDlpWorkerPool.UnavailableException.class,
+                () -> pool.download("https://www.youtube.com/watch?v=ok", output, false, line -> { }));
+        assertEquals(1, pool.getSpawned());
+    }
+
+    private YtDlpWorkerPool pool(String fakeWorker, int maxJobsPerWorker) throws IOException {
+        File python = new File(folder.getRoot(), "python");
+        Files.write(python.toPath(), fakeWorker.getBytes(StandardCharsets.UTF_8));
+        assertTrue(python.setExecutable(true));
+
+        YtDlpWorkerPool pool = new YtDlpWorkerPool(python.getAbsolutePath(), 1, maxJobsPerWorker,
+                folder.newFolder(), 5000, 300, 500);
+        pools.add(pool);
+        return pool;
+    }
+}